@@ -2,6 +2,7 @@ plugins {
 	java
 	id("org.springframework.boot") version "3.4.0"
 	id("io.spring.dependency-management") version "1.1.6"
+	id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.zerobee"
@@ -27,10 +28,22 @@ dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-data-jpa")
 //	implementation("org.springframework.boot:spring-boot-starter-security")
 	implementation("org.springframework.boot:spring-boot-starter-web")
+	implementation("org.springframework.boot:spring-boot-starter-actuator")
+	implementation("org.springframework.boot:spring-boot-starter-aop")
+	runtimeOnly("io.micrometer:micrometer-registry-prometheus")
 	compileOnly("org.projectlombok:lombok")
+	implementation("org.flywaydb:flyway-core")
+	implementation("org.hibernate.orm:hibernate-jcache")
+	implementation("com.github.ben-manes.caffeine:caffeine")
+	implementation("com.github.ben-manes.caffeine:jcache")
+	implementation("com.fasterxml.jackson.module:jackson-module-blackbird")
+	runtimeOnly("org.hibernate.orm:hibernate-micrometer")
+	runtimeOnly("org.flywaydb:flyway-database-postgresql")
 	runtimeOnly("org.postgresql:postgresql")
 	annotationProcessor("org.projectlombok:lombok")
 	testImplementation("org.springframework.boot:spring-boot-starter-test")
+	testRuntimeOnly("com.h2database:h2")
+	testImplementation("io.zonky.test:embedded-postgres:2.1.0")
 //	testImplementation("org.springframework.security:spring-security-test")
 	testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 
@@ -46,3 +59,53 @@ dependencies {
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+tasks.test {
+	useJUnitPlatform {
+		excludeTags("low-memory", "load")
+	}
+}
+
+// Load tests boot the application and take a while, run them on demand
+val loadTest by tasks.registering(Test::class) {
+	description = "Runs the load tagged tests."
+	group = "verification"
+	testClassesDirs = sourceSets.test.get().output.classesDirs
+	classpath = sourceSets.test.get().runtimeClasspath
+	useJUnitPlatform {
+		includeTags("load")
+	}
+	// -Ploadtest.rate=400 and the like are passed on to the load tests
+	project.properties.filterKeys { it.startsWith("loadtest.") }
+		.forEach { (key, value) -> systemProperty(key, value.toString()) }
+	testLogging {
+		showStandardStreams = true
+	}
+}
+
+// Streaming tests run with a heap much smaller than the data they push through
+val lowMemoryTest by tasks.registering(Test::class) {
+	description = "Runs the low-memory tagged tests with a 32 MB heap."
+	group = "verification"
+	testClassesDirs = sourceSets.test.get().output.classesDirs
+	classpath = sourceSets.test.get().runtimeClasspath
+	maxHeapSize = "32m"
+	useJUnitPlatform {
+		includeTags("low-memory")
+	}
+}
+
+tasks.check {
+	dependsOn(lowMemoryTest)
+}
+
+// ./gradlew jmh [-PjmhIncludes=DailySummary] writes build/results/jmh/results.json,
+// keep a copy per commit to compare runs
+jmh {
+	warmupIterations = 2
+	iterations = 5
+	fork = 1
+	resultFormat = "JSON"
+	resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+	(project.findProperty("jmhIncludes") as String?)?.let { includes = listOf(it) }
+}
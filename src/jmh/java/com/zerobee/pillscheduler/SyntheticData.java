@@ -0,0 +1,97 @@
+package com.zerobee.pillscheduler;
+
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.entity.User;
+import com.zerobee.pillscheduler.enums.Flag;
+import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.enums.ReminderType;
+import com.zerobee.pillscheduler.enums.Status;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic in-memory users, reminders, doses and taken records for the benchmarks,
+ * shaped like a real account: a mix of frequencies with one to three doses per reminder.
+ */
+public final class SyntheticData {
+    
+    private static final String[] CUSTOM_DAYS = {
+            "MONDAY, WEDNESDAY, FRIDAY",
+            "TUESDAY,THURSDAY",
+            "SATURDAY, SUNDAY"
+    };
+    
+    private SyntheticData() {
+    }
+    
+    public static User user() {
+        return User.builder()
+                .id("benchmark-user")
+                .name("Benchmark User")
+                .email("benchmark@example.com")
+                .build();
+    }
+    
+    /**
+     * Reminders with ids from 1 and dose ids from 1, all starting on the given date
+     */
+    public static List<Reminder> reminders(User user, int reminderCount, LocalDate startDate) {
+        List<Reminder> reminders = new ArrayList<>(reminderCount);
+        int doseId = 1;
+        for (int i = 0; i < reminderCount; i++) {
+            Frequency frequency = Frequency.values()[i % Frequency.values().length];
+            Reminder reminder = Reminder.builder()
+                    .id(i + 1)
+                    .r_name("Reminder " + (i + 1))
+                    .r_type(ReminderType.MEDICINE)
+                    .category("tablet")
+                    .frequency(frequency)
+                    .days(frequency == Frequency.CUSTOM ? CUSTOM_DAYS[i % CUSTOM_DAYS.length] : null)
+                    .start_date_time(startDate.atTime(8, 0))
+                    .flag(Flag.ACTIVE)
+                    .status(Status.NOT_TAKEN)
+                    .user(user)
+                    .build();
+            
+            int doseCount = 1 + i % 3;
+            List<Dose> doses = new ArrayList<>(doseCount);
+            for (int d = 0; d < doseCount; d++) {
+                doses.add(Dose.builder()
+                        .id(doseId++)
+                        .doseTime(LocalTime.of(8 + d * 6, 0))
+                        .taken(false)
+                        .reminder(reminder)
+                        .build());
+            }
+            reminder.setDoses(doses);
+            reminder.setRemaining_doses(doseCount);
+            reminders.add(reminder);
+        }
+        return reminders;
+    }
+    
+    /**
+     * Taken records for roughly the given share of every dose's days between the two dates
+     */
+    public static List<DoseTakenEntry> takenEntries(List<Reminder> reminders, LocalDate startDate,
+                                                    LocalDate endDate, double adherence) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<DoseTakenEntry> entries = new ArrayList<>();
+        for (Reminder reminder : reminders) {
+            for (Dose dose : reminder.getDoses()) {
+                for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                    if (random.nextDouble() < adherence) {
+                        entries.add(new DoseTakenEntry(dose.getId(), date));
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,37 @@
+package com.zerobee.pillscheduler.entity;
+
+import com.zerobee.pillscheduler.SyntheticData;
+import com.zerobee.pillscheduler.dto.ReminderDTO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping cost of a reminder list response
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReminderMappingBenchmark {
+    
+    @Param({"10", "200"})
+    private int reminderCount;
+    
+    private List<Reminder> reminders;
+    
+    @Setup
+    public void setUp() {
+        reminders = SyntheticData.reminders(SyntheticData.user(), reminderCount, LocalDate.of(2024, 1, 1));
+    }
+    
+    @Benchmark
+    public void toReminderDTO(Blackhole blackhole) {
+        for (Reminder reminder : reminders) {
+            ReminderDTO reminderDTO = reminder.toReminderDTO();
+            blackhole.consume(reminderDTO);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.SyntheticData;
+import com.zerobee.pillscheduler.dto.AdherenceAnalyticsDTO;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory part of the adherence analytics endpoint over multi-year ranges, building the taken
+ * bitsets included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AdherenceAnalyticsBenchmark {
+    
+    @Param({"6", "30"})
+    private int reminderCount;
+    
+    @Param({"90", "365", "1826"})
+    private int days;
+    
+    private List<Reminder> reminders;
+    private List<DoseTakenEntry> takenEntries;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    
+    @Setup
+    public void setUp() {
+        LocalDate reminderStart = LocalDate.of(2019, 1, 1);
+        reminders = SyntheticData.reminders(SyntheticData.user(), reminderCount, reminderStart);
+        endDate = LocalDate.of(2024, 12, 31);
+        startDate = endDate.minusDays(days - 1);
+        takenEntries = SyntheticData.takenEntries(reminders, startDate, endDate, 0.8);
+    }
+    
+    @Benchmark
+    public AdherenceAnalyticsDTO analyzeRange() {
+        return new AdherenceAnalyticsEngine(reminders, takenEntries, startDate, endDate).analyze(endDate);
+    }
+}
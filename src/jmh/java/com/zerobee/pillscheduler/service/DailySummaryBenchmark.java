@@ -0,0 +1,46 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.SyntheticData;
+import com.zerobee.pillscheduler.dto.DailyReminderSummaryDTO;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory assembly of daily summaries, i.e. everything getDailySummary and fetchReminderHistory
+ * do after their queries returned.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DailySummaryBenchmark {
+    
+    @Param({"6", "30"})
+    private int reminderCount;
+    
+    @Param({"1", "90", "365"})
+    private int days;
+    
+    private List<Reminder> reminders;
+    private List<DoseTakenEntry> takenEntries;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    
+    @Setup
+    public void setUp() {
+        LocalDate reminderStart = LocalDate.of(2023, 1, 1);
+        reminders = SyntheticData.reminders(SyntheticData.user(), reminderCount, reminderStart);
+        endDate = LocalDate.of(2024, 12, 31);
+        startDate = endDate.minusDays(days - 1);
+        takenEntries = SyntheticData.takenEntries(reminders, startDate, endDate, 0.8);
+    }
+    
+    @Benchmark
+    public List<DailyReminderSummaryDTO> summarizeRange() {
+        return new ReminderHistoryEngine(reminders, takenEntries).summarize(startDate, endDate);
+    }
+}
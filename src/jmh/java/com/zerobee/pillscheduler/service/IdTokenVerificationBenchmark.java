@@ -0,0 +1,63 @@
+package com.zerobee.pillscheduler.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local ID token verification: signature check and claim checks of one token against a key set
+ * generated on the spot, i.e. the cost of a token cache miss without the Firebase round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IdTokenVerificationBenchmark {
+    
+    private static final String PROJECT_ID = "pillscheduler-benchmark";
+    private static final String KEY_ID = "benchmark-key";
+    
+    private OfflineIdTokenVerifier verifier;
+    private String token;
+    
+    @Setup
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        
+        Instant now = Instant.now();
+        SigningKeys keys = new SigningKeys(Map.of(KEY_ID, keyPair.getPublic()), now.plus(Duration.ofDays(1)));
+        verifier = new OfflineIdTokenVerifier(PROJECT_ID, () -> keys, idToken -> {
+            throw new IllegalStateException("Fallback called");
+        }, Duration.ofMinutes(1), Clock.systemUTC());
+        verifier.refresh();
+        
+        String header = "{\"alg\":\"RS256\",\"kid\":\"" + KEY_ID + "\",\"typ\":\"JWT\"}";
+        String claims = "{\"iss\":\"https://securetoken.google.com/" + PROJECT_ID + "\",\"aud\":\"" + PROJECT_ID
+                + "\",\"sub\":\"benchmark-user\",\"iat\":" + now.getEpochSecond()
+                + ",\"exp\":" + now.plus(Duration.ofDays(1)).getEpochSecond() + "}";
+        String signingInput = encode(header) + "." + encode(claims);
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        token = signingInput + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature.sign());
+    }
+    
+    @Benchmark
+    public VerifiedIdToken verify() {
+        return verifier.verify(token);
+    }
+    
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
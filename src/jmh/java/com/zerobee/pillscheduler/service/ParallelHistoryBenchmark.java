@@ -0,0 +1,58 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.SyntheticData;
+import com.zerobee.pillscheduler.dto.DailyReminderSummaryDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential against fork-join assembly of a history with statuses, to find the range from which
+ * pillscheduler.history.parallel-threshold-days should send histories to the pool. The threshold
+ * of the parallel variant is 1 day, so every range longer than a chunk is split.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParallelHistoryBenchmark {
+    
+    @Param({"6", "30"})
+    private int reminderCount;
+    
+    @Param({"30", "90", "180", "365", "730"})
+    private int days;
+    
+    @Param({"31"})
+    private int chunkDays;
+    
+    private ReminderHistoryEngine engine;
+    private ParallelHistoryAssembler assembler;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    
+    @Setup
+    public void setUp() {
+        var reminders = SyntheticData.reminders(SyntheticData.user(), reminderCount, LocalDate.of(2022, 1, 1));
+        endDate = LocalDate.of(2024, 12, 31);
+        startDate = endDate.minusDays(days - 1);
+        engine = new ReminderHistoryEngine(reminders, SyntheticData.takenEntries(reminders, startDate, endDate, 0.8));
+        assembler = new ParallelHistoryAssembler(1, chunkDays, 0);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        assembler.stop();
+    }
+    
+    @Benchmark
+    public List<DailyReminderSummaryDTO> sequential() {
+        return engine.summarize(startDate, endDate);
+    }
+    
+    @Benchmark
+    public List<DailyReminderSummaryDTO> forkJoin() {
+        return assembler.summarize(engine, startDate, endDate);
+    }
+}
@@ -0,0 +1,96 @@
+package com.zerobee.pillscheduler.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.zerobee.pillscheduler.SyntheticData;
+import com.zerobee.pillscheduler.dto.CustomResponse;
+import com.zerobee.pillscheduler.dto.DoseDTO;
+import com.zerobee.pillscheduler.dto.ReminderDTO;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.enums.ReminderView;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a /reminder/fetch response per view, for a user three years into 20
+ * reminders, with the mapper configured like the application's with and without Blackbird.
+ * The serialized size of each view is reported through the {@link ResponseSize} counters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReminderViewSerializationBenchmark {
+    
+    @Param({"SUMMARY", "STANDARD", "FULL"})
+    private ReminderView view;
+    
+    @Param({"false", "true"})
+    private boolean blackbird;
+    
+    private ObjectMapper objectMapper;
+    private CustomResponse<List<ReminderDTO>> response;
+    
+    /**
+     * Secondary results of the benchmark, summed over the measurement: bytes divided by
+     * serializations is the size of one response
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ResponseSize {
+        public long bytes;
+        public long serializations;
+        
+        @Setup(Level.Iteration)
+        public void clear() {
+            bytes = 0;
+            serializations = 0;
+        }
+    }
+    
+    @Setup
+    public void setUp() {
+        JsonMapper.Builder builder = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .filterProvider(new SimpleFilterProvider().setFailOnUnknownId(false));
+        if (blackbird) {
+            builder.addModule(new BlackbirdModule());
+        }
+        objectMapper = builder.build();
+        
+        LocalDate today = LocalDate.of(2024, 12, 31);
+        LocalDate startDate = today.minusYears(3);
+        List<Reminder> reminders = SyntheticData.reminders(SyntheticData.user(), 20, startDate);
+        Map<Integer, List<LocalDate>> takenDatesByDose = new HashMap<>();
+        for (DoseTakenEntry entry : SyntheticData.takenEntries(reminders, startDate, today, 0.8)) {
+            takenDatesByDose.computeIfAbsent(entry.doseId(), id -> new ArrayList<>()).add(entry.date());
+        }
+        
+        // What DoseStatusLoader fills in for the view
+        List<ReminderDTO> reminderDTOs = reminders.stream().map(Reminder::toReminderDTO).toList();
+        for (ReminderDTO reminderDTO : reminderDTOs) {
+            for (DoseDTO doseDTO : reminderDTO.getDoses()) {
+                List<LocalDate> takenDates = takenDatesByDose.getOrDefault(doseDTO.getId(), List.of());
+                doseDTO.setTaken(view == ReminderView.SUMMARY ? null : takenDates.contains(today));
+                doseDTO.setTakenDates(view == ReminderView.FULL ? takenDates : null);
+            }
+        }
+        response = new CustomResponse<>(null, "Reminders fetched successfully", reminderDTOs);
+    }
+    
+    @Benchmark
+    public byte[] serialize(ResponseSize size) throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(response);
+        size.bytes += json.length;
+        size.serializations++;
+        return json;
+    }
+}
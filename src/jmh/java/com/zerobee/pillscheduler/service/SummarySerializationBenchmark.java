@@ -0,0 +1,49 @@
+package com.zerobee.pillscheduler.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.zerobee.pillscheduler.SyntheticData;
+import com.zerobee.pillscheduler.dto.DailyReminderSummaryDTO;
+import com.zerobee.pillscheduler.entity.Reminder;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a history response, with the mapper configured like the Spring Boot
+ * one (java.time support, ISO dates instead of timestamps)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SummarySerializationBenchmark {
+    
+    @Param({"1", "90"})
+    private int days;
+    
+    private ObjectMapper objectMapper;
+    private List<DailyReminderSummaryDTO> history;
+    
+    @Setup
+    public void setUp() {
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        
+        LocalDate endDate = LocalDate.of(2024, 12, 31);
+        LocalDate startDate = endDate.minusDays(days - 1);
+        List<Reminder> reminders = SyntheticData.reminders(SyntheticData.user(), 6, startDate);
+        history = new ReminderHistoryEngine(reminders, SyntheticData.takenEntries(reminders, startDate, endDate, 0.8))
+                .summarize(startDate, endDate);
+    }
+    
+    @Benchmark
+    public byte[] serializeHistory() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(history);
+    }
+}
@@ -0,0 +1,96 @@
+package com.zerobee.pillscheduler.utils;
+
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.enums.Frequency;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compiled {@link RecurrenceRule} with the string-parsing applicability check it
+ * replaced, evaluated the way a history request does: every reminder against every day of a range.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecurrenceRuleBenchmark {
+    
+    @Param({"90", "365"})
+    private int days;
+    
+    private List<Reminder> reminders;
+    private LocalDate startDate;
+    
+    @Setup
+    public void setUp() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 8, 0);
+        reminders = List.of(
+                reminder(Frequency.DAILY, null, start),
+                reminder(Frequency.ALTERNATE_DAYS, null, start),
+                reminder(Frequency.CUSTOM, "MONDAY, WEDNESDAY, FRIDAY", start),
+                reminder(Frequency.CUSTOM, "tuesday,thursday,saturday,sunday", start),
+                reminder(Frequency.DAILY, null, start.plusMonths(2)),
+                reminder(Frequency.CUSTOM, "SUNDAY", start));
+        startDate = LocalDate.of(2024, 3, 1);
+    }
+    
+    @Benchmark
+    public void legacyStringParsing(Blackhole blackhole) {
+        for (int day = 0; day < days; day++) {
+            LocalDate date = startDate.plusDays(day);
+            for (Reminder reminder : reminders) {
+                blackhole.consume(legacyIsApplicable(reminder, date));
+            }
+        }
+    }
+    
+    @Benchmark
+    public void compiledRule(Blackhole blackhole) {
+        List<RecurrenceRule> rules = reminders.stream().map(RecurrenceRule::of).toList();
+        long first = startDate.toEpochDay();
+        for (long epochDay = first; epochDay < first + days; epochDay++) {
+            for (RecurrenceRule rule : rules) {
+                blackhole.consume(rule.appliesOn(epochDay));
+            }
+        }
+    }
+    
+    private static Reminder reminder(Frequency frequency, String days, LocalDateTime start) {
+        return Reminder.builder()
+                .frequency(frequency)
+                .days(days)
+                .start_date_time(start)
+                .build();
+    }
+    
+    // The implementation RecurrenceRule replaced, kept verbatim as the baseline
+    private static boolean legacyIsApplicable(Reminder reminder, LocalDate date) {
+        LocalDate startDate = reminder.getStart_date_time().toLocalDate();
+        LocalDate endDate = reminder.getEnd_date_time() != null ?
+                reminder.getEnd_date_time().toLocalDate() : LocalDate.MAX;
+        
+        if (date.isBefore(startDate) || date.isAfter(endDate)) {
+            return false;
+        }
+        
+        return switch (reminder.getFrequency()) {
+            case DAILY -> true;
+            case ALTERNATE_DAYS -> {
+                long daysBetween = startDate.until(date).getDays();
+                yield daysBetween % 2 == 0;
+            }
+            case CUSTOM -> {
+                DayOfWeek dayOfWeek = date.getDayOfWeek();
+                if (reminder.getDays() == null) yield false;
+                yield Arrays.stream(reminder.getDays().split(","))
+                        .anyMatch(day -> day.trim().equalsIgnoreCase(dayOfWeek.name()));
+            }
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.zerobee.pillscheduler.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+/**
+ * Ships the application's tuning defaults. Property sources added this way have the lowest
+ * precedence, so anything set in application.properties or the environment overrides them.
+ */
+@Configuration
+@PropertySource("classpath:pillscheduler-defaults.properties")
+public class DefaultPropertiesConfig {
+}
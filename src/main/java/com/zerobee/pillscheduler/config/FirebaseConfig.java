@@ -3,13 +3,24 @@ package com.zerobee.pillscheduler.config;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
+import com.google.firebase.ImplFirebaseTrampolines;
+import com.zerobee.pillscheduler.metrics.FirebaseCallMetrics;
+import com.zerobee.pillscheduler.service.FirebaseIdTokenVerifier;
+import com.zerobee.pillscheduler.service.GoogleSigningKeySource;
+import com.zerobee.pillscheduler.service.OfflineIdTokenVerifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.core.io.ClassPathResource;
 
 import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
 
 @Configuration
+@ConditionalOnProperty(name = "pillscheduler.firebase.enabled", havingValue = "true", matchIfMissing = true)
 public class FirebaseConfig {
     
     String FIREBASE_SERVICE_ACCOUNT_JSON_PATH = "pillscheduler-firebase-adminsdk-fbsvc-488117bd65.json";
@@ -22,4 +33,28 @@ public class FirebaseConfig {
                 .build();
         return FirebaseApp.initializeApp(options);
     }
+    
+    /**
+     * Verifies ID tokens locally against Google's signing keys, the Firebase SDK only handles the
+     * tokens it cannot decide on. pillscheduler.auth.offline-verification=false verifies every
+     * token with the SDK instead.
+     */
+    @Bean(destroyMethod = "close")
+    @Primary
+    @ConditionalOnProperty(name = "pillscheduler.auth.offline-verification", havingValue = "true", matchIfMissing = true)
+    public OfflineIdTokenVerifier offlineIdTokenVerifier(
+            FirebaseApp firebaseApp,
+            FirebaseIdTokenVerifier firebaseIdTokenVerifier,
+            FirebaseCallMetrics firebaseCallMetrics,
+            @Value("${pillscheduler.auth.project-id:}") String projectId,
+            @Value("${pillscheduler.auth.clock-skew:PT1M}") Duration clockSkew) {
+        String project = projectId.isBlank() ? ImplFirebaseTrampolines.getProjectId(firebaseApp) : projectId;
+        if (project == null || project.isBlank()) {
+            throw new IllegalStateException("No Firebase project id found, set pillscheduler.auth.project-id");
+        }
+        OfflineIdTokenVerifier verifier = new OfflineIdTokenVerifier(project,
+                new GoogleSigningKeySource(firebaseCallMetrics), firebaseIdTokenVerifier, clockSkew, Clock.systemUTC());
+        verifier.start();
+        return verifier;
+    }
 }
@@ -0,0 +1,29 @@
+package com.zerobee.pillscheduler.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Customizes the ObjectMapper Spring Boot builds for the responses. Blackbird replaces the
+ * reflective getter calls of the DTO serializers with generated lambdas. The filter provider lets
+ * the DTOs behind the fields= selector serialize in full wherever no selection is applied.
+ */
+@Configuration
+public class JacksonConfig {
+    
+    @Bean
+    @ConditionalOnProperty(name = "pillscheduler.json.blackbird", havingValue = "true", matchIfMissing = true)
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+    
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer fieldSelectionFilters() {
+        return builder -> builder.filters(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+}
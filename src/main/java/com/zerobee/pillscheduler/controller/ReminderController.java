@@ -1,14 +1,31 @@
 package com.zerobee.pillscheduler.controller;
 
+import com.zerobee.pillscheduler.dto.AdherenceAnalyticsDTO;
+import com.zerobee.pillscheduler.dto.BulkMarkResultDTO;
 import com.zerobee.pillscheduler.dto.CustomResponse;
 import com.zerobee.pillscheduler.dto.DailyReminderSummaryDTO;
+import com.zerobee.pillscheduler.dto.DoseMarkOperationDTO;
 import com.zerobee.pillscheduler.dto.ReminderDTO;
+import com.zerobee.pillscheduler.dto.ReminderFieldSelection;
+import com.zerobee.pillscheduler.dto.ReminderPageDTO;
+import com.zerobee.pillscheduler.dto.ReminderSyncDTO;
+import com.zerobee.pillscheduler.enums.ExportFormat;
 import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.enums.ReminderView;
+import com.zerobee.pillscheduler.service.AdherenceAnalyticsService;
+import com.zerobee.pillscheduler.service.DoseHistoryExportService;
 import com.zerobee.pillscheduler.service.ReminderService;
+import com.zerobee.pillscheduler.service.ReminderSyncService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -19,6 +36,9 @@ import java.util.List;
 public class ReminderController {
     
     private final ReminderService reminderService;
+    private final DoseHistoryExportService doseHistoryExportService;
+    private final ReminderSyncService reminderSyncService;
+    private final AdherenceAnalyticsService adherenceAnalyticsService;
     
     @PostMapping("/create")
     public CustomResponse<ReminderDTO> createReminder(
@@ -33,46 +53,104 @@ public class ReminderController {
         );
     }
     
+    /**
+     * Answers 304 when If-None-Match carries the current ETag. The taken flags are those of today,
+     * so the ETag changes at midnight as well.
+     * The reminder reads take view=SUMMARY|STANDARD|FULL (default FULL) and fields=, see
+     * {@link ReminderView} and {@link ReminderFieldSelection}.
+     */
     @GetMapping("/fetch")
-    public CustomResponse<List<ReminderDTO>> fetchAllReminders(
-            @RequestHeader("Authorization") String token) {
+    public MappingJacksonValue fetchAllReminders(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "FULL") ReminderView view,
+            @RequestParam(value = "fields", required = false) String fields,
+            WebRequest request) {
         
-        List<ReminderDTO> reminders = reminderService.fetchRemindersForUser(token);
-        return new CustomResponse<>(
+        ReminderFieldSelection selection = ReminderFieldSelection.parse(fields);
+        ReminderView effectiveView = selection.narrow(view);
+        if (request.checkNotModified(reminderService.etag(token, "fetch", LocalDate.now(), effectiveView, selection.key()))) {
+            return null;
+        }
+        List<ReminderDTO> reminders = reminderService.fetchRemindersForUser(token, effectiveView);
+        return select(new CustomResponse<>(
                 HttpStatus.OK,
                 "Reminders fetched successfully",
                 reminders
+        ), selection);
+    }
+    
+    /**
+     * Keyset paginated listing: pass the returned nextCursor as cursor to get the following page
+     */
+    @GetMapping("/fetch/page")
+    public MappingJacksonValue fetchReminderPage(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "flag", required = false) String flag,
+            @RequestParam(defaultValue = "FULL") ReminderView view,
+            @RequestParam(value = "fields", required = false) String fields
+    ) {
+        ReminderFieldSelection selection = ReminderFieldSelection.parse(fields);
+        ReminderPageDTO page = reminderService.fetchReminderPage(token, cursor, size, flag, selection.narrow(view));
+        return select(new CustomResponse<>(
+                HttpStatus.OK,
+                "Reminders fetched successfully",
+                page
+        ), selection);
+    }
+    
+    /**
+     * Delta sync: without cursor the current state, otherwise the reminder, tombstone and dose
+     * mark changes since the cursor. Pass the returned nextCursor on the next sync.
+     */
+    @GetMapping("/sync")
+    public CustomResponse<ReminderSyncDTO> sync(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(value = "cursor", required = false) String cursor
+    ) {
+        ReminderSyncDTO changes = reminderSyncService.sync(token, cursor);
+        return new CustomResponse<>(
+                HttpStatus.OK,
+                "Reminders synced successfully",
+                changes
         );
     }
     
     @GetMapping("/fetch/{id}")
-    public CustomResponse<ReminderDTO> fetchReminderById(
+    public MappingJacksonValue fetchReminderById(
             @RequestHeader("Authorization") String token,
-            @PathVariable("id") Integer id
+            @PathVariable("id") Integer id,
+            @RequestParam(defaultValue = "FULL") ReminderView view,
+            @RequestParam(value = "fields", required = false) String fields
     ) {
-        ReminderDTO reminderDTO = reminderService.fetchReminderById(token, id);
-        return new CustomResponse<>(
+        ReminderFieldSelection selection = ReminderFieldSelection.parse(fields);
+        ReminderDTO reminderDTO = reminderService.fetchReminderById(token, id, selection.narrow(view));
+        return select(new CustomResponse<>(
                 HttpStatus.OK,
                 "Reminder fetched successfully",
                 reminderDTO
-        );
+        ), selection);
     }
     
     @GetMapping("/fetch/filters")
-    public CustomResponse<List<ReminderDTO>> fetchFilteredReminders(
+    public MappingJacksonValue fetchFilteredReminders(
             @RequestHeader("Authorization") String token,
             @RequestParam("flag") String flag,
             @RequestParam("status") String status,
-            @RequestParam("frequency") Frequency frequency
+            @RequestParam("frequency") Frequency frequency,
+            @RequestParam(defaultValue = "FULL") ReminderView view,
+            @RequestParam(value = "fields", required = false) String fields
     ) {
+        ReminderFieldSelection selection = ReminderFieldSelection.parse(fields);
         List<ReminderDTO> activeFrequencyReminders = reminderService.fetchActiveRemindersByFrequency(
-                token, flag, status, frequency
+                token, flag, status, frequency, selection.narrow(view)
         );
-        return new CustomResponse<>(
+        return select(new CustomResponse<>(
                 HttpStatus.OK,
                 "Filtered Reminders Fetched Successfully!",
                 activeFrequencyReminders
-        );
+        ), selection);
     }
     
     @DeleteMapping("/delete/{id}")
@@ -118,34 +196,62 @@ public class ReminderController {
         );
     }
     
+    /**
+     * Applies many mark taken / not taken operations at once, e.g. when a client syncs after being offline
+     */
+    @PutMapping("/mark-bulk")
+    public CustomResponse<BulkMarkResultDTO> markDosesInBulk(
+            @RequestHeader("Authorization") String token,
+            @RequestBody List<DoseMarkOperationDTO> operations
+    ) {
+        BulkMarkResultDTO result = reminderService.markDosesInBulk(token, operations);
+        return new CustomResponse<>(
+                HttpStatus.OK,
+                "Doses marked successfully.",
+                result
+        );
+    }
+    
     // NEW ENDPOINTS FOR DAY-WISE TRACKING
     
     /**
-     * Retrieves all reminders for a specific date with their dose status
+     * Retrieves all reminders for a specific date with their dose status.
+     * Answers 304 when If-None-Match carries the current ETag.
      */
     @GetMapping("/by-date/{date}")
-    public CustomResponse<List<ReminderDTO>> getRemindersForDate(
+    public MappingJacksonValue getRemindersForDate(
             @RequestHeader("Authorization") String token,
-            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date,
+            @RequestParam(defaultValue = "FULL") ReminderView view,
+            @RequestParam(value = "fields", required = false) String fields,
+            WebRequest request
     ) {
-        List<ReminderDTO> reminders = reminderService.fetchRemindersForDate(token, date);
-        return new CustomResponse<>(
+        ReminderFieldSelection selection = ReminderFieldSelection.parse(fields);
+        ReminderView effectiveView = selection.narrow(view);
+        if (request.checkNotModified(reminderService.etag(token, "by-date", date, effectiveView, selection.key()))) {
+            return null;
+        }
+        List<ReminderDTO> reminders = reminderService.fetchRemindersForDate(token, date, effectiveView);
+        return select(new CustomResponse<>(
                 HttpStatus.OK,
                 "Reminders for date " + date + " fetched successfully",
                 reminders
-        );
+        ), selection);
     }
     
     /**
-     * Retrieves daily tracking summary for a date range
+     * Retrieves daily tracking summary for a date range.
+     * includeStatuses=false returns only the counters, read from the adherence rollup.
      */
     @GetMapping("/history")
     public CustomResponse<List<DailyReminderSummaryDTO>> getReminderHistory(
             @RequestHeader("Authorization") String token,
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
-            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+            @RequestParam(defaultValue = "true") boolean includeStatuses
     ) {
-        List<DailyReminderSummaryDTO> history = reminderService.fetchReminderHistory(token, startDate, endDate);
+        List<DailyReminderSummaryDTO> history = reminderService.fetchReminderHistory(
+                token, startDate, endDate, includeStatuses);
         return new CustomResponse<>(
                 HttpStatus.OK,
                 "Reminder history fetched successfully",
@@ -154,18 +260,69 @@ public class ReminderController {
     }
     
     /**
-     * Get a specific day's summary (total reminders, taken/missed doses)
+     * Get a specific day's summary (total reminders, taken/missed doses).
+     * Answers 304 when If-None-Match carries the current ETag.
      */
     @GetMapping("/daily-summary/{date}")
     public CustomResponse<DailyReminderSummaryDTO> getDailySummary(
             @RequestHeader("Authorization") String token,
-            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date
+            @PathVariable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date,
+            @RequestParam(defaultValue = "true") boolean includeStatuses,
+            WebRequest request
     ) {
-        DailyReminderSummaryDTO summary = reminderService.getDailySummary(token, date);
+        if (request.checkNotModified(reminderService.etag(token, "daily-summary", date, includeStatuses))) {
+            return null;
+        }
+        DailyReminderSummaryDTO summary = reminderService.getDailySummary(token, date, includeStatuses);
         return new CustomResponse<>(
                 HttpStatus.OK,
                 "Daily summary for " + date + " fetched successfully",
                 summary
         );
     }
-}
\ No newline at end of file
+    
+    /**
+     * Adherence analytics of a date range: current and longest streak, weekly and monthly
+     * adherence, adherence per reminder and missed doses by hour of day. Defaults to the last 90 days.
+     */
+    @GetMapping("/analytics")
+    public CustomResponse<AdherenceAnalyticsDTO> getAdherenceAnalytics(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+            WebRequest request
+    ) {
+        // Today is part of the tag: the default range and the streaks move with it
+        if (request.checkNotModified(reminderService.etag(token, "analytics", startDate, endDate, LocalDate.now()))) {
+            return null;
+        }
+        AdherenceAnalyticsDTO analytics = adherenceAnalyticsService.analyze(token, startDate, endDate);
+        return new CustomResponse<>(
+                HttpStatus.OK,
+                "Adherence analytics fetched successfully",
+                analytics
+        );
+    }
+    
+    /**
+     * Streams the user's complete dose taken history as NDJSON (default) or CSV
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportDoseHistory(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format
+    ) {
+        StreamingResponseBody body = doseHistoryExportService.export(token, format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"dose-history." + format.getFileExtension() + "\"")
+                .body(body);
+    }
+    
+    private static MappingJacksonValue select(CustomResponse<?> response, ReminderFieldSelection selection) {
+        MappingJacksonValue value = new MappingJacksonValue(response);
+        value.setFilters(selection.filters());
+        return value;
+    }
+}
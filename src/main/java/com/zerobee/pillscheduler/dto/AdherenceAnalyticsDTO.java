@@ -0,0 +1,94 @@
+package com.zerobee.pillscheduler.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO representing a user's adherence over a date range
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdherenceAnalyticsDTO {
+    
+    private LocalDate startDate;
+    
+    // Last day analysed, never after today
+    private LocalDate endDate;
+    
+    private int scheduledDoses;
+    
+    private int takenDoses;
+    
+    // Adherence percentage (takenDoses/scheduledDoses * 100)
+    private double adherencePercentage;
+    
+    // Days in a row, up to the end date, on which every scheduled dose was taken, counted back past
+    // the start date if the run began earlier.
+    // Days without scheduled doses do not break a streak, and neither does an unfinished today.
+    private int currentStreak;
+    
+    // Longest such run within the range, or the current streak if that is longer
+    private int longestStreak;
+    
+    // Monday to Sunday weeks, the first and last one cut to the range
+    private List<PeriodAdherenceDTO> weekly;
+    
+    // Calendar months, the first and last one cut to the range
+    private List<PeriodAdherenceDTO> monthly;
+    
+    private List<ReminderAdherenceDTO> reminders;
+    
+    // Missed doses by the hour of their dose time, only hours with scheduled doses
+    private List<HourlyMissesDTO> missesByHour;
+    
+    /**
+     * Nested DTO to show adherence over a week or month
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PeriodAdherenceDTO {
+        private LocalDate startDate;
+        private LocalDate endDate;
+        private int scheduledDoses;
+        private int takenDoses;
+        private double adherencePercentage;
+    }
+    
+    /**
+     * Nested DTO to show adherence of one reminder over the range
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReminderAdherenceDTO {
+        private Integer reminderId;
+        private String reminderName;
+        private int scheduledDoses;
+        private int takenDoses;
+        private double adherencePercentage;
+    }
+    
+    /**
+     * Nested DTO to show how often doses due in one hour of the day were missed
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HourlyMissesDTO {
+        private int hour;
+        private int scheduledDoses;
+        private int missedDoses;
+        private double missPercentage;
+    }
+}
@@ -0,0 +1,23 @@
+package com.zerobee.pillscheduler.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkMarkResultDTO {
+    // Operations received, before duplicates for the same dose and date were collapsed
+    private int requested;
+    
+    // Dose taken records created
+    private int marked;
+    
+    // Dose taken records removed
+    private int unmarked;
+    
+    // Operations that matched the stored state already
+    private int unchanged;
+}
@@ -1,5 +1,7 @@
 package com.zerobee.pillscheduler.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.zerobee.pillscheduler.entity.Dose;
 import com.zerobee.pillscheduler.entity.Reminder;
 import lombok.AllArgsConstructor;
@@ -15,14 +17,17 @@ import java.util.List;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonFilter(ReminderFieldSelection.DOSE_FILTER)
 public class DoseDTO {
     private Integer id;
     private LocalTime doseTime;
     
-    // Indicates if the dose is taken for the current context date
+    // Indicates if the dose is taken for the current context date, left out of the summary view
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Boolean taken;
     
-    // Complete history of dates when this dose was taken
+    // Complete history of dates when this dose was taken, only in the full view
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<LocalDate> takenDates;
     
     public Dose toDose(Reminder reminder) {
@@ -0,0 +1,26 @@
+package com.zerobee.pillscheduler.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * One entry of a bulk mark request: mark the dose as taken or not taken on the given date
+ */
+@Getter
+@Setter
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoseMarkOperationDTO {
+    private Integer reminderId;
+    private Integer doseId;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate date;
+    
+    // Required, a missing value must not read as not taken
+    private Boolean taken;
+}
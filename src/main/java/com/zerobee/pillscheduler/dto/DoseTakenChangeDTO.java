@@ -0,0 +1,20 @@
+package com.zerobee.pillscheduler.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoseTakenChangeDTO {
+    private Integer reminderId;
+    private Integer doseId;
+    private LocalDate date;
+    
+    // The dose's state on the date after the change
+    private boolean taken;
+}
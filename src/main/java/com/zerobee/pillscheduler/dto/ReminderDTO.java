@@ -1,5 +1,6 @@
 package com.zerobee.pillscheduler.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.zerobee.pillscheduler.entity.Reminder;
 import com.zerobee.pillscheduler.enums.Flag;
 import com.zerobee.pillscheduler.enums.Frequency;
@@ -17,6 +18,7 @@ import java.util.stream.Collectors;
 @ToString
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonFilter(ReminderFieldSelection.REMINDER_FILTER)
 public class ReminderDTO {
     private Integer id;
     private String r_name;
@@ -0,0 +1,107 @@
+package com.zerobee.pillscheduler.dto;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.zerobee.pillscheduler.enums.ReminderView;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The fields= selector of the reminder endpoints: a comma separated list of {@link ReminderDTO}
+ * properties, and of {@link DoseDTO} properties prefixed with "doses.", e.g.
+ * "id,r_name,doses.doseTime,doses.taken". Without dose properties the doses keep every property
+ * of the view, dose properties the view does not return are rejected. An empty selection keeps
+ * everything.
+ */
+public record ReminderFieldSelection(Set<String> reminderFields, Set<String> doseFields) {
+    
+    public static final String REMINDER_FILTER = "reminderFields";
+    public static final String DOSE_FILTER = "doseFields";
+    
+    private static final String DOSE_PREFIX = "doses.";
+    private static final Set<String> REMINDER_PROPERTIES = Set.of("id", "r_name", "r_photo", "r_type", "category",
+            "doses", "remaining_doses", "frequency", "days", "start_date_time", "end_date_time", "notes", "flag",
+            "status", "user");
+    private static final Set<String> DOSE_PROPERTIES = Set.of("id", "doseTime", "taken", "takenDates");
+    
+    public static final ReminderFieldSelection ALL = new ReminderFieldSelection(Set.of(), Set.of());
+    
+    public static ReminderFieldSelection parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<String> reminderFields = new TreeSet<>();
+        Set<String> doseFields = new TreeSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.startsWith(DOSE_PREFIX) && DOSE_PROPERTIES.contains(name.substring(DOSE_PREFIX.length()))) {
+                reminderFields.add("doses");
+                doseFields.add(name.substring(DOSE_PREFIX.length()));
+            } else if (REMINDER_PROPERTIES.contains(name)) {
+                reminderFields.add(name);
+            } else if (!name.isEmpty()) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+        }
+        return new ReminderFieldSelection(reminderFields, doseFields);
+    }
+    
+    /**
+     * The smallest view that still has every selected field, never more than the requested one.
+     * Throws if a selected dose field is not part of the requested view.
+     */
+    public ReminderView narrow(ReminderView view) {
+        if (reminderFields.isEmpty()) {
+            return view;
+        }
+        if (!reminderFields.contains("doses")) {
+            return ReminderView.SUMMARY;
+        }
+        if (doseFields.isEmpty()) {
+            return view;
+        }
+        if (doseFields.contains("takenDates")) {
+            return require(view, ReminderView.FULL, "takenDates");
+        }
+        if (doseFields.contains("taken")) {
+            return require(view, ReminderView.STANDARD, "taken");
+        }
+        return ReminderView.SUMMARY;
+    }
+    
+    /**
+     * Jackson filters that leave out the unselected properties
+     */
+    public FilterProvider filters() {
+        return new SimpleFilterProvider()
+                .addFilter(REMINDER_FILTER, filter(reminderFields))
+                .addFilter(DOSE_FILTER, filter(doseFields));
+    }
+    
+    /**
+     * Canonical form of the selection, for ETags
+     */
+    public String key() {
+        if (reminderFields.isEmpty()) {
+            return "all";
+        }
+        StringBuilder key = new StringBuilder(String.join(",", reminderFields));
+        for (String doseField : doseFields) {
+            key.append(',').append(DOSE_PREFIX).append(doseField);
+        }
+        return key.toString();
+    }
+    
+    private static ReminderView require(ReminderView view, ReminderView needed, String doseField) {
+        if (view.compareTo(needed) < 0) {
+            throw new IllegalArgumentException("Field " + DOSE_PREFIX + doseField + " needs view=" + needed);
+        }
+        return needed;
+    }
+    
+    private static SimpleBeanPropertyFilter filter(Set<String> fields) {
+        return fields.isEmpty() ? SimpleBeanPropertyFilter.serializeAll() : SimpleBeanPropertyFilter.filterOutAllExcept(fields);
+    }
+}
@@ -0,0 +1,18 @@
+package com.zerobee.pillscheduler.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderPageDTO {
+    private List<ReminderDTO> reminders;
+    
+    // Pass back as cursor to fetch the next page, null on the last page
+    private String nextCursor;
+}
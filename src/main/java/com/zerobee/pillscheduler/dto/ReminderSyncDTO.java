@@ -0,0 +1,30 @@
+package com.zerobee.pillscheduler.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderSyncDTO {
+    // True for a sync without cursor: the client replaces its local state instead of applying changes
+    private boolean snapshot;
+    
+    // Created or changed reminders with their doses, without taken state
+    private List<ReminderDTO> reminders;
+    
+    // Tombstones of deleted reminders, their doses are gone as well
+    private List<Integer> deletedReminderIds;
+    
+    private List<DoseTakenChangeDTO> doseChanges;
+    
+    // Pass back as cursor on the next sync
+    private String nextCursor;
+    
+    // More changes are waiting, sync again right away with nextCursor
+    private boolean hasMore;
+}
@@ -0,0 +1,66 @@
+package com.zerobee.pillscheduler.entity;
+
+import com.zerobee.pillscheduler.enums.ChangeType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * One change to a user's reminders or dose marks, appended in the transaction of the write.
+ * Entries refer to reminders and doses by id only, so a deleted reminder leaves its tombstone.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "change_log", indexes = {
+        @Index(name = "idx_change_log_user_id_version", columnList = "user_id, version, id")
+})
+public class ChangeLogEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "change_log_seq")
+    @SequenceGenerator(name = "change_log_seq", sequenceName = "change_log_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+    
+    // Data version of the write, shared by every entry it appended
+    @Column(nullable = false)
+    private long version;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private ChangeType type;
+    
+    @Column(name = "reminder_id", nullable = false)
+    private Integer reminderId;
+    
+    // Only set for dose marks
+    @Column(name = "dose_id")
+    private Integer doseId;
+    
+    private LocalDate date;
+    
+    public static ChangeLogEntry reminderSaved(Reminder reminder) {
+        return ChangeLogEntry.builder().type(ChangeType.REMINDER_SAVED).reminderId(reminder.getId()).build();
+    }
+    
+    public static ChangeLogEntry reminderDeleted(Reminder reminder) {
+        return ChangeLogEntry.builder().type(ChangeType.REMINDER_DELETED).reminderId(reminder.getId()).build();
+    }
+    
+    public static ChangeLogEntry doseMarked(Dose dose, LocalDate date, boolean taken) {
+        return ChangeLogEntry.builder()
+                .type(taken ? ChangeType.DOSE_TAKEN : ChangeType.DOSE_NOT_TAKEN)
+                .reminderId(dose.getReminder().getId())
+                .doseId(dose.getId())
+                .date(date)
+                .build();
+    }
+}
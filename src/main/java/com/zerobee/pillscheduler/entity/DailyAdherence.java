@@ -0,0 +1,65 @@
+package com.zerobee.pillscheduler.entity;
+
+import com.zerobee.pillscheduler.dto.DailyReminderSummaryDTO;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Per-user, per-day adherence counters, maintained as doses are marked so that summary reads
+ * do not have to recount dose_taken_records
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "daily_adherence", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_adherence_user_id_date", columnNames = {"user_id", "date"})
+})
+public class DailyAdherence {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+    
+    @Column(nullable = false)
+    private LocalDate date;
+    
+    private int totalReminders;
+    
+    private int totalDoses;
+    
+    private int dosesTaken;
+    
+    public static DailyAdherence fromSummary(String userId, DailyReminderSummaryDTO summary) {
+        return DailyAdherence.builder()
+                .userId(userId)
+                .date(summary.getDate())
+                .totalReminders(summary.getTotalReminders())
+                .totalDoses(summary.getTotalDoses())
+                .dosesTaken(summary.getDosesTaken())
+                .build();
+    }
+    
+    /**
+     * Summary without the per reminder statuses, which the rollup does not keep
+     */
+    public DailyReminderSummaryDTO toSummaryDTO() {
+        double adherencePercentage = totalDoses > 0 ? ((double) dosesTaken / totalDoses) * 100 : 0;
+        return DailyReminderSummaryDTO.builder()
+                .date(date)
+                .totalReminders(totalReminders)
+                .totalDoses(totalDoses)
+                .dosesTaken(dosesTaken)
+                .dosesMissed(totalDoses - dosesTaken)
+                .adherencePercentage(Math.round(adherencePercentage * 100.0) / 100.0) // Round to 2 decimal places
+                .build();
+    }
+}
@@ -6,6 +6,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -15,7 +17,12 @@ import java.time.LocalTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "doses")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "doses")
+@Table(name = "doses", indexes = {
+        @Index(name = "idx_doses_reminder_id", columnList = "reminder_id"),
+        @Index(name = "idx_doses_dose_time", columnList = "doseTime, id")
+})
 public class Dose {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -26,7 +33,7 @@ public class Dose {
     @Column(nullable = false)
     private Boolean taken = false;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "reminder_id", nullable = false)
     private Reminder reminder;
     
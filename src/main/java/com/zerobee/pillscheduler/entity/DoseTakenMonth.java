@@ -0,0 +1,63 @@
+package com.zerobee.pillscheduler.entity;
+
+import com.zerobee.pillscheduler.repository.DoseTakenMask;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * The days of one month a dose was taken on, as a bit mask (see {@link DoseTakenMask}).
+ * Used instead of one {@link DoseTakenRecord} per day when the bitmap storage is enabled.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "dose_taken_months", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_dose_taken_months_dose_id_month_start", columnNames = {"dose_id", "month_start"})
+})
+public class DoseTakenMonth {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "dose_id", nullable = false)
+    private Dose dose;
+    
+    // First day of the month
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+    
+    @Column(name = "taken_mask", nullable = false)
+    private int takenMask;
+    
+    /**
+     * Sets the bit of the date, returns false if it was already set
+     */
+    public boolean mark(LocalDate date) {
+        int bit = DoseTakenMask.bitOf(date);
+        if ((takenMask & bit) != 0) {
+            return false;
+        }
+        takenMask |= bit;
+        return true;
+    }
+    
+    /**
+     * Clears the bit of the date, returns false if it was not set
+     */
+    public boolean unmark(LocalDate date) {
+        int bit = DoseTakenMask.bitOf(date);
+        if ((takenMask & bit) == 0) {
+            return false;
+        }
+        takenMask &= ~bit;
+        return true;
+    }
+}
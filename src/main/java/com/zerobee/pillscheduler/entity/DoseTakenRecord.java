@@ -14,14 +14,16 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @Entity
 @Table(name = "dose_taken_records", uniqueConstraints = {
-        @UniqueConstraint(columnNames = {"dose_id", "date"})
+        @UniqueConstraint(name = "uk_dose_taken_records_dose_id_date", columnNames = {"dose_id", "date"})
+}, indexes = {
+        @Index(name = "idx_dose_taken_records_date", columnList = "date")
 })
 public class DoseTakenRecord {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "dose_id", nullable = false)
     private Dose dose;
     
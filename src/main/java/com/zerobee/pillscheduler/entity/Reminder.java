@@ -10,6 +10,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -20,8 +22,17 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "reminders")
+@Table(name = "reminders", indexes = {
+        @Index(name = "idx_reminders_user_flag_status_frequency", columnList = "user_id, flag, status, frequency"),
+        @Index(name = "idx_reminders_user_id_id", columnList = "user_id, id")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reminders")
+@NamedEntityGraph(name = Reminder.WITH_DOSES, attributeNodes = @NamedAttributeNode("doses"))
 public class Reminder {
+    // Fetch plan of every read that maps reminders to DTOs, which always includes the doses
+    public static final String WITH_DOSES = "Reminder.withDoses";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
@@ -45,6 +56,7 @@ public class Reminder {
     @Enumerated(EnumType.STRING)
     private Status status;
     
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "reminder-doses")
     @OneToMany(mappedBy = "reminder", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<Dose> doses = new ArrayList<>();
     
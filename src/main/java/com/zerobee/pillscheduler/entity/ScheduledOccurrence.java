@@ -0,0 +1,49 @@
+package com.zerobee.pillscheduler.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * A dose scheduled on a date, materialized for the dates of the {@link ScheduledOccurrenceHorizon}.
+ * Refers to the dose and reminder by id only; rows are written in batches with plain JDBC.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(ScheduledOccurrence.Key.class)
+@Table(name = "scheduled_occurrences", indexes = {
+        @Index(name = "idx_scheduled_occurrences_reminder_id", columnList = "reminder_id"),
+        @Index(name = "idx_scheduled_occurrences_date", columnList = "date")
+})
+public class ScheduledOccurrence {
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+    
+    @Id
+    private LocalDate date;
+    
+    @Id
+    @Column(name = "dose_id")
+    private Integer doseId;
+    
+    @Column(name = "reminder_id", nullable = false)
+    private Integer reminderId;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String userId;
+        private LocalDate date;
+        private Integer doseId;
+    }
+}
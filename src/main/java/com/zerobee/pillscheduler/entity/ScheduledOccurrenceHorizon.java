@@ -0,0 +1,46 @@
+package com.zerobee.pillscheduler.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * The dates, both inclusive, whose {@link ScheduledOccurrence} rows are complete. A single row,
+ * locked while a page of doses is materialized or a reminder's rows are regenerated.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "scheduled_occurrence_horizon")
+public class ScheduledOccurrenceHorizon {
+    @Id
+    private Integer id;
+    
+    // Both null until the occurrences were materialized once
+    @Column(name = "start_date")
+    private LocalDate startDate;
+    
+    @Column(name = "end_date")
+    private LocalDate endDate;
+    
+    // The horizon an extension is materializing, both null when none runs. Reminders saved
+    // meanwhile regenerate their rows in it too.
+    @Column(name = "next_start_date")
+    private LocalDate nextStartDate;
+    
+    @Column(name = "next_end_date")
+    private LocalDate nextEndDate;
+    
+    public boolean covers(LocalDate from, LocalDate to) {
+        return startDate != null && !from.isBefore(startDate) && !to.isAfter(endDate);
+    }
+}
@@ -0,0 +1,29 @@
+package com.zerobee.pillscheduler.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Version of everything a user's responses are built from, raised by every write. No foreign key
+ * to users: the row outlives a deleted user, so a user signing up again never repeats a version.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "user_data_versions")
+public class UserDataVersion {
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+    
+    @Column(nullable = false)
+    private long version;
+}
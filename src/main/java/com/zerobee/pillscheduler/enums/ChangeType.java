@@ -0,0 +1,11 @@
+package com.zerobee.pillscheduler.enums;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+@JsonFormat(shape = JsonFormat.Shape.STRING)
+public enum ChangeType {
+    REMINDER_SAVED,
+    REMINDER_DELETED,
+    DOSE_TAKEN,
+    DOSE_NOT_TAKEN
+}
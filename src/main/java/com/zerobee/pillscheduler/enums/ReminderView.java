@@ -0,0 +1,13 @@
+package com.zerobee.pillscheduler.enums;
+
+/**
+ * How much of each dose the reminder endpoints return, and therefore load
+ */
+public enum ReminderView {
+    // Reminder fields and dose times, no taken status
+    SUMMARY,
+    // Plus whether each dose is taken on the date of the request
+    STANDARD,
+    // Plus every date each dose was taken on
+    FULL
+}
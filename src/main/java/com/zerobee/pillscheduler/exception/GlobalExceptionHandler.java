@@ -46,6 +46,25 @@ public class GlobalExceptionHandler {
                 ));
     }
     
+    @ExceptionHandler(DoseNotFoundException.class)
+    public ResponseEntity<CustomResponse<Void>> handleDoseNotFoundException(DoseNotFoundException ex) {
+        return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(new CustomResponse<>(
+                        HttpStatus.NOT_FOUND,
+                        "Dose Not Found",
+                        null
+                ));
+    }
+    
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<CustomResponse<String>> handleInvalidCursorException(InvalidCursorException ex) {
+        return new ResponseEntity<>(
+                new CustomResponse<>(HttpStatus.BAD_REQUEST, "Invalid Cursor", ex.getMessage()),
+                HttpStatus.BAD_REQUEST
+        );
+    }
+    
     @ExceptionHandler(FirebaseOperationException.class)
     public ResponseEntity<CustomResponse<String>> handleFirebaseOperationException(FirebaseOperationException e) {
         return new ResponseEntity<>(
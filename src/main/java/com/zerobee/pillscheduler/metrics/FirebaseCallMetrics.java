@@ -0,0 +1,39 @@
+package com.zerobee.pillscheduler.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times calls to Firebase as pillscheduler.firebase.calls, tagged with the operation and whether
+ * it succeeded, so latency and error rate can be read per operation
+ */
+@Component
+@RequiredArgsConstructor
+public class FirebaseCallMetrics {
+    
+    private final MeterRegistry registry;
+    
+    @FunctionalInterface
+    public interface FirebaseCall<T, E extends Exception> {
+        T call() throws E;
+    }
+    
+    public <T, E extends Exception> T record(String operation, FirebaseCall<T, E> call) throws E {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            T result = call.call();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(Timer.builder("pillscheduler.firebase.calls")
+                    .description("Calls to the Firebase Admin SDK")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.zerobee.pillscheduler.metrics;
+
+import com.zerobee.pillscheduler.service.DoseNotificationDispatcher;
+import com.zerobee.pillscheduler.service.VerifiedTokenCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MetricsConfig {
+    
+    /**
+     * Counts statements for {@link SqlStatementMetricsFilter}, unless another inspector is configured
+     */
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer() {
+        return hibernateProperties -> hibernateProperties.putIfAbsent(
+                AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+    
+    @Bean
+    public MeterBinder tokenCacheMetrics(VerifiedTokenCache tokenCache) {
+        return registry -> {
+            Gauge.builder("pillscheduler.token.cache.size", tokenCache, VerifiedTokenCache::size)
+                    .register(registry);
+            FunctionCounter.builder("pillscheduler.token.cache.requests", tokenCache, VerifiedTokenCache::getHitCount)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("pillscheduler.token.cache.requests", tokenCache, VerifiedTokenCache::getMissCount)
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("pillscheduler.token.cache.evictions", tokenCache, VerifiedTokenCache::getEvictionCount)
+                    .register(registry);
+        };
+    }
+    
+    @Bean
+    public MeterBinder doseDispatcherMetrics(DoseNotificationDispatcher dispatcher) {
+        return registry -> {
+            Gauge.builder("pillscheduler.dispatcher.pending", dispatcher, DoseNotificationDispatcher::getPendingCount)
+                    .register(registry);
+            FunctionCounter.builder("pillscheduler.dispatcher.dispatched", dispatcher,
+                            DoseNotificationDispatcher::getDispatchedCount)
+                    .register(registry);
+            FunctionCounter.builder("pillscheduler.dispatcher.late", dispatcher, DoseNotificationDispatcher::getLateCount)
+                    .register(registry);
+            FunctionCounter.builder("pillscheduler.dispatcher.failed.batches", dispatcher,
+                            DoseNotificationDispatcher::getFailedBatchCount)
+                    .register(registry);
+            Gauge.builder("pillscheduler.dispatcher.max.lag", dispatcher, DoseNotificationDispatcher::getMaxLagMillis)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            Gauge.builder("pillscheduler.dispatcher.max.tick", dispatcher,
+                            d -> TimeUnit.NANOSECONDS.toMillis(d.getMaxTickNanos()))
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package com.zerobee.pillscheduler.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public ReminderService method as pillscheduler.service and splits its time into
+ * phases as pillscheduler.service.phase: auth (resolving the caller in UserService.fetchUser),
+ * repository (Spring Data repository calls) and mapping (everything else, DTO assembly, in-memory
+ * summaries and the commit). A repository call made while resolving the caller counts as auth.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ServicePhaseMetricsAspect {
+    
+    private static final String AUTH = "auth";
+    private static final String REPOSITORY = "repository";
+    private static final String MAPPING = "mapping";
+    
+    private static final ThreadLocal<PhaseTimes> CURRENT = new ThreadLocal<>();
+    
+    private final MeterRegistry registry;
+    
+    @Around("execution(public * com.zerobee.pillscheduler.service.ReminderService.*(..))")
+    public Object timeServiceMethod(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (CURRENT.get() != null) {
+            return joinPoint.proceed();
+        }
+        PhaseTimes phases = new PhaseTimes();
+        CURRENT.set(phases);
+        String method = joinPoint.getSignature().getName();
+        String outcome = "success";
+        long started = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            long total = System.nanoTime() - started;
+            CURRENT.remove();
+            Timer.builder("pillscheduler.service")
+                    .description("ReminderService method calls")
+                    .tag("method", method)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(total, TimeUnit.NANOSECONDS);
+            recordPhase(method, AUTH, phases.authNanos);
+            recordPhase(method, REPOSITORY, phases.repositoryNanos);
+            recordPhase(method, MAPPING, Math.max(0, total - phases.authNanos - phases.repositoryNanos));
+        }
+    }
+    
+    @Around("execution(public * com.zerobee.pillscheduler.service.UserService.fetchUser(..))")
+    public Object timeAuth(ProceedingJoinPoint joinPoint) throws Throwable {
+        return inPhase(joinPoint, AUTH);
+    }
+    
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return inPhase(joinPoint, REPOSITORY);
+    }
+    
+    private Object inPhase(ProceedingJoinPoint joinPoint, String phase) throws Throwable {
+        PhaseTimes phases = CURRENT.get();
+        // Outside a service method, or nested in a phase that already counts the time
+        if (phases == null || phases.active != null) {
+            return joinPoint.proceed();
+        }
+        phases.active = phase;
+        long started = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            phases.active = null;
+            if (AUTH.equals(phase)) {
+                phases.authNanos += elapsed;
+            } else {
+                phases.repositoryNanos += elapsed;
+            }
+        }
+    }
+    
+    private void recordPhase(String method, String phase, long nanos) {
+        Timer.builder("pillscheduler.service.phase")
+                .description("Time ReminderService methods spend per phase")
+                .tag("method", method)
+                .tag("phase", phase)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private static final class PhaseTimes {
+        private String active;
+        private long authNanos;
+        private long repositoryNanos;
+    }
+}
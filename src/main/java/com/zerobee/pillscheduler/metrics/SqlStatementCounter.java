@@ -0,0 +1,34 @@
+package com.zerobee.pillscheduler.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a count is open.
+ * Registered as Hibernate's statement inspector by {@link MetricsConfig}.
+ */
+public class SqlStatementCounter implements StatementInspector {
+    
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+    
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+    
+    static void open() {
+        COUNT.set(new int[1]);
+    }
+    
+    /**
+     * Ends the count of the current thread and returns it
+     */
+    static int close() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count != null ? count[0] : 0;
+    }
+}
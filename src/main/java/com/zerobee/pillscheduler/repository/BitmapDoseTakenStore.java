@@ -0,0 +1,198 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.DoseTakenMonth;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Stores one {@link DoseTakenMonth} per dose and month, the taken days being the bits of a mask.
+ * A dose taken every day for five years is 60 rows instead of about 1800, marking sets or clears
+ * a bit in a single upsert or update of the row and counts are popcounts.
+ */
+@Repository
+@ConditionalOnProperty(name = "pillscheduler.dose-taken.storage", havingValue = "bitmap")
+@RequiredArgsConstructor
+public class BitmapDoseTakenStore implements DoseTakenStore {
+    
+    private static final String SET_BIT_SQL = "INSERT INTO dose_taken_months (dose_id, month_start, taken_mask) "
+            + "VALUES (?, ?, ?) ON CONFLICT (dose_id, month_start) "
+            + "DO UPDATE SET taken_mask = dose_taken_months.taken_mask | EXCLUDED.taken_mask "
+            + "WHERE dose_taken_months.taken_mask & EXCLUDED.taken_mask = 0";
+    private static final String CLEAR_BIT_SQL = "UPDATE dose_taken_months SET taken_mask = taken_mask & ~? "
+            + "WHERE dose_id = ? AND month_start = ? AND taken_mask & ? <> 0";
+    private static final Comparator<DoseTakenEntry> KEY_ORDER =
+            Comparator.comparing(DoseTakenEntry::doseId).thenComparing(DoseTakenEntry::date);
+    
+    private final DoseTakenMonthRepository doseTakenMonthRepository;
+    private final ScheduledOccurrenceRepository scheduledOccurrenceRepository;
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public boolean setTaken(Dose dose, LocalDate date, boolean taken) {
+        LocalDate monthStart = DoseTakenMask.monthOf(date);
+        int bit = DoseTakenMask.bitOf(date);
+        return (taken
+                ? doseTakenMonthRepository.setBit(dose.getId(), monthStart, bit)
+                : doseTakenMonthRepository.clearBit(dose.getId(), monthStart, bit)) > 0;
+    }
+    
+    /**
+     * One JDBC batch of bit upserts and one of bit clears, each in (dose, date) order so concurrent
+     * batches lock the month rows in the same order. Days of the same month are separate statements
+     * on the same row, the row count of every one tells whether its bit changed.
+     */
+    @Override
+    public Set<DoseTakenEntry> setTaken(Map<DoseTakenEntry, Boolean> takenByEntry) {
+        List<DoseTakenEntry> toSet = new ArrayList<>();
+        List<DoseTakenEntry> toClear = new ArrayList<>();
+        takenByEntry.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(KEY_ORDER))
+                .forEach(entry -> (entry.getValue() ? toSet : toClear).add(entry.getKey()));
+        
+        Set<DoseTakenEntry> changed = new LinkedHashSet<>();
+        execute(SET_BIT_SQL, toSet, entry -> new Object[]{
+                entry.doseId(), DoseTakenMask.monthOf(entry.date()), DoseTakenMask.bitOf(entry.date())}, changed);
+        execute(CLEAR_BIT_SQL, toClear, entry -> new Object[]{
+                DoseTakenMask.bitOf(entry.date()), entry.doseId(), DoseTakenMask.monthOf(entry.date()),
+                DoseTakenMask.bitOf(entry.date())}, changed);
+        return changed;
+    }
+    
+    @Override
+    public List<DoseTakenEntry> findTakenEntriesByDoseIdIn(Collection<Integer> doseIds) {
+        List<DoseTakenEntry> entries = new ArrayList<>();
+        for (DoseTakenMask mask : doseTakenMonthRepository.findMasksByDoseIdIn(doseIds)) {
+            mask.forEachTaken(entries::add);
+        }
+        return entries;
+    }
+    
+    @Override
+    public List<DoseTakenEntry> findTakenEntriesByDoseIdInAndDateBetween(Collection<Integer> doseIds,
+                                                                        LocalDate startDate, LocalDate endDate) {
+        List<DoseTakenEntry> entries = new ArrayList<>();
+        for (DoseTakenMask mask : doseTakenMonthRepository.findMasksByDoseIdInAndMonthStartBetween(
+                doseIds, DoseTakenMask.monthOf(startDate), DoseTakenMask.monthOf(endDate))) {
+            mask.forEachTaken(startDate, endDate, entries::add);
+        }
+        return entries;
+    }
+    
+    @Override
+    public List<DoseTakenEntry> findTakenEntriesByUserIdAndDateBetween(String userId, LocalDate startDate, LocalDate endDate) {
+        List<DoseTakenEntry> entries = new ArrayList<>();
+        for (DoseTakenMask mask : doseTakenMonthRepository.findMasksByUserIdAndMonthStartBetween(
+                userId, DoseTakenMask.monthOf(startDate), DoseTakenMask.monthOf(endDate))) {
+            mask.forEachTaken(startDate, endDate, entries::add);
+        }
+        return entries;
+    }
+    
+    /**
+     * The masks have no row per taken day to join against, they are read for the range and the
+     * occurrences looked up in them
+     */
+    @Override
+    public List<ScheduledOccurrenceStatus> findOccurrenceStatuses(String userId, LocalDate startDate, LocalDate endDate) {
+        List<ScheduledOccurrenceStatus> occurrences = scheduledOccurrenceRepository
+                .findByUserIdAndDateBetween(userId, startDate, endDate);
+        if (occurrences.isEmpty()) {
+            return occurrences;
+        }
+        Set<DoseTakenEntry> taken = new HashSet<>(findTakenEntriesByUserIdAndDateBetween(userId, startDate, endDate));
+        return occurrences.stream()
+                .map(occurrence -> occurrence.withTaken(taken.contains(occurrence.entry())))
+                .toList();
+    }
+    
+    @Override
+    public Stream<DoseTakenEntry> streamTakenEntriesByUserId(String userId) {
+        Stream<DoseTakenMask> masks = doseTakenMonthRepository.streamMasksByUserId(userId);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                        new DateOrderIterator(masks.iterator()), Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(masks::close);
+    }
+    
+    @Override
+    public Map<Integer, Integer> countTakenByDoseId(Collection<Integer> doseIds, LocalDate startDate, LocalDate endDate) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (DoseTakenMask mask : doseTakenMonthRepository.findMasksByDoseIdInAndMonthStartBetween(
+                doseIds, DoseTakenMask.monthOf(startDate), DoseTakenMask.monthOf(endDate))) {
+            int taken = mask.countTaken(startDate, endDate);
+            if (taken > 0) {
+                counts.merge(mask.doseId(), taken, Integer::sum);
+            }
+        }
+        return counts;
+    }
+    
+    private void execute(String sql, List<DoseTakenEntry> entries, Function<DoseTakenEntry, Object[]> parameters,
+                         Set<DoseTakenEntry> changed) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        int[] rowCounts = jdbcTemplate.batchUpdate(sql, entries.stream().map(parameters).toList());
+        for (int i = 0; i < rowCounts.length; i++) {
+            if (rowCounts[i] > 0) {
+                changed.add(entries.get(i));
+            }
+        }
+    }
+    
+    /**
+     * Turns masks ordered by month and dose into entries ordered by date and dose, holding one
+     * month of a user's masks at a time
+     */
+    private static final class DateOrderIterator implements Iterator<DoseTakenEntry> {
+        private final Iterator<DoseTakenMask> masks;
+        private final List<DoseTakenMask> month = new ArrayList<>();
+        private final Deque<DoseTakenEntry> pending = new ArrayDeque<>();
+        // First mask of the month after the current one
+        private DoseTakenMask nextMonthStart;
+        
+        private DateOrderIterator(Iterator<DoseTakenMask> masks) {
+            this.masks = masks;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (pending.isEmpty() && (nextMonthStart != null || masks.hasNext())) {
+                readMonth();
+            }
+            return !pending.isEmpty();
+        }
+        
+        @Override
+        public DoseTakenEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return pending.poll();
+        }
+        
+        private void readMonth() {
+            month.clear();
+            month.add(nextMonthStart != null ? nextMonthStart : masks.next());
+            nextMonthStart = null;
+            LocalDate monthStart = month.get(0).monthStart();
+            while (masks.hasNext()) {
+                DoseTakenMask mask = masks.next();
+                if (!mask.monthStart().equals(monthStart)) {
+                    nextMonthStart = mask;
+                    break;
+                }
+                month.add(mask);
+            }
+            DoseTakenMask.forEachInDateOrder(month, pending::add);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.entity.ChangeLogEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+    
+    /**
+     * The user's changes of writes after the given data version, in the order they were made
+     */
+    @Query("SELECT c FROM ChangeLogEntry c WHERE c.userId = :userId AND c.version > :afterVersion " +
+            "ORDER BY c.version, c.id")
+    List<ChangeLogEntry> findByUserIdAfterVersion(String userId, long afterVersion, Pageable pageable);
+    
+    /**
+     * The user's changes of the write with the given data version, in the order they were made
+     */
+    @Query("SELECT c FROM ChangeLogEntry c WHERE c.userId = :userId AND c.version = :version ORDER BY c.id")
+    List<ChangeLogEntry> findByUserIdAndVersion(String userId, long version);
+}
@@ -0,0 +1,39 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.entity.DailyAdherence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyAdherenceRepository extends JpaRepository<DailyAdherence, Integer> {
+    List<DailyAdherence> findByUserIdAndDateBetweenOrderByDate(String userId, LocalDate startDate, LocalDate endDate);
+    
+    /**
+     * Locks the rollup of a user until the end of the transaction (a PostgreSQL advisory lock on the
+     * user id), so a day recomputed from the raw records is stored either before or after a concurrent
+     * mark adjusts it, never with the mark lost in between
+     */
+    @Query(value = "SELECT CAST(pg_advisory_xact_lock(hashtext(:userId)) AS text)", nativeQuery = true)
+    String lockUser(String userId);
+    
+    /**
+     * Shift the taken count of an already rolled up day, a no-op if the day has no row yet
+     */
+    @Modifying
+    @Query("UPDATE DailyAdherence a SET a.dosesTaken = a.dosesTaken + :delta " +
+            "WHERE a.userId = :userId AND a.date = :date")
+    int adjustDosesTaken(String userId, LocalDate date, int delta);
+    
+    @Modifying
+    @Query("DELETE FROM DailyAdherence a WHERE a.userId = :userId AND a.date >= :fromDate")
+    int deleteByUserIdFrom(String userId, LocalDate fromDate);
+    
+    @Modifying
+    @Query("DELETE FROM DailyAdherence a WHERE a.userId = :userId AND a.date BETWEEN :startDate AND :endDate")
+    int deleteByUserIdBetween(String userId, LocalDate startDate, LocalDate endDate);
+}
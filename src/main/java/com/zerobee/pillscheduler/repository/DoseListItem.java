@@ -0,0 +1,18 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.dto.DoseDTO;
+
+import java.time.LocalTime;
+
+/**
+ * A dose of a listed reminder, without loading the reminder entity
+ */
+public record DoseListItem(Integer reminderId, Integer id, LocalTime doseTime) {
+    
+    public DoseDTO toDoseDTO() {
+        return DoseDTO.builder()
+                .id(id)
+                .doseTime(doseTime)
+                .build();
+    }
+}
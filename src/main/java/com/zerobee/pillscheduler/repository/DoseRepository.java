@@ -2,16 +2,58 @@ package com.zerobee.pillscheduler.repository;
 
 import com.zerobee.pillscheduler.entity.Dose;
 import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.enums.Flag;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface DoseRepository extends JpaRepository<Dose, Integer> {
     List<Dose> findByReminder(Reminder reminder);
     
+    /**
+     * Load the given doses together with their reminder, skipping any dose the user does not own
+     */
+    @Query("SELECT d FROM Dose d JOIN FETCH d.reminder r " +
+            "WHERE d.id IN :doseIds AND r.user.id = :userId")
+    List<Dose> findOwnedWithReminder(Collection<Integer> doseIds, String userId);
+    
+    /**
+     * The doses of a batch of reminders, without loading the dose or reminder entities
+     */
+    @Query("SELECT new com.zerobee.pillscheduler.repository.DoseListItem(d.reminder.id, d.id, d.doseTime) " +
+            "FROM Dose d " +
+            "WHERE d.reminder.id IN :reminderIds " +
+            "ORDER BY d.reminder.id, d.doseTime")
+    List<DoseListItem> findListItemsByReminderIdIn(Collection<Integer> reminderIds);
+    
+    /**
+     * One page of the doses of reminders with the given flag whose time of day lies in a range,
+     * with their reminder, in id order. Pass the last id of the previous page as afterId.
+     */
+    @Query("SELECT d FROM Dose d JOIN FETCH d.reminder r " +
+            "WHERE r.flag = :flag AND d.doseTime BETWEEN :fromTime AND :toTime AND d.id > :afterId " +
+            "ORDER BY d.id")
+    List<Dose> findWithReminderByDoseTimeBetween(Flag flag, LocalTime fromTime, LocalTime toTime,
+                                                 Integer afterId, Pageable pageable);
+    
+    /**
+     * One page of all doses with the schedule of their reminder, in id order. Pass the last id of
+     * the previous page as afterId.
+     */
+    @Query("SELECT new com.zerobee.pillscheduler.repository.DoseSchedule(" +
+            "d.id, r.id, r.user.id, r.frequency, r.days, r.start_date_time, r.end_date_time) " +
+            "FROM Dose d JOIN d.reminder r " +
+            "WHERE d.id > :afterId " +
+            "ORDER BY d.id")
+    List<DoseSchedule> findSchedulesAfter(Integer afterId, Pageable pageable);
+
 //    List<Dose> findByReminderAndDoseDate(Reminder reminder, LocalDate date);
 //
 //    List<Dose> findByDoseDate(LocalDate date);
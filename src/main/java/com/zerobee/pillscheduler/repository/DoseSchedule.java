@@ -0,0 +1,17 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.utils.RecurrenceRule;
+
+import java.time.LocalDateTime;
+
+/**
+ * A dose with the schedule columns of its reminder, without loading the dose or reminder entities
+ */
+public record DoseSchedule(Integer doseId, Integer reminderId, String userId, Frequency frequency, String days,
+                           LocalDateTime start_date_time, LocalDateTime end_date_time) {
+    
+    public RecurrenceRule rule() {
+        return RecurrenceRule.of(frequency, days, start_date_time, end_date_time);
+    }
+}
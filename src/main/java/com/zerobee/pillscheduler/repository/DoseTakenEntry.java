@@ -0,0 +1,11 @@
+package com.zerobee.pillscheduler.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Lightweight projection of a {@link com.zerobee.pillscheduler.entity.DoseTakenRecord}, or one
+ * taken day of a {@link DoseTakenMask}: just the dose id and the date it was taken, without
+ * loading the dose entity graph.
+ */
+public record DoseTakenEntry(Integer doseId, LocalDate date) {
+}
@@ -0,0 +1,83 @@
+package com.zerobee.pillscheduler.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The taken days of a dose in one month as a bit mask: bit 0 is the 1st, bit 30 the 31st.
+ * Read from a {@link com.zerobee.pillscheduler.entity.DoseTakenMonth} without loading the entity.
+ */
+public record DoseTakenMask(Integer doseId, LocalDate monthStart, int takenMask) {
+    
+    public static LocalDate monthOf(LocalDate date) {
+        return date.withDayOfMonth(1);
+    }
+    
+    public static int bitOf(LocalDate date) {
+        return 1 << (date.getDayOfMonth() - 1);
+    }
+    
+    /**
+     * The bits of the days of the month starting at monthStart that lie between startDate and
+     * endDate, both inclusive
+     */
+    public static int rangeMask(LocalDate monthStart, LocalDate startDate, LocalDate endDate) {
+        LocalDate monthEnd = monthStart.plusMonths(1).minusDays(1);
+        if (startDate.isAfter(monthEnd) || endDate.isBefore(monthStart)) {
+            return 0;
+        }
+        int fromDay = startDate.isAfter(monthStart) ? startDate.getDayOfMonth() : 1;
+        int toDay = endDate.isBefore(monthEnd) ? endDate.getDayOfMonth() : monthEnd.getDayOfMonth();
+        // Days fromDay to toDay, as a run of set bits
+        return (int) ((1L << toDay) - (1L << (fromDay - 1)));
+    }
+    
+    /**
+     * Passes the taken entries of several masks of the same month to the consumer, by date and
+     * then in the order of the masks
+     */
+    public static void forEachInDateOrder(List<DoseTakenMask> masksOfMonth, Consumer<DoseTakenEntry> consumer) {
+        int all = 0;
+        for (DoseTakenMask mask : masksOfMonth) {
+            all |= mask.takenMask;
+        }
+        while (all != 0) {
+            int bit = Integer.lowestOneBit(all);
+            all &= ~bit;
+            for (DoseTakenMask mask : masksOfMonth) {
+                if ((mask.takenMask & bit) != 0) {
+                    consumer.accept(mask.entry(bit));
+                }
+            }
+        }
+    }
+    
+    public boolean isTaken(LocalDate date) {
+        return monthOf(date).equals(monthStart) && (takenMask & bitOf(date)) != 0;
+    }
+    
+    public int countTaken(LocalDate startDate, LocalDate endDate) {
+        return Integer.bitCount(takenMask & rangeMask(monthStart, startDate, endDate));
+    }
+    
+    /**
+     * Passes the entries taken between startDate and endDate to the consumer, oldest first
+     */
+    public void forEachTaken(LocalDate startDate, LocalDate endDate, Consumer<DoseTakenEntry> consumer) {
+        int remaining = takenMask & rangeMask(monthStart, startDate, endDate);
+        while (remaining != 0) {
+            int bit = Integer.lowestOneBit(remaining);
+            remaining &= ~bit;
+            consumer.accept(entry(bit));
+        }
+    }
+    
+    public void forEachTaken(Consumer<DoseTakenEntry> consumer) {
+        forEachTaken(monthStart, monthStart.plusMonths(1).minusDays(1), consumer);
+    }
+    
+    private DoseTakenEntry entry(int bit) {
+        return new DoseTakenEntry(doseId, monthStart.plusDays(Integer.numberOfTrailingZeros(bit)));
+    }
+}
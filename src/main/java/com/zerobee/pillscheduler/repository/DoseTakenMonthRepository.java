@@ -0,0 +1,80 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.entity.DoseTakenMonth;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface DoseTakenMonthRepository extends JpaRepository<DoseTakenMonth, Integer> {
+    
+    /**
+     * Sets the bit of a day in the month row of a dose, inserting the row if the dose has none yet.
+     * Returns 1 if the bit was not set before. A concurrent write of the same row is waited for and
+     * its bits kept. The native space keeps Hibernate from evicting the whole second-level cache.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "dose_taken_months"))
+    @Query(value = "INSERT INTO dose_taken_months (dose_id, month_start, taken_mask) " +
+            "VALUES (:doseId, :monthStart, :bit) " +
+            "ON CONFLICT (dose_id, month_start) " +
+            "DO UPDATE SET taken_mask = dose_taken_months.taken_mask | EXCLUDED.taken_mask " +
+            "WHERE dose_taken_months.taken_mask & EXCLUDED.taken_mask = 0", nativeQuery = true)
+    int setBit(Integer doseId, LocalDate monthStart, int bit);
+    
+    /**
+     * Clears the bit of a day in the month row of a dose, returns 1 if it was set
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "dose_taken_months"))
+    @Query(value = "UPDATE dose_taken_months SET taken_mask = taken_mask & ~:bit " +
+            "WHERE dose_id = :doseId AND month_start = :monthStart AND taken_mask & :bit <> 0", nativeQuery = true)
+    int clearBit(Integer doseId, LocalDate monthStart, int bit);
+    
+    /**
+     * The masks of a batch of doses, oldest month first
+     */
+    @Query("SELECT new com.zerobee.pillscheduler.repository.DoseTakenMask(dtm.dose.id, dtm.monthStart, dtm.takenMask) " +
+            "FROM DoseTakenMonth dtm " +
+            "WHERE dtm.dose.id IN :doseIds " +
+            "ORDER BY dtm.monthStart")
+    List<DoseTakenMask> findMasksByDoseIdIn(Collection<Integer> doseIds);
+    
+    @Query("SELECT new com.zerobee.pillscheduler.repository.DoseTakenMask(dtm.dose.id, dtm.monthStart, dtm.takenMask) " +
+            "FROM DoseTakenMonth dtm " +
+            "WHERE dtm.dose.id IN :doseIds AND dtm.monthStart BETWEEN :startMonth AND :endMonth")
+    List<DoseTakenMask> findMasksByDoseIdInAndMonthStartBetween(Collection<Integer> doseIds,
+                                                               LocalDate startMonth, LocalDate endMonth);
+    
+    @Query("SELECT new com.zerobee.pillscheduler.repository.DoseTakenMask(d.id, dtm.monthStart, dtm.takenMask) " +
+            "FROM DoseTakenMonth dtm " +
+            "JOIN dtm.dose d " +
+            "JOIN d.reminder r " +
+            "WHERE r.user.id = :userId AND dtm.monthStart BETWEEN :startMonth AND :endMonth")
+    List<DoseTakenMask> findMasksByUserIdAndMonthStartBetween(String userId, LocalDate startMonth, LocalDate endMonth);
+    
+    /**
+     * Stream every mask of a user by month and dose through a forward-only cursor.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.zerobee.pillscheduler.repository.DoseTakenMask(d.id, dtm.monthStart, dtm.takenMask) " +
+            "FROM DoseTakenMonth dtm " +
+            "JOIN dtm.dose d " +
+            "JOIN d.reminder r " +
+            "WHERE r.user.id = :userId " +
+            "ORDER BY dtm.monthStart, d.id")
+    Stream<DoseTakenMask> streamMasksByUserId(String userId);
+}
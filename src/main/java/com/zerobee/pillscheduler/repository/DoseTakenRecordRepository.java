@@ -2,13 +2,19 @@ package com.zerobee.pillscheduler.repository;
 
 import com.zerobee.pillscheduler.entity.Dose;
 import com.zerobee.pillscheduler.entity.DoseTakenRecord;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DoseTakenRecordRepository extends JpaRepository<DoseTakenRecord, Integer> {
@@ -20,6 +26,42 @@ public interface DoseTakenRecordRepository extends JpaRepository<DoseTakenRecord
     
     List<DoseTakenRecord> findByDoseInAndDate(List<Dose> doses, LocalDate date);
     
+    /**
+     * Records the dose as taken on the date unless it already is, returns 1 if it inserted a row.
+     * A concurrent insert of the same pair is waited for instead of failing the transaction. The
+     * native space keeps Hibernate from evicting the whole second-level cache after the insert.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "dose_taken_records"))
+    @Query(value = "INSERT INTO dose_taken_records (dose_id, date) VALUES (:doseId, :date) " +
+            "ON CONFLICT (dose_id, date) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(Integer doseId, LocalDate date);
+    
+    /**
+     * Returns 1 if the dose was taken on the date
+     */
+    @Modifying
+    @Query("DELETE FROM DoseTakenRecord dtr WHERE dtr.dose.id = :doseId AND dtr.date = :date")
+    int deleteByDoseIdAndDate(Integer doseId, LocalDate date);
+    
+    /**
+     * Find the taken dates of a batch of doses in one query, oldest first
+     */
+    @Query("SELECT new com.zerobee.pillscheduler.repository.DoseTakenEntry(dtr.dose.id, dtr.date) " +
+            "FROM DoseTakenRecord dtr " +
+            "WHERE dtr.dose.id IN :doseIds " +
+            "ORDER BY dtr.date")
+    List<DoseTakenEntry> findTakenEntriesByDoseIdIn(Collection<Integer> doseIds);
+    
+    /**
+     * Find the taken dates of a batch of doses within a date range
+     */
+    @Query("SELECT new com.zerobee.pillscheduler.repository.DoseTakenEntry(dtr.dose.id, dtr.date) " +
+            "FROM DoseTakenRecord dtr " +
+            "WHERE dtr.dose.id IN :doseIds AND dtr.date BETWEEN :startDate AND :endDate")
+    List<DoseTakenEntry> findTakenEntriesByDoseIdInAndDateBetween(Collection<Integer> doseIds,
+                                                                 LocalDate startDate, LocalDate endDate);
+    
     // New methods for day-wise tracking
     
     /**
@@ -29,7 +71,7 @@ public interface DoseTakenRecordRepository extends JpaRepository<DoseTakenRecord
             "JOIN dtr.dose d " +
             "JOIN d.reminder r " +
             "WHERE r.user.id = :userId AND dtr.date = :date")
-    List<DoseTakenRecord> findByUserIdAndDate(Integer userId, LocalDate date);
+    List<DoseTakenRecord> findByUserIdAndDate(String userId, LocalDate date);
     
     /**
      * Find all dose taken records for a user in a date range
@@ -38,7 +80,33 @@ public interface DoseTakenRecordRepository extends JpaRepository<DoseTakenRecord
             "JOIN dtr.dose d " +
             "JOIN d.reminder r " +
             "WHERE r.user.id = :userId AND dtr.date BETWEEN :startDate AND :endDate")
-    List<DoseTakenRecord> findByUserIdAndDateBetween(Integer userId, LocalDate startDate, LocalDate endDate);
+    List<DoseTakenRecord> findByUserIdAndDateBetween(String userId, LocalDate startDate, LocalDate endDate);
+    
+    /**
+     * Find the (dose, date) pairs taken by a user in a date range, without loading the entities
+     */
+    @Query("SELECT new com.zerobee.pillscheduler.repository.DoseTakenEntry(d.id, dtr.date) " +
+            "FROM DoseTakenRecord dtr " +
+            "JOIN dtr.dose d " +
+            "JOIN d.reminder r " +
+            "WHERE r.user.id = :userId AND dtr.date BETWEEN :startDate AND :endDate")
+    List<DoseTakenEntry> findTakenEntriesByUserIdAndDateBetween(String userId, LocalDate startDate, LocalDate endDate);
+    
+    /**
+     * Stream every (dose, date) pair a user has taken, oldest first, through a forward-only cursor.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.zerobee.pillscheduler.repository.DoseTakenEntry(d.id, dtr.date) " +
+            "FROM DoseTakenRecord dtr " +
+            "JOIN dtr.dose d " +
+            "JOIN d.reminder r " +
+            "WHERE r.user.id = :userId " +
+            "ORDER BY dtr.date, d.id")
+    Stream<DoseTakenEntry> streamTakenEntriesByUserId(String userId);
     
     /**
      * Count doses taken for a user on a specific date
@@ -47,5 +115,5 @@ public interface DoseTakenRecordRepository extends JpaRepository<DoseTakenRecord
             "JOIN dtr.dose d " +
             "JOIN d.reminder r " +
             "WHERE r.user.id = :userId AND dtr.date = :date")
-    long countByUserIdAndDate(Integer userId, LocalDate date);
+    long countByUserIdAndDate(String userId, LocalDate date);
 }
\ No newline at end of file
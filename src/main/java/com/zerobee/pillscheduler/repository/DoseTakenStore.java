@@ -0,0 +1,56 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.entity.Dose;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Records which doses were taken on which dates, whatever the storage format:
+ * one row per dose and date ({@link RowDoseTakenStore}, the default) or one bit mask per dose and
+ * month ({@link BitmapDoseTakenStore}), chosen with pillscheduler.dose-taken.storage.
+ * Writes must run inside a transaction.
+ */
+public interface DoseTakenStore {
+    
+    /**
+     * Marks a dose as taken or not taken on a date, returns whether that changed anything
+     */
+    boolean setTaken(Dose dose, LocalDate date, boolean taken);
+    
+    /**
+     * Marks a batch of (dose, date) pairs as taken or not taken, returns the pairs that changed
+     */
+    Set<DoseTakenEntry> setTaken(Map<DoseTakenEntry, Boolean> takenByEntry);
+    
+    /**
+     * The taken dates of a batch of doses, oldest first for every dose
+     */
+    List<DoseTakenEntry> findTakenEntriesByDoseIdIn(Collection<Integer> doseIds);
+    
+    List<DoseTakenEntry> findTakenEntriesByDoseIdInAndDateBetween(Collection<Integer> doseIds,
+                                                                 LocalDate startDate, LocalDate endDate);
+    
+    List<DoseTakenEntry> findTakenEntriesByUserIdAndDateBetween(String userId, LocalDate startDate, LocalDate endDate);
+    
+    /**
+     * The materialized occurrences of a user's date range with their taken state, by date, reminder
+     * and dose. Only meaningful inside the materialized horizon, see ScheduledOccurrenceService.
+     */
+    List<ScheduledOccurrenceStatus> findOccurrenceStatuses(String userId, LocalDate startDate, LocalDate endDate);
+    
+    /**
+     * Every (dose, date) pair a user has taken, by date and then dose id.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    Stream<DoseTakenEntry> streamTakenEntriesByUserId(String userId);
+    
+    /**
+     * How many times each of a batch of doses was taken in a date range, doses never taken are left out
+     */
+    Map<Integer, Integer> countTakenByDoseId(Collection<Integer> doseIds, LocalDate startDate, LocalDate endDate);
+}
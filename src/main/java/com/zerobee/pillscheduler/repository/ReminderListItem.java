@@ -0,0 +1,37 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.dto.DoseDTO;
+import com.zerobee.pillscheduler.dto.ReminderDTO;
+import com.zerobee.pillscheduler.enums.Flag;
+import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.enums.ReminderType;
+import com.zerobee.pillscheduler.enums.Status;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The columns of a reminder shown in list views, without notes, doses or user
+ */
+public record ReminderListItem(Integer id, String r_name, String r_photo, ReminderType r_type, String category,
+                               Frequency frequency, String days, LocalDateTime start_date_time,
+                               LocalDateTime end_date_time, Flag flag, Status status, Integer remaining_doses) {
+    
+    public ReminderDTO toReminderDTO(List<DoseDTO> doses) {
+        return ReminderDTO.builder()
+                .id(id)
+                .r_name(r_name)
+                .r_photo(r_photo)
+                .r_type(r_type)
+                .category(category)
+                .frequency(frequency)
+                .days(days)
+                .start_date_time(start_date_time)
+                .end_date_time(end_date_time)
+                .flag(flag)
+                .status(status)
+                .doses(doses)
+                .remaining_doses(remaining_doses)
+                .build();
+    }
+}
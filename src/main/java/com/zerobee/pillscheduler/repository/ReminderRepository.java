@@ -1,20 +1,97 @@
 package com.zerobee.pillscheduler.repository;
 
 import com.zerobee.pillscheduler.entity.Reminder;
-import com.zerobee.pillscheduler.entity.User;
 import com.zerobee.pillscheduler.enums.Flag;
 import com.zerobee.pillscheduler.enums.Frequency;
 import com.zerobee.pillscheduler.enums.Status;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReminderRepository extends JpaRepository<Reminder, Integer> {
-    List<Reminder> findByUserAndFlagAndStatusAndFrequency(User user, Flag flag, Status status, Frequency frequency);
+    // Results of the per-user reads stay in the query cache until the reminders or doses table changes
+    String QUERY_CACHE_REGION = "reminder-queries";
     
+    @EntityGraph(Reminder.WITH_DOSES)
+    List<Reminder> findByUserIdAndFlagAndStatusAndFrequency(String userId, Flag flag, Status status, Frequency frequency);
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
     List<Reminder> findByUserId(String userId);
+    
+    /**
+     * Same as {@link #findByUserId(String)} but loads every reminder's doses in the same query
+     */
+    @EntityGraph(Reminder.WITH_DOSES)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
+    @Query("SELECT r FROM Reminder r WHERE r.user.id = :userId")
+    List<Reminder> findWithDosesByUserId(String userId);
+    
+    /**
+     * Same as {@link #findById(Object)} but loads the reminder's doses in the same query
+     */
+    @EntityGraph(Reminder.WITH_DOSES)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
+    @Query("SELECT r FROM Reminder r WHERE r.id = :id")
+    Optional<Reminder> findWithDosesById(Integer id);
+    
+    /**
+     * The user's reminders with a materialized occurrence on the date (see
+     * {@link com.zerobee.pillscheduler.entity.ScheduledOccurrence}), with their doses, plus every
+     * reminder of the user without doses, which has no occurrences: the caller checks its rule.
+     * Not cached: the occurrences are written with plain JDBC, which the query cache does not see.
+     */
+    @EntityGraph(Reminder.WITH_DOSES)
+    @Query("SELECT r FROM Reminder r WHERE r.user.id = :userId AND (r.doses IS EMPTY OR r.id IN " +
+            "(SELECT o.reminderId FROM ScheduledOccurrence o WHERE o.userId = :userId AND o.date = :date))")
+    List<Reminder> findWithDosesScheduledOn(String userId, LocalDate date);
+    
+    /**
+     * The user's reminders without doses, which have no materialized occurrences
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
+    @Query("SELECT r FROM Reminder r WHERE r.user.id = :userId AND r.doses IS EMPTY")
+    List<Reminder> findWithoutDosesByUserId(String userId);
+    
+    /**
+     * The user's reminders among the given ids, with their doses
+     */
+    @EntityGraph(Reminder.WITH_DOSES)
+    @Query("SELECT r FROM Reminder r WHERE r.user.id = :userId AND r.id IN :ids")
+    List<Reminder> findWithDosesByUserIdAndIdIn(String userId, Collection<Integer> ids);
+    
+    /**
+     * One page of a user's reminders in id order, list view columns only. Pass the id of the last
+     * reminder of the previous page as afterId.
+     */
+    @Query("SELECT new com.zerobee.pillscheduler.repository.ReminderListItem(r.id, r.r_name, r.r_photo, r.r_type, " +
+            "r.category, r.frequency, r.days, r.start_date_time, r.end_date_time, r.flag, r.status, r.remaining_doses) " +
+            "FROM Reminder r " +
+            "WHERE r.user.id = :userId AND r.flag IN :flags AND r.id > :afterId " +
+            "ORDER BY r.id")
+    List<ReminderListItem> findListPageByUserId(String userId, Collection<Flag> flags, Integer afterId, Pageable pageable);
 }
 
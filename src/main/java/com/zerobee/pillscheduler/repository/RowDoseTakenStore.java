@@ -0,0 +1,107 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.DoseTakenRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Stores one {@link DoseTakenRecord} per dose and date
+ */
+@Repository
+@ConditionalOnProperty(name = "pillscheduler.dose-taken.storage", havingValue = "rows", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RowDoseTakenStore implements DoseTakenStore {
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO dose_taken_records (dose_id, date) VALUES (?, ?) ON CONFLICT (dose_id, date) DO NOTHING";
+    private static final String DELETE_SQL = "DELETE FROM dose_taken_records WHERE dose_id = ? AND date = ?";
+    private static final Comparator<DoseTakenEntry> KEY_ORDER =
+            Comparator.comparing(DoseTakenEntry::doseId).thenComparing(DoseTakenEntry::date);
+    
+    private final DoseTakenRecordRepository doseTakenRecordRepository;
+    private final ScheduledOccurrenceRepository scheduledOccurrenceRepository;
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public boolean setTaken(Dose dose, LocalDate date, boolean taken) {
+        if (taken) {
+            return doseTakenRecordRepository.insertIfAbsent(dose.getId(), date) > 0;
+        }
+        return doseTakenRecordRepository.deleteByDoseIdAndDate(dose.getId(), date) > 0;
+    }
+    
+    /**
+     * One JDBC batch of conflict-ignoring inserts and one of deletes, each in (dose, date) order so
+     * concurrent batches lock the same keys in the same order. What changed comes from the row count
+     * of every statement, which PostgreSQL reports per statement of a batch.
+     */
+    @Override
+    public Set<DoseTakenEntry> setTaken(Map<DoseTakenEntry, Boolean> takenByEntry) {
+        List<DoseTakenEntry> toInsert = new ArrayList<>();
+        List<DoseTakenEntry> toDelete = new ArrayList<>();
+        takenByEntry.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(KEY_ORDER))
+                .forEach(entry -> (entry.getValue() ? toInsert : toDelete).add(entry.getKey()));
+        
+        Set<DoseTakenEntry> changed = new LinkedHashSet<>();
+        execute(INSERT_SQL, toInsert, changed);
+        execute(DELETE_SQL, toDelete, changed);
+        return changed;
+    }
+    
+    @Override
+    public List<DoseTakenEntry> findTakenEntriesByDoseIdIn(Collection<Integer> doseIds) {
+        return doseTakenRecordRepository.findTakenEntriesByDoseIdIn(doseIds);
+    }
+    
+    @Override
+    public List<DoseTakenEntry> findTakenEntriesByDoseIdInAndDateBetween(Collection<Integer> doseIds,
+                                                                        LocalDate startDate, LocalDate endDate) {
+        return doseTakenRecordRepository.findTakenEntriesByDoseIdInAndDateBetween(doseIds, startDate, endDate);
+    }
+    
+    @Override
+    public List<DoseTakenEntry> findTakenEntriesByUserIdAndDateBetween(String userId, LocalDate startDate, LocalDate endDate) {
+        return doseTakenRecordRepository.findTakenEntriesByUserIdAndDateBetween(userId, startDate, endDate);
+    }
+    
+    @Override
+    public List<ScheduledOccurrenceStatus> findOccurrenceStatuses(String userId, LocalDate startDate, LocalDate endDate) {
+        return scheduledOccurrenceRepository.findStatusesByUserIdAndDateBetween(userId, startDate, endDate);
+    }
+    
+    @Override
+    public Stream<DoseTakenEntry> streamTakenEntriesByUserId(String userId) {
+        return doseTakenRecordRepository.streamTakenEntriesByUserId(userId);
+    }
+    
+    private void execute(String sql, List<DoseTakenEntry> entries, Set<DoseTakenEntry> changed) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        int[] rowCounts = jdbcTemplate.batchUpdate(sql, entries.stream()
+                .map(entry -> new Object[]{entry.doseId(), entry.date()})
+                .toList());
+        for (int i = 0; i < rowCounts.length; i++) {
+            if (rowCounts[i] > 0) {
+                changed.add(entries.get(i));
+            }
+        }
+    }
+    
+    @Override
+    public Map<Integer, Integer> countTakenByDoseId(Collection<Integer> doseIds, LocalDate startDate, LocalDate endDate) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (DoseTakenEntry entry : doseTakenRecordRepository.findTakenEntriesByDoseIdInAndDateBetween(doseIds, startDate, endDate)) {
+            counts.merge(entry.doseId(), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
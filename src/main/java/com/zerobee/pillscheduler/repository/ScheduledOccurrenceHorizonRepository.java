@@ -0,0 +1,29 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.entity.ScheduledOccurrenceHorizon;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ScheduledOccurrenceHorizonRepository extends JpaRepository<ScheduledOccurrenceHorizon, Integer> {
+    
+    /**
+     * The horizon, locked against concurrent extensions and reminder regenerations
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM ScheduledOccurrenceHorizon h WHERE h.id = :id")
+    Optional<ScheduledOccurrenceHorizon> findForUpdate(Integer id);
+    
+    /**
+     * The horizon, locked against extensions only: regenerations of different reminders do not
+     * wait for each other
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT h FROM ScheduledOccurrenceHorizon h WHERE h.id = :id")
+    Optional<ScheduledOccurrenceHorizon> findForShare(Integer id);
+}
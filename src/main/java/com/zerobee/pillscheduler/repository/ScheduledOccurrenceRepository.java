@@ -0,0 +1,56 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.entity.ScheduledOccurrence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ScheduledOccurrenceRepository extends JpaRepository<ScheduledOccurrence, ScheduledOccurrence.Key> {
+    
+    /**
+     * The occurrences of a user in a date range with their taken state, by date, reminder and dose:
+     * a range scan of the primary key joined to dose_taken_records on its (dose_id, date) key
+     */
+    @Query("SELECT new com.zerobee.pillscheduler.repository.ScheduledOccurrenceStatus(" +
+            "r.id, r.r_name, d.id, d.doseTime, o.date, CASE WHEN dtr.id IS NULL THEN false ELSE true END) " +
+            "FROM ScheduledOccurrence o " +
+            "JOIN Dose d ON d.id = o.doseId " +
+            "JOIN d.reminder r " +
+            "LEFT JOIN DoseTakenRecord dtr ON dtr.dose.id = o.doseId AND dtr.date = o.date " +
+            "WHERE o.userId = :userId AND o.date BETWEEN :startDate AND :endDate " +
+            "ORDER BY o.date, r.id, d.id")
+    List<ScheduledOccurrenceStatus> findStatusesByUserIdAndDateBetween(String userId, LocalDate startDate,
+                                                                       LocalDate endDate);
+    
+    /**
+     * Same as {@link #findStatusesByUserIdAndDateBetween} but without the taken state, for storages
+     * that do not keep one row per taken dose
+     */
+    @Query("SELECT new com.zerobee.pillscheduler.repository.ScheduledOccurrenceStatus(" +
+            "r.id, r.r_name, d.id, d.doseTime, o.date, false) " +
+            "FROM ScheduledOccurrence o " +
+            "JOIN Dose d ON d.id = o.doseId " +
+            "JOIN d.reminder r " +
+            "WHERE o.userId = :userId AND o.date BETWEEN :startDate AND :endDate " +
+            "ORDER BY o.date, r.id, d.id")
+    List<ScheduledOccurrenceStatus> findByUserIdAndDateBetween(String userId, LocalDate startDate, LocalDate endDate);
+    
+    @Modifying
+    @Query("DELETE FROM ScheduledOccurrence o WHERE o.reminderId = :reminderId")
+    int deleteByReminderId(Integer reminderId);
+    
+    @Modifying
+    @Query("DELETE FROM ScheduledOccurrence o " +
+            "WHERE o.doseId BETWEEN :fromDoseId AND :toDoseId AND o.date BETWEEN :startDate AND :endDate")
+    int deleteByDoseIdBetweenAndDateBetween(Integer fromDoseId, Integer toDoseId, LocalDate startDate,
+                                            LocalDate endDate);
+    
+    @Modifying
+    @Query("DELETE FROM ScheduledOccurrence o WHERE o.date < :date")
+    int deleteBefore(LocalDate date);
+}
@@ -0,0 +1,20 @@
+package com.zerobee.pillscheduler.repository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A scheduled occurrence (see {@link com.zerobee.pillscheduler.entity.ScheduledOccurrence}) with
+ * what a daily summary shows of its reminder and dose, and whether it was taken
+ */
+public record ScheduledOccurrenceStatus(Integer reminderId, String reminderName, Integer doseId, LocalTime doseTime,
+                                        LocalDate date, boolean taken) {
+    
+    public ScheduledOccurrenceStatus withTaken(boolean taken) {
+        return new ScheduledOccurrenceStatus(reminderId, reminderName, doseId, doseTime, date, taken);
+    }
+    
+    public DoseTakenEntry entry() {
+        return new DoseTakenEntry(doseId, date);
+    }
+}
@@ -0,0 +1,29 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.entity.UserDataVersion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UserDataVersionRepository extends JpaRepository<UserDataVersion, String> {
+    
+    @Query("SELECT v.version FROM UserDataVersion v WHERE v.userId = :userId")
+    Optional<Long> findVersionByUserId(String userId);
+    
+    /**
+     * Raises the version in place, or creates the row at initialVersion if the user has none, so
+     * concurrent writes never hand out the same version twice, not even the first one
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_data_versions"))
+    @Query(value = "INSERT INTO user_data_versions (user_id, version) VALUES (:userId, :initialVersion) " +
+            "ON CONFLICT (user_id) DO UPDATE SET version = user_data_versions.version + 1", nativeQuery = true)
+    int increment(String userId, long initialVersion);
+}
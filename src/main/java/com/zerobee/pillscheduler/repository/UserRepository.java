@@ -1,9 +1,19 @@
 package com.zerobee.pillscheduler.repository;
 
 import com.zerobee.pillscheduler.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, String> {
+    
+    /**
+     * Walk all user ids in batches, keyed on the last id of the previous batch
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<String> findIdsAfter(String afterId, Pageable pageable);
 }
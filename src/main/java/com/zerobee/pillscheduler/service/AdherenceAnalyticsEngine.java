@@ -0,0 +1,241 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.AdherenceAnalyticsDTO;
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import com.zerobee.pillscheduler.utils.RecurrenceRule;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Computes the adherence analytics of a date range in a single pass over its days. The doses of
+ * the reminders get dense indexes and the taken records become one bitset per dose, indexed by
+ * the day's offset in the range, so the pass only reads primitive arrays: for every day it checks
+ * each reminder's rule and the bits of its doses, and adds the outcome to the streak, week, month,
+ * reminder and hour of day counters at once.
+ */
+class AdherenceAnalyticsEngine {
+    
+    private final List<Reminder> reminders;
+    private final RecurrenceRule[] rules;
+    // Doses of reminder r have the indexes firstDose[r] up to firstDose[r + 1]
+    private final int[] firstDose;
+    // Hour of the dose time, -1 without dose time
+    private final int[] doseHour;
+    private final long startEpochDay;
+    private final int days;
+    private final int wordsPerDose;
+    private final long[] takenBits;
+    
+    AdherenceAnalyticsEngine(List<Reminder> reminders, List<DoseTakenEntry> takenEntries,
+                             LocalDate startDate, LocalDate endDate) {
+        this.reminders = reminders;
+        this.rules = new RecurrenceRule[reminders.size()];
+        this.firstDose = new int[reminders.size() + 1];
+        this.startEpochDay = startDate.toEpochDay();
+        this.days = Math.toIntExact(endDate.toEpochDay() - startEpochDay + 1);
+        this.wordsPerDose = (days + 63) >>> 6;
+        
+        Map<Integer, Integer> doseIndexById = new HashMap<>();
+        List<Integer> hours = new ArrayList<>();
+        for (int r = 0; r < reminders.size(); r++) {
+            Reminder reminder = reminders.get(r);
+            rules[r] = RecurrenceRule.of(reminder);
+            firstDose[r] = hours.size();
+            for (Dose dose : reminder.getDoses()) {
+                doseIndexById.put(dose.getId(), hours.size());
+                hours.add(dose.getDoseTime() != null ? dose.getDoseTime().getHour() : -1);
+            }
+        }
+        firstDose[reminders.size()] = hours.size();
+        this.doseHour = hours.stream().mapToInt(Integer::intValue).toArray();
+        
+        this.takenBits = new long[doseHour.length * wordsPerDose];
+        for (DoseTakenEntry entry : takenEntries) {
+            Integer doseIndex = doseIndexById.get(entry.doseId());
+            long offset = entry.date().toEpochDay() - startEpochDay;
+            if (doseIndex != null && offset >= 0 && offset < days) {
+                takenBits[doseIndex * wordsPerDose + (int) (offset >>> 6)] |= 1L << offset;
+            }
+        }
+    }
+    
+    /**
+     * Analytics of the whole range, which must not end after today
+     */
+    AdherenceAnalyticsDTO analyze(LocalDate today) {
+        long todayEpochDay = today.toEpochDay();
+        int[] reminderScheduled = new int[reminders.size()];
+        int[] reminderTaken = new int[reminders.size()];
+        int[] hourScheduled = new int[24];
+        int[] hourMissed = new int[24];
+        int scheduled = 0;
+        int taken = 0;
+        int streak = 0;
+        int longestStreak = 0;
+        
+        List<AdherenceAnalyticsDTO.PeriodAdherenceDTO> weekly = new ArrayList<>();
+        List<AdherenceAnalyticsDTO.PeriodAdherenceDTO> monthly = new ArrayList<>();
+        long weekStart = startEpochDay;
+        int weekScheduled = 0;
+        int weekTaken = 0;
+        long monthStart = startEpochDay;
+        long nextMonthStart = LocalDate.ofEpochDay(startEpochDay).withDayOfMonth(1).plusMonths(1).toEpochDay();
+        int monthScheduled = 0;
+        int monthTaken = 0;
+        
+        for (int day = 0; day < days; day++) {
+            long epochDay = startEpochDay + day;
+            // Epoch day 0 was a Thursday, so (epochDay + 3) mod 7 is 0 on Mondays
+            if (day > 0 && Math.floorMod(epochDay + 3, 7L) == 0) {
+                weekly.add(period(weekStart, epochDay - 1, weekScheduled, weekTaken));
+                weekStart = epochDay;
+                weekScheduled = 0;
+                weekTaken = 0;
+            }
+            if (epochDay == nextMonthStart) {
+                monthly.add(period(monthStart, epochDay - 1, monthScheduled, monthTaken));
+                monthStart = epochDay;
+                nextMonthStart = LocalDate.ofEpochDay(epochDay).plusMonths(1).toEpochDay();
+                monthScheduled = 0;
+                monthTaken = 0;
+            }
+            
+            int word = day >>> 6;
+            long bit = 1L << day;
+            int dayScheduled = 0;
+            int dayTaken = 0;
+            for (int r = 0; r < rules.length; r++) {
+                if (!rules[r].appliesOn(epochDay)) {
+                    continue;
+                }
+                int reminderDayTaken = 0;
+                for (int d = firstDose[r]; d < firstDose[r + 1]; d++) {
+                    boolean doseTaken = (takenBits[d * wordsPerDose + word] & bit) != 0;
+                    if (doseTaken) {
+                        reminderDayTaken++;
+                    }
+                    int hour = doseHour[d];
+                    if (hour >= 0) {
+                        hourScheduled[hour]++;
+                        if (!doseTaken) {
+                            hourMissed[hour]++;
+                        }
+                    }
+                }
+                int reminderDayScheduled = firstDose[r + 1] - firstDose[r];
+                reminderScheduled[r] += reminderDayScheduled;
+                reminderTaken[r] += reminderDayTaken;
+                dayScheduled += reminderDayScheduled;
+                dayTaken += reminderDayTaken;
+            }
+            
+            if (dayScheduled > 0) {
+                if (dayTaken == dayScheduled) {
+                    streak++;
+                    longestStreak = Math.max(longestStreak, streak);
+                } else if (epochDay != todayEpochDay) {
+                    streak = 0;
+                }
+            }
+            scheduled += dayScheduled;
+            taken += dayTaken;
+            weekScheduled += dayScheduled;
+            weekTaken += dayTaken;
+            monthScheduled += dayScheduled;
+            monthTaken += dayTaken;
+        }
+        long endEpochDay = startEpochDay + days - 1;
+        weekly.add(period(weekStart, endEpochDay, weekScheduled, weekTaken));
+        monthly.add(period(monthStart, endEpochDay, monthScheduled, monthTaken));
+        
+        List<AdherenceAnalyticsDTO.ReminderAdherenceDTO> reminderAdherence = new ArrayList<>(reminders.size());
+        for (int r = 0; r < reminders.size(); r++) {
+            reminderAdherence.add(AdherenceAnalyticsDTO.ReminderAdherenceDTO.builder()
+                    .reminderId(reminders.get(r).getId())
+                    .reminderName(reminders.get(r).getR_name())
+                    .scheduledDoses(reminderScheduled[r])
+                    .takenDoses(reminderTaken[r])
+                    .adherencePercentage(percentage(reminderTaken[r], reminderScheduled[r]))
+                    .build());
+        }
+        List<AdherenceAnalyticsDTO.HourlyMissesDTO> missesByHour = new ArrayList<>();
+        for (int hour = 0; hour < 24; hour++) {
+            if (hourScheduled[hour] > 0) {
+                missesByHour.add(AdherenceAnalyticsDTO.HourlyMissesDTO.builder()
+                        .hour(hour)
+                        .scheduledDoses(hourScheduled[hour])
+                        .missedDoses(hourMissed[hour])
+                        .missPercentage(percentage(hourMissed[hour], hourScheduled[hour]))
+                        .build());
+            }
+        }
+        
+        return AdherenceAnalyticsDTO.builder()
+                .startDate(LocalDate.ofEpochDay(startEpochDay))
+                .endDate(LocalDate.ofEpochDay(endEpochDay))
+                .scheduledDoses(scheduled)
+                .takenDoses(taken)
+                .adherencePercentage(percentage(taken, scheduled))
+                .currentStreak(streak)
+                .longestStreak(longestStreak)
+                .weekly(weekly)
+                .monthly(monthly)
+                .reminders(reminderAdherence)
+                .missesByHour(missesByHour)
+                .build();
+    }
+    
+    /**
+     * The fully taken days counted back from the end of the range up to the first missed one, and
+     * whether no day of the range was missed, so the run may go on before it. Like in
+     * {@link #analyze}, days without scheduled doses and an unfinished today are skipped.
+     */
+    TrailingStreak trailingStreak(LocalDate today) {
+        long todayEpochDay = today.toEpochDay();
+        int streak = 0;
+        for (int day = days - 1; day >= 0; day--) {
+            long epochDay = startEpochDay + day;
+            int word = day >>> 6;
+            long bit = 1L << day;
+            boolean scheduled = false;
+            boolean missed = false;
+            for (int r = 0; r < rules.length; r++) {
+                if (!rules[r].appliesOn(epochDay)) {
+                    continue;
+                }
+                for (int d = firstDose[r]; d < firstDose[r + 1]; d++) {
+                    scheduled = true;
+                    missed |= (takenBits[d * wordsPerDose + word] & bit) == 0;
+                }
+            }
+            if (scheduled && !missed) {
+                streak++;
+            } else if (missed && epochDay != todayEpochDay) {
+                return new TrailingStreak(streak, false);
+            }
+        }
+        return new TrailingStreak(streak, true);
+    }
+    
+    record TrailingStreak(int days, boolean reachesStart) {
+    }
+    
+    private static AdherenceAnalyticsDTO.PeriodAdherenceDTO period(long startEpochDay, long endEpochDay,
+                                                                   int scheduled, int taken) {
+        return AdherenceAnalyticsDTO.PeriodAdherenceDTO.builder()
+                .startDate(LocalDate.ofEpochDay(startEpochDay))
+                .endDate(LocalDate.ofEpochDay(endEpochDay))
+                .scheduledDoses(scheduled)
+                .takenDoses(taken)
+                .adherencePercentage(percentage(taken, scheduled))
+                .build();
+    }
+    
+    private static double percentage(int part, int whole) {
+        double percentage = whole > 0 ? ((double) part / whole) * 100 : 0;
+        return Math.round(percentage * 100.0) / 100.0; // Round to 2 decimal places
+    }
+}
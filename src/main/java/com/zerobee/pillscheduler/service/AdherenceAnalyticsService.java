@@ -0,0 +1,101 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.AdherenceAnalyticsDTO;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.entity.User;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import com.zerobee.pillscheduler.repository.DoseTakenStore;
+import com.zerobee.pillscheduler.repository.ReminderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Adherence analytics of a user over a date range: streaks, weekly and monthly adherence, adherence
+ * per reminder and missed doses by hour of day. The reminders and the taken records of the range
+ * are loaded with one query each and analysed by the {@link AdherenceAnalyticsEngine}. A current
+ * streak that began before the range is followed back a year of records at a time.
+ */
+@Service
+@RequiredArgsConstructor
+public class AdherenceAnalyticsService {
+    
+    static final int DEFAULT_DAYS = 90;
+    // About ten years, which bounds the taken bitsets to a few kilobytes per dose
+    static final int MAX_DAYS = 3660;
+    // Records read per query while following a current streak back before the range
+    static final int STREAK_WINDOW_DAYS = 366;
+    
+    private final UserService userService;
+    private final ReminderRepository reminderRepository;
+    private final DoseTakenStore doseTakenStore;
+    private final DoseMarkBuffer doseMarkBuffer;
+    
+    /**
+     * Analytics from startDate to endDate, both inclusive. endDate defaults to today and is capped
+     * at today, startDate defaults to the 90 days up to endDate.
+     */
+    public AdherenceAnalyticsDTO analyze(String token, LocalDate startDate, LocalDate endDate) {
+        LocalDate today = LocalDate.now();
+        LocalDate end = endDate == null || endDate.isAfter(today) ? today : endDate;
+        LocalDate start = startDate != null ? startDate : end.minusDays(DEFAULT_DAYS - 1);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Start date cannot be after end date");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_DAYS) {
+            throw new IllegalArgumentException("Date range cannot be longer than " + MAX_DAYS + " days");
+        }
+        
+        User user = userService.fetchUser(token).toUser();
+        List<Reminder> reminders = reminderRepository.findWithDosesByUserId(user.getId());
+        AdherenceAnalyticsEngine engine = new AdherenceAnalyticsEngine(reminders,
+                takenEntries(user.getId(), start, end), start, end);
+        AdherenceAnalyticsDTO analytics = engine.analyze(today);
+        if (engine.trailingStreak(today).reachesStart()) {
+            int currentStreak = analytics.getCurrentStreak() + streakBefore(user.getId(), reminders, start, today);
+            analytics.setCurrentStreak(currentStreak);
+            analytics.setLongestStreak(Math.max(analytics.getLongestStreak(), currentStreak));
+        }
+        return analytics;
+    }
+    
+    /**
+     * The fully taken days right before startDate, read back window by window until the first
+     * missed day or the first day any reminder starts on
+     */
+    private int streakBefore(String userId, List<Reminder> reminders, LocalDate startDate, LocalDate today) {
+        Optional<LocalDate> firstStart = reminders.stream()
+                .map(Reminder::getStart_date_time)
+                .filter(Objects::nonNull)
+                .map(LocalDateTime::toLocalDate)
+                .min(Comparator.naturalOrder());
+        int streak = 0;
+        LocalDate windowEnd = startDate.minusDays(1);
+        while (firstStart.isPresent() && !windowEnd.isBefore(firstStart.get())) {
+            LocalDate windowStart = windowEnd.minusDays(STREAK_WINDOW_DAYS - 1);
+            if (windowStart.isBefore(firstStart.get())) {
+                windowStart = firstStart.get();
+            }
+            AdherenceAnalyticsEngine.TrailingStreak window = new AdherenceAnalyticsEngine(reminders,
+                    takenEntries(userId, windowStart, windowEnd), windowStart, windowEnd).trailingStreak(today);
+            streak += window.days();
+            if (!window.reachesStart()) {
+                break;
+            }
+            windowEnd = windowStart.minusDays(1);
+        }
+        return streak;
+    }
+    
+    private List<DoseTakenEntry> takenEntries(String userId, LocalDate startDate, LocalDate endDate) {
+        return doseMarkBuffer.overlayPending(userId,
+                doseTakenStore.findTakenEntriesByUserIdAndDateBetween(userId, startDate, endDate), startDate, endDate);
+    }
+}
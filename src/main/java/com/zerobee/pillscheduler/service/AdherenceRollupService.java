@@ -0,0 +1,231 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.DailyReminderSummaryDTO;
+import com.zerobee.pillscheduler.entity.DailyAdherence;
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.repository.DailyAdherenceRepository;
+import com.zerobee.pillscheduler.repository.DoseRepository;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import com.zerobee.pillscheduler.repository.DoseTakenStore;
+import com.zerobee.pillscheduler.repository.ReminderRepository;
+import com.zerobee.pillscheduler.repository.UserRepository;
+import com.zerobee.pillscheduler.utils.RecurrenceRule;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Maintains the {@link DailyAdherence} rollup. Dose marks adjust the taken count of the affected
+ * day in the caller's transaction, schedule changes drop the affected days, and reads fill any day
+ * that is missing by recomputing it from the raw records. Every write first takes the user's rollup
+ * lock (see {@link DailyAdherenceRepository#lockUser}), and days are recomputed under it, so a mark
+ * committed while a day is being recomputed is either counted by the recomputation or adjusts the
+ * stored row afterwards.
+ */
+@Service
+@Log4j2
+public class AdherenceRollupService {
+    
+    private static final int REBUILD_BATCH_SIZE = 100;
+    
+    private final DailyAdherenceRepository dailyAdherenceRepository;
+    private final ReminderRepository reminderRepository;
+    private final DoseTakenStore doseTakenStore;
+    private final DoseRepository doseRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildDays;
+    
+    public AdherenceRollupService(DailyAdherenceRepository dailyAdherenceRepository,
+                                  ReminderRepository reminderRepository,
+                                  DoseTakenStore doseTakenStore,
+                                  DoseRepository doseRepository,
+                                  UserRepository userRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${pillscheduler.rollup.rebuild-days:35}") int rebuildDays) {
+        this.dailyAdherenceRepository = dailyAdherenceRepository;
+        this.reminderRepository = reminderRepository;
+        this.doseTakenStore = doseTakenStore;
+        this.doseRepository = doseRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildDays = rebuildDays;
+    }
+    
+    /**
+     * Applies a taken (+1) or not taken (-1) change of a scheduled dose to its day.
+     * Must run inside the transaction that changed the dose taken record.
+     */
+    @Transactional
+    public void adjustDosesTaken(String userId, LocalDate date, int delta) {
+        dailyAdherenceRepository.lockUser(userId);
+        dailyAdherenceRepository.adjustDosesTaken(userId, date, delta);
+    }
+    
+    /**
+     * Drops the rolled up days from the given date on, after the user's schedule changed.
+     * They are recomputed on the next read.
+     */
+    @Transactional
+    public void invalidateFrom(String userId, LocalDate fromDate) {
+        dailyAdherenceRepository.lockUser(userId);
+        int removed = dailyAdherenceRepository.deleteByUserIdFrom(userId, fromDate);
+        log.debug("Invalidated {} rolled up days of user {} from {}", removed, userId, fromDate);
+    }
+    
+    /**
+     * Summaries without reminder statuses for every day of the range, read from the rollup with
+     * one range scan. Days without a row are recomputed and stored for the next read. Pending marks
+     * (see {@link DoseMarkBuffer}) of the range adjust the taken counts of their days.
+     */
+    public List<DailyReminderSummaryDTO> readRange(String userId, LocalDate startDate, LocalDate endDate,
+                                                   Map<DoseTakenEntry, Boolean> pending) {
+        List<DailyAdherence> rows = dailyAdherenceRepository
+                .findByUserIdAndDateBetweenOrderByDate(userId, startDate, endDate);
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        if (rows.size() < days) {
+            rows = fillMissingDays(userId, startDate, endDate);
+        }
+        Map<LocalDate, Integer> pendingDeltas = pendingDeltas(userId, startDate, endDate, pending);
+        return rows.stream()
+                .map(row -> withDelta(row, pendingDeltas.getOrDefault(row.getDate(), 0)).toSummaryDTO())
+                .toList();
+    }
+    
+    /**
+     * Recomputes and replaces the rolled up days of a user in the given range
+     */
+    public void rebuild(String userId, LocalDate startDate, LocalDate endDate) {
+        transactionTemplate.executeWithoutResult(status -> {
+            dailyAdherenceRepository.lockUser(userId);
+            ReminderHistoryEngine engine = loadEngine(userId, startDate, endDate);
+            List<DailyAdherence> rows = engine.summarize(startDate, endDate).stream()
+                    .map(summary -> DailyAdherence.fromSummary(userId, summary))
+                    .toList();
+            dailyAdherenceRepository.deleteByUserIdBetween(userId, startDate, endDate);
+            dailyAdherenceRepository.saveAll(rows);
+        });
+    }
+    
+    /**
+     * Nightly backfill and drift correction of the recent days of every user
+     */
+    @Scheduled(cron = "${pillscheduler.rollup.rebuild-cron:0 30 3 * * *}")
+    public void rebuildRecentDays() {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(rebuildDays - 1);
+        String lastUserId = "";
+        int rebuiltUsers = 0;
+        List<String> userIds;
+        do {
+            userIds = userRepository.findIdsAfter(lastUserId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (String userId : userIds) {
+                try {
+                    rebuild(userId, startDate, endDate);
+                    rebuiltUsers++;
+                } catch (RuntimeException e) {
+                    log.error("Failed to rebuild adherence rollup of user {}: {}", userId, e.getMessage());
+                }
+                lastUserId = userId;
+            }
+        } while (userIds.size() == REBUILD_BATCH_SIZE);
+        log.info("Rebuilt adherence rollup of {} users from {} to {}", rebuiltUsers, startDate, endDate);
+    }
+    
+    /**
+     * Computes and stores the days missing from the range in one transaction under the user's
+     * rollup lock. Rows another read stored in the meantime are taken as they are.
+     */
+    private List<DailyAdherence> fillMissingDays(String userId, LocalDate startDate, LocalDate endDate) {
+        return transactionTemplate.execute(status -> {
+            dailyAdherenceRepository.lockUser(userId);
+            Map<LocalDate, DailyAdherence> rowsByDate = new TreeMap<>();
+            dailyAdherenceRepository.findByUserIdAndDateBetweenOrderByDate(userId, startDate, endDate)
+                    .forEach(row -> rowsByDate.put(row.getDate(), row));
+            if (rowsByDate.size() == ChronoUnit.DAYS.between(startDate, endDate) + 1) {
+                return new ArrayList<>(rowsByDate.values());
+            }
+            
+            ReminderHistoryEngine engine = loadEngine(userId, startDate, endDate);
+            List<DailyAdherence> missingRows = new ArrayList<>();
+            for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                if (!rowsByDate.containsKey(date)) {
+                    DailyAdherence row = DailyAdherence.fromSummary(userId, engine.summarize(date));
+                    missingRows.add(row);
+                    rowsByDate.put(date, row);
+                }
+            }
+            dailyAdherenceRepository.saveAll(missingRows);
+            return new ArrayList<>(rowsByDate.values());
+        });
+    }
+    
+    /**
+     * The change of every day's taken count the pending marks of the range would make: only marks
+     * of scheduled doses that differ from the stored state count, like in the write path
+     */
+    private Map<LocalDate, Integer> pendingDeltas(String userId, LocalDate startDate, LocalDate endDate,
+                                                  Map<DoseTakenEntry, Boolean> pending) {
+        Map<DoseTakenEntry, Boolean> inRange = new HashMap<>();
+        pending.forEach((entry, taken) -> {
+            if (!entry.date().isBefore(startDate) && !entry.date().isAfter(endDate)) {
+                inRange.put(entry, taken);
+            }
+        });
+        if (inRange.isEmpty()) {
+            return Map.of();
+        }
+        Set<Integer> doseIds = new HashSet<>();
+        inRange.keySet().forEach(entry -> doseIds.add(entry.doseId()));
+        Map<Integer, Dose> doses = new HashMap<>();
+        doseRepository.findOwnedWithReminder(doseIds, userId).forEach(dose -> doses.put(dose.getId(), dose));
+        Set<DoseTakenEntry> stored = new HashSet<>(
+                doseTakenStore.findTakenEntriesByDoseIdInAndDateBetween(doseIds, startDate, endDate));
+        
+        Map<LocalDate, Integer> deltas = new HashMap<>();
+        Map<Integer, RecurrenceRule> rules = new HashMap<>();
+        inRange.forEach((entry, taken) -> {
+            Dose dose = doses.get(entry.doseId());
+            if (dose == null || taken == stored.contains(entry)) {
+                return;
+            }
+            RecurrenceRule rule = rules.computeIfAbsent(dose.getReminder().getId(),
+                    id -> RecurrenceRule.of(dose.getReminder()));
+            if (rule.appliesOn(entry.date())) {
+                deltas.merge(entry.date(), taken ? 1 : -1, Integer::sum);
+            }
+        });
+        return deltas;
+    }
+    
+    /**
+     * A copy of the row with the delta applied, the row itself may be managed and must not change
+     */
+    private static DailyAdherence withDelta(DailyAdherence row, int delta) {
+        if (delta == 0) {
+            return row;
+        }
+        return DailyAdherence.builder()
+                .userId(row.getUserId())
+                .date(row.getDate())
+                .totalReminders(row.getTotalReminders())
+                .totalDoses(row.getTotalDoses())
+                .dosesTaken(row.getDosesTaken() + delta)
+                .build();
+    }
+    
+    private ReminderHistoryEngine loadEngine(String userId, LocalDate startDate, LocalDate endDate) {
+        return new ReminderHistoryEngine(
+                reminderRepository.findWithDosesByUserId(userId),
+                doseTakenStore.findTakenEntriesByUserIdAndDateBetween(userId, startDate, endDate));
+    }
+}
@@ -0,0 +1,35 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.entity.ChangeLogEntry;
+import com.zerobee.pillscheduler.repository.ChangeLogRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Appends the changes of a write to the change log read by {@link ReminderSyncService}
+ */
+@Service
+@RequiredArgsConstructor
+public class ChangeLogService {
+    
+    private final ChangeLogRepository changeLogRepository;
+    private final DataVersionService dataVersionService;
+    
+    /**
+     * Raises the user's data version and appends the changes under it, as part of the current
+     * transaction. The changes are inserted in one JDBC batch when the transaction flushes.
+     */
+    @Transactional
+    public long record(String userId, List<ChangeLogEntry> changes) {
+        long version = dataVersionService.bump(userId);
+        for (ChangeLogEntry change : changes) {
+            change.setUserId(userId);
+            change.setVersion(version);
+        }
+        changeLogRepository.saveAll(changes);
+        return version;
+    }
+}
@@ -0,0 +1,78 @@
+package com.zerobee.pillscheduler.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zerobee.pillscheduler.repository.UserDataVersionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Per-user data versions behind the ETags of the read endpoints. Every write in ReminderService and
+ * UserService raises the user's version, so an unchanged version means an unchanged response.
+ * Versions are kept in memory once read: this instance's writes evict them when they commit, writes
+ * of other instances show up after the TTL at the latest.
+ */
+@Service
+public class DataVersionService {
+    
+    private final UserDataVersionRepository userDataVersionRepository;
+    private final Cache<String, Long> versions;
+    private final Clock clock;
+    
+    @Autowired
+    public DataVersionService(UserDataVersionRepository userDataVersionRepository,
+                              @Value("${pillscheduler.data-version.cache-max-size:100000}") long maxSize,
+                              @Value("${pillscheduler.data-version.cache-ttl:PT30S}") Duration ttl) {
+        this(userDataVersionRepository, maxSize, ttl, Clock.systemUTC());
+    }
+    
+    DataVersionService(UserDataVersionRepository userDataVersionRepository, long maxSize, Duration ttl, Clock clock) {
+        this.userDataVersionRepository = userDataVersionRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.clock = clock;
+    }
+    
+    public long currentVersion(String userId) {
+        return versions.get(userId, id -> userDataVersionRepository.findVersionByUserId(id).orElse(0L));
+    }
+    
+    /**
+     * Raises the user's version as part of the current transaction and returns the new version.
+     * The raised row stays locked until the transaction ends, so the writes of one user commit in
+     * version order.
+     */
+    @Transactional
+    public long bump(String userId) {
+        // Starting from the clock keeps versions increasing even if the row was lost
+        userDataVersionRepository.increment(userId, clock.millis());
+        long version = userDataVersionRepository.findVersionByUserId(userId).orElseThrow();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                versions.invalidate(userId);
+            }
+        });
+        return version;
+    }
+    
+    /**
+     * A strong ETag for a response built from the user's data and the given request parameters
+     */
+    public String etag(String userId, Object... parts) {
+        StringBuilder etag = new StringBuilder("\"").append(currentVersion(userId));
+        for (Object part : parts) {
+            etag.append('-').append(part);
+        }
+        return etag.append('"').toString();
+    }
+}
@@ -0,0 +1,81 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.entity.User;
+import com.zerobee.pillscheduler.enums.ExportFormat;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import com.zerobee.pillscheduler.repository.DoseTakenStore;
+import com.zerobee.pillscheduler.repository.ReminderRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Exports a user's complete dose history. Taken records are read through a forward-only
+ * database cursor and written out as they arrive, so heap use stays flat however long
+ * the history is.
+ */
+@Service
+@Log4j2
+public class DoseHistoryExportService {
+    
+    private final ReminderRepository reminderRepository;
+    private final DoseTakenStore doseTakenStore;
+    private final UserService userService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final DoseHistoryWriter writer = new DoseHistoryWriter();
+    
+    public DoseHistoryExportService(ReminderRepository reminderRepository,
+                                    DoseTakenStore doseTakenStore,
+                                    UserService userService,
+                                    PlatformTransactionManager transactionManager) {
+        this.reminderRepository = reminderRepository;
+        this.doseTakenStore = doseTakenStore;
+        this.userService = userService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+    
+    /**
+     * Authenticates the caller and loads their reminders right away; the records themselves are
+     * only read when the returned body is written to the response
+     */
+    public StreamingResponseBody export(String token, ExportFormat format) {
+        User user = userService.fetchUser(token).toUser();
+        Map<Integer, DoseHistoryWriter.DoseInfo> dosesById = loadDoses(user);
+        
+        return outputStream -> {
+            // The cursor needs an open transaction on the thread that writes the response
+            long lines = readOnlyTransaction.execute(status -> {
+                try (Stream<DoseTakenEntry> entries = doseTakenStore.streamTakenEntriesByUserId(user.getId())) {
+                    return writer.write(entries, dosesById, format, outputStream);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            log.info("Exported {} dose history lines as {} for user {}", lines, format, user.getId());
+        };
+    }
+    
+    private Map<Integer, DoseHistoryWriter.DoseInfo> loadDoses(User user) {
+        List<Reminder> reminders = reminderRepository.findWithDosesByUserId(user.getId());
+        Map<Integer, DoseHistoryWriter.DoseInfo> dosesById = new HashMap<>();
+        for (Reminder reminder : reminders) {
+            for (Dose dose : reminder.getDoses()) {
+                dosesById.put(dose.getId(), new DoseHistoryWriter.DoseInfo(
+                        reminder.getId(), reminder.getR_name(), dose.getId(), dose.getDoseTime()));
+            }
+        }
+        return dosesById;
+    }
+}
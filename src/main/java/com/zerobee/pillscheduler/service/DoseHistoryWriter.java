@@ -0,0 +1,115 @@
+package com.zerobee.pillscheduler.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.zerobee.pillscheduler.enums.ExportFormat;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Writes dose taken entries as NDJSON or CSV, one line per entry, while they are read.
+ * Nothing is accumulated, so memory use does not depend on how many entries there are.
+ */
+public class DoseHistoryWriter {
+    
+    private static final DateTimeFormatter DOSE_TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    private static final String CSV_HEADER = "date,reminderId,reminderName,doseId,doseTime\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final JsonFactory jsonFactory = new JsonFactory();
+    
+    /**
+     * The reminder and dose a taken entry refers to
+     */
+    public record DoseInfo(Integer reminderId, String reminderName, Integer doseId, LocalTime doseTime) {
+    }
+    
+    /**
+     * Writes every entry whose dose is known and returns the number of lines written, header excluded
+     */
+    public long write(Stream<DoseTakenEntry> entries, Map<Integer, DoseInfo> dosesById,
+                      ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long lines = switch (format) {
+            case NDJSON -> writeNdjson(entries.iterator(), dosesById, writer);
+            case CSV -> writeCsv(entries.iterator(), dosesById, writer);
+        };
+        writer.flush();
+        return lines;
+    }
+    
+    private long writeNdjson(Iterator<DoseTakenEntry> entries, Map<Integer, DoseInfo> dosesById,
+                             Writer writer) throws IOException {
+        long lines = 0;
+        try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            while (entries.hasNext()) {
+                DoseTakenEntry entry = entries.next();
+                DoseInfo dose = dosesById.get(entry.doseId());
+                if (dose == null) {
+                    continue;
+                }
+                generator.writeStartObject();
+                generator.writeStringField("date", entry.date().toString());
+                generator.writeNumberField("reminderId", dose.reminderId());
+                generator.writeStringField("reminderName", dose.reminderName());
+                generator.writeNumberField("doseId", dose.doseId());
+                generator.writeStringField("doseTime", formatTime(dose.doseTime()));
+                generator.writeEndObject();
+                lines++;
+            }
+            if (lines > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        return lines;
+    }
+    
+    private long writeCsv(Iterator<DoseTakenEntry> entries, Map<Integer, DoseInfo> dosesById,
+                          Writer writer) throws IOException {
+        long lines = 0;
+        writer.write(CSV_HEADER);
+        while (entries.hasNext()) {
+            DoseTakenEntry entry = entries.next();
+            DoseInfo dose = dosesById.get(entry.doseId());
+            if (dose == null) {
+                continue;
+            }
+            writer.write(entry.date().toString());
+            writer.write(',');
+            writer.write(String.valueOf(dose.reminderId()));
+            writer.write(',');
+            writer.write(csvField(dose.reminderName()));
+            writer.write(',');
+            writer.write(String.valueOf(dose.doseId()));
+            writer.write(',');
+            writer.write(formatTime(dose.doseTime()));
+            writer.write('\n');
+            lines++;
+        }
+        return lines;
+    }
+    
+    private static String formatTime(LocalTime time) {
+        return time != null ? time.format(DOSE_TIME_FORMAT) : "";
+    }
+    
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,470 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.DoseMarkOperationDTO;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind mode of the single dose mark endpoints (pillscheduler.write-behind.enabled).
+ * A mark is acknowledged once it is in the user's buffer and the {@link DoseMarkJournal}; marks of
+ * the same dose and date replace each other, so taken followed by not taken leaves one mark that
+ * usually matches the stored state and writes nothing. Buffers are flushed together through
+ * {@link ReminderService#applyBufferedMarks} every flush interval, or right away once max-pending
+ * marks are waiting; a bulk mark stores only its user's buffer first, see {@link #flush(String)}.
+ * The marks of one user are stored by one thread at a time, under a lock striped by user id.
+ * Reads of ReminderService lay the pending marks of the user over the stored state, see
+ * {@link #pending(String)}.
+ */
+@Component
+@Log4j2
+public class DoseMarkBuffer {
+    
+    private static final int USER_LOCK_STRIPES = 64;
+    
+    private final ReminderService reminderService;
+    private final boolean enabled;
+    private final Duration flushInterval;
+    private final int maxPending;
+    // Null unless enabled
+    private final DoseMarkJournal journal;
+    
+    // Guards the buffers, the journal appends and the sequence
+    private final ReentrantLock lock = new ReentrantLock();
+    // One full flush at a time, whether scheduled or size triggered
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // One store of a user's marks at a time, taken one at a time and before lock
+    private final ReentrantLock[] userLocks = new ReentrantLock[USER_LOCK_STRIPES];
+    private Map<String, Map<DoseTakenEntry, PendingMark>> buffers = new HashMap<>();
+    // Drained by the running flush but not committed yet, still visible to reads
+    private Map<String, Map<DoseTakenEntry, PendingMark>> flushing = new HashMap<>();
+    private int pendingCount;
+    private long sequence;
+    // Whether marks of the sealed journal segments went back into the buffers
+    private boolean requeued;
+    private volatile ScheduledExecutorService flushExecutor;
+    
+    @Autowired
+    public DoseMarkBuffer(
+            @Lazy ReminderService reminderService,
+            @Value("${pillscheduler.write-behind.enabled:false}") boolean enabled,
+            @Value("${pillscheduler.write-behind.flush-interval:PT2S}") Duration flushInterval,
+            @Value("${pillscheduler.write-behind.max-pending:1000}") int maxPending,
+            @Value("${pillscheduler.write-behind.journal-directory:data/journal}") Path journalDirectory,
+            @Value("${pillscheduler.write-behind.fsync:true}") boolean fsync) throws IOException {
+        this.reminderService = reminderService;
+        this.enabled = enabled;
+        this.flushInterval = flushInterval;
+        this.maxPending = maxPending;
+        for (int i = 0; i < userLocks.length; i++) {
+            userLocks[i] = new ReentrantLock();
+        }
+        if (!enabled) {
+            this.journal = null;
+            return;
+        }
+        // Opened here rather than on start, so marks arriving before the application is ready are
+        // journaled too. Stamps of an earlier run may still be in clients' ETags, never hand them out again.
+        sequence = System.currentTimeMillis() * 1000;
+        this.journal = new DoseMarkJournal(journalDirectory, fsync);
+        journal.replay(this::restore);
+        log.info("Dose mark write-behind enabled, {} marks restored from the journal", pendingCount);
+    }
+    
+    /**
+     * Starts flushing, beginning with the marks restored from the journal
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dose-mark-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flushQuietly, 0, flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+        }
+        // Whatever fails to flush here is still in the journal for the next start
+        flushQuietly();
+        lock.lock();
+        try {
+            journal.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Buffers a mark whose dose the caller already checked belongs to the user. Returns once the
+     * mark is in the journal, sharing the fsync with the marks added meanwhile.
+     */
+    public void add(String userId, Integer reminderId, Integer doseId, LocalDate date, boolean taken) {
+        boolean full;
+        long ticket;
+        lock.lock();
+        try {
+            ticket = journal.append(new DoseMarkJournal.Line(userId, reminderId, doseId, date, taken));
+            buffer(userId, new DoseTakenEntry(doseId, date), new PendingMark(reminderId, taken, ++sequence));
+            full = pendingCount >= maxPending;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing the dose mark journal failed", e);
+        } finally {
+            lock.unlock();
+        }
+        sync(ticket);
+        // Before start the first scheduled flush takes them
+        if (full && flushExecutor != null) {
+            flushExecutor.execute(this::flushQuietly);
+        }
+    }
+    
+    /**
+     * The user's marks not stored yet, by dose and date, true for taken
+     */
+    public Map<DoseTakenEntry, Boolean> pending(String userId) {
+        if (!enabled) {
+            return Map.of();
+        }
+        lock.lock();
+        try {
+            Map<DoseTakenEntry, Boolean> pending = new HashMap<>();
+            flushing.getOrDefault(userId, Map.of()).forEach((key, mark) -> pending.put(key, mark.taken()));
+            buffers.getOrDefault(userId, Map.of()).forEach((key, mark) -> pending.put(key, mark.taken()));
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * The stored taken entries of a date range with the user's pending marks laid over them
+     */
+    public List<DoseTakenEntry> overlayPending(String userId, List<DoseTakenEntry> takenEntries,
+                                               LocalDate startDate, LocalDate endDate) {
+        Map<DoseTakenEntry, Boolean> pending = pending(userId);
+        if (pending.isEmpty()) {
+            return takenEntries;
+        }
+        Set<DoseTakenEntry> overlaid = new LinkedHashSet<>(takenEntries);
+        pending.forEach((entry, taken) -> {
+            if (!taken) {
+                overlaid.remove(entry);
+            } else if (!entry.date().isBefore(startDate) && !entry.date().isAfter(endDate)) {
+                overlaid.add(entry);
+            }
+        });
+        return new ArrayList<>(overlaid);
+    }
+    
+    /**
+     * Changes with every mark buffered for the user and is 0 while none is pending, so it can be
+     * part of an ETag next to the data version, which only moves once the marks are stored
+     */
+    public long pendingStamp(String userId) {
+        if (!enabled) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            long stamp = 0;
+            for (Map<DoseTakenEntry, PendingMark> marks : List.of(flushing.getOrDefault(userId, Map.of()),
+                    buffers.getOrDefault(userId, Map.of()))) {
+                for (PendingMark mark : marks.values()) {
+                    stamp = Math.max(stamp, mark.sequence());
+                }
+            }
+            return stamp;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Stores every buffered mark. Marks of a user whose batch fails go back into the buffer, unless
+     * a newer mark of the same dose and date arrived meanwhile, and stay in the journal.
+     */
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            long sealed;
+            List<String> userIds;
+            lock.lock();
+            try {
+                if (pendingCount == 0) {
+                    return;
+                }
+                flushing = buffers;
+                buffers = new HashMap<>();
+                pendingCount = 0;
+                requeued = false;
+                sealed = journal.rotate();
+                userIds = new ArrayList<>(flushing.keySet());
+            } finally {
+                lock.unlock();
+            }
+            
+            for (String userId : userIds) {
+                ReentrantLock userLock = userLock(userId);
+                userLock.lock();
+                try {
+                    storeFlushing(userId);
+                } finally {
+                    userLock.unlock();
+                }
+            }
+            
+            lock.lock();
+            try {
+                if (!requeued) {
+                    journal.deleteUpTo(sealed);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Rotating the dose mark journal failed", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Stores the pending marks of one user right away, without waiting for a running flush of the
+     * other users. Throws if they could not be stored, they stay pending then.
+     */
+    public void flush(String userId) {
+        if (!enabled) {
+            return;
+        }
+        ReentrantLock userLock = userLock(userId);
+        userLock.lock();
+        try {
+            Map<DoseTakenEntry, PendingMark> marks = new LinkedHashMap<>();
+            lock.lock();
+            try {
+                marks.putAll(flushing.getOrDefault(userId, Map.of()));
+                // Newer than the ones being flushed
+                marks.putAll(buffers.getOrDefault(userId, Map.of()));
+            } finally {
+                lock.unlock();
+            }
+            if (marks.isEmpty()) {
+                return;
+            }
+            
+            try {
+                store(userId, marks);
+            } catch (RuntimeException e) {
+                lock.lock();
+                try {
+                    Map<DoseTakenEntry, PendingMark> drained = flushing.remove(userId);
+                    if (drained != null) {
+                        requeue(userId, drained);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            }
+            
+            long ticket;
+            lock.lock();
+            try {
+                // A flush may have drained the buffer meanwhile, so the stored marks are looked for in both
+                removeStored(flushing, userId, marks);
+                pendingCount -= removeStored(buffers, userId, marks);
+                // Marks that arrived while storing are written again after the stored line, so replay keeps them
+                ticket = journal.append(DoseMarkJournal.Line.stored(userId));
+                for (Map<DoseTakenEntry, PendingMark> remaining : List.of(flushing.getOrDefault(userId, Map.of()),
+                        buffers.getOrDefault(userId, Map.of()))) {
+                    for (Map.Entry<DoseTakenEntry, PendingMark> pending : remaining.entrySet()) {
+                        ticket = journal.append(new DoseMarkJournal.Line(userId, pending.getValue().reminderId(),
+                                pending.getKey().doseId(), pending.getKey().date(), pending.getValue().taken()));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Writing the dose mark journal failed", e);
+            } finally {
+                lock.unlock();
+            }
+            sync(ticket);
+        } finally {
+            userLock.unlock();
+        }
+    }
+    
+    /**
+     * Stores what the running flush drained from the user's buffer, unless a bulk mark of the user
+     * stored it already. Called under the user's lock.
+     */
+    private void storeFlushing(String userId) {
+        Map<DoseTakenEntry, PendingMark> marks;
+        lock.lock();
+        try {
+            marks = flushing.get(userId);
+        } finally {
+            lock.unlock();
+        }
+        if (marks == null) {
+            return;
+        }
+        try {
+            store(userId, marks);
+            lock.lock();
+            try {
+                flushing.remove(userId);
+            } finally {
+                lock.unlock();
+            }
+        } catch (RuntimeException e) {
+            log.error("Flushing {} dose marks of user {} failed: {}", marks.size(), userId, e.getMessage(), e);
+            lock.lock();
+            try {
+                flushing.remove(userId);
+                requeue(userId, marks);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic flush for good
+            log.error("Flushing dose marks failed: {}", e.getMessage(), e);
+        }
+    }
+    
+    private void sync(long ticket) {
+        try {
+            journal.sync(ticket);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Syncing the dose mark journal failed", e);
+        }
+    }
+    
+    private ReentrantLock userLock(String userId) {
+        return userLocks[Math.floorMod(userId.hashCode(), userLocks.length)];
+    }
+    
+    /**
+     * Puts a replayed journal line back into the buffers, a stored line drops the user's marks before it
+     */
+    private void restore(DoseMarkJournal.Line line) {
+        if (line.isStored()) {
+            Map<DoseTakenEntry, PendingMark> stored = buffers.remove(line.userId());
+            if (stored != null) {
+                pendingCount -= stored.size();
+            }
+            return;
+        }
+        buffer(line.userId(), new DoseTakenEntry(line.doseId(), line.date()),
+                new PendingMark(line.reminderId(), line.taken(), ++sequence));
+    }
+    
+    private void buffer(String userId, DoseTakenEntry key, PendingMark mark) {
+        if (buffers.computeIfAbsent(userId, id -> new LinkedHashMap<>()).put(key, mark) == null) {
+            pendingCount++;
+        }
+    }
+    
+    /**
+     * Removes the given marks from the user's entry unless newer ones replaced them, returns how
+     * many it removed. Called under lock.
+     */
+    private static int removeStored(Map<String, Map<DoseTakenEntry, PendingMark>> marksByUser, String userId,
+                                    Map<DoseTakenEntry, PendingMark> stored) {
+        Map<DoseTakenEntry, PendingMark> marks = marksByUser.get(userId);
+        if (marks == null) {
+            return 0;
+        }
+        int removed = 0;
+        for (Map.Entry<DoseTakenEntry, PendingMark> mark : stored.entrySet()) {
+            if (marks.remove(mark.getKey(), mark.getValue())) {
+                removed++;
+            }
+        }
+        if (marks.isEmpty()) {
+            marksByUser.remove(userId);
+        }
+        return removed;
+    }
+    
+    /**
+     * Puts drained marks back into the user's buffer behind any newer ones, called under lock
+     */
+    private void requeue(String userId, Map<DoseTakenEntry, PendingMark> marks) {
+        Map<DoseTakenEntry, PendingMark> buffer = buffers.computeIfAbsent(userId, id -> new LinkedHashMap<>());
+        marks.forEach((key, mark) -> {
+            if (buffer.putIfAbsent(key, mark) == null) {
+                pendingCount++;
+            }
+        });
+        // Their lines are in the sealed segments, which must stay until they are stored
+        requeued = true;
+    }
+    
+    /**
+     * Stores marks of a user in chunks of at most one bulk request, each in its own transaction, so
+     * no single write logs more changes than {@link ReminderSyncService} returns at once. After a
+     * failure the chunks already stored are stored again with the requeued marks, which writes nothing.
+     */
+    private void store(String userId, Map<DoseTakenEntry, PendingMark> marks) {
+        List<DoseMarkOperationDTO> operations = operations(marks);
+        for (int from = 0; from < operations.size(); from += ReminderService.MAX_BULK_OPERATIONS) {
+            int to = Math.min(from + ReminderService.MAX_BULK_OPERATIONS, operations.size());
+            reminderService.applyBufferedMarks(userId, operations.subList(from, to));
+        }
+    }
+    
+    private static List<DoseMarkOperationDTO> operations(Map<DoseTakenEntry, PendingMark> marks) {
+        List<DoseMarkOperationDTO> operations = new ArrayList<>(marks.size());
+        marks.forEach((key, mark) -> operations.add(DoseMarkOperationDTO.builder()
+                .reminderId(mark.reminderId())
+                .doseId(key.doseId())
+                .date(key.date())
+                .taken(mark.taken())
+                .build()));
+        return operations;
+    }
+    
+    private record PendingMark(Integer reminderId, boolean taken, long sequence) {
+    }
+}
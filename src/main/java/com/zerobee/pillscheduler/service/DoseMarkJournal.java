@@ -0,0 +1,208 @@
+package com.zerobee.pillscheduler.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of the marks held by the {@link DoseMarkBuffer}, one line per mark, so a
+ * crash does not lose acknowledged marks. The journal is split into numbered segments: a flush
+ * starts a new segment for the marks arriving meanwhile and deletes the older ones once everything
+ * they hold is stored. A user whose marks were stored outside of a flush gets a stored line, which
+ * drops that user's earlier lines on replay.
+ * <p>
+ * Appends only write, {@link #sync} makes them durable: one force covers every line written before
+ * it, so concurrent callers share the fsync instead of queueing for one each (group commit). Every
+ * method but sync must be called under the buffer's lock, sync must not be.
+ */
+final class DoseMarkJournal implements AutoCloseable {
+    
+    private static final Pattern SEGMENT_NAME = Pattern.compile("dose-marks-(\\d+)\\.journal");
+    
+    private final Path directory;
+    private final boolean fsync;
+    // One force at a time, and no rotation or close during one
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private long segment;
+    private FileChannel channel;
+    // Lines appended so far and lines known to be on disk, the tickets of sync
+    private volatile long written;
+    private volatile long durable;
+    
+    DoseMarkJournal(Path directory, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        List<Long> segments = segments();
+        this.segment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+    }
+    
+    /**
+     * Passes the marks of every segment to the consumer, oldest first, and opens a new segment
+     * for what follows
+     */
+    void replay(Consumer<Line> consumer) throws IOException {
+        for (long number : segments()) {
+            try (BufferedReader reader = Files.newBufferedReader(path(number), StandardCharsets.UTF_8)) {
+                String text;
+                while ((text = reader.readLine()) != null) {
+                    // A torn last line of a crash is dropped, it was never acknowledged
+                    Line line = Line.parse(text);
+                    if (line != null) {
+                        consumer.accept(line);
+                    }
+                }
+            }
+        }
+        rotate();
+    }
+    
+    /**
+     * Writes the line and returns its ticket for {@link #sync}
+     */
+    long append(Line line) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap((line.format() + "\n").getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        return ++written;
+    }
+    
+    /**
+     * Returns once the line of the ticket is on disk, right away if a force of another caller
+     * already covered it. Does nothing without fsync.
+     */
+    void sync(long ticket) throws IOException {
+        if (!fsync || durable >= ticket) {
+            return;
+        }
+        forceLock.lock();
+        try {
+            if (durable >= ticket) {
+                return;
+            }
+            // Everything written so far is in the current segment or in one forced when it was sealed
+            long covered = written;
+            channel.force(false);
+            durable = covered;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+    
+    /**
+     * Starts a new segment and returns the number of the last one sealed
+     */
+    long rotate() throws IOException {
+        forceLock.lock();
+        try {
+            if (channel != null) {
+                if (fsync) {
+                    channel.force(false);
+                    durable = written;
+                }
+                channel.close();
+            }
+            long sealed = segment;
+            segment++;
+            channel = FileChannel.open(path(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            return sealed;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+    
+    /**
+     * Deletes the segments up to and including the given one
+     */
+    void deleteUpTo(long sealed) throws IOException {
+        for (long number : segments()) {
+            if (number <= sealed) {
+                Files.deleteIfExists(path(number));
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        forceLock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } finally {
+            forceLock.unlock();
+        }
+    }
+    
+    private List<Long> segments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    numbers.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+    
+    private Path path(long number) {
+        return directory.resolve(String.format("dose-marks-%012d.journal", number));
+    }
+    
+    /**
+     * A mark, or with {@link #stored} the point up to which a user's marks are stored
+     */
+    record Line(String userId, Integer reminderId, Integer doseId, LocalDate date, boolean taken) {
+        
+        private static final String STORED = "stored";
+        
+        static Line stored(String userId) {
+            return new Line(userId, null, null, null, false);
+        }
+        
+        boolean isStored() {
+            return doseId == null;
+        }
+        
+        String format() {
+            if (isStored()) {
+                return userId + "\t" + STORED;
+            }
+            return userId + "\t" + reminderId + "\t" + doseId + "\t" + date + "\t" + (taken ? 1 : 0);
+        }
+        
+        static Line parse(String text) {
+            String[] fields = text.split("\t", -1);
+            if (fields.length == 2 && fields[1].equals(STORED)) {
+                return stored(fields[0]);
+            }
+            if (fields.length != 5 || !(fields[4].equals("0") || fields[4].equals("1"))) {
+                return null;
+            }
+            try {
+                return new Line(fields[0], Integer.valueOf(fields[1]), Integer.valueOf(fields[2]),
+                        LocalDate.parse(fields[3]), "1".equals(fields[4]));
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+/**
+ * One occurrence of a dose that is due at a given instant and should be notified to its user
+ */
+public record DoseNotification(String userId, Integer reminderId, String reminderName, Integer doseId,
+                               LocalDate date, LocalTime doseTime, Instant dueAt) {
+    
+    public static DoseNotification of(Reminder reminder, Dose dose, LocalDate date, ZoneId zone) {
+        return new DoseNotification(
+                reminder.getUser().getId(),
+                reminder.getId(),
+                reminder.getR_name(),
+                dose.getId(),
+                date,
+                dose.getDoseTime(),
+                date.atTime(dose.getDoseTime()).atZone(zone).toInstant());
+    }
+}
@@ -0,0 +1,322 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.enums.Flag;
+import com.zerobee.pillscheduler.utils.RecurrenceRule;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fires a notification when a dose falls due. Upcoming occurrences are loaded at most a horizon
+ * ahead into timing wheels sharded by user id, every shard advances once per tick on its own
+ * thread and hands its due doses in batches to the {@link DoseNotificationSender}, which runs on
+ * separate threads so a slow push service does not delay the next tick.
+ * Reminder and dose mark changes update the wheels directly once their transaction commits.
+ */
+@Component
+@Log4j2
+public class DoseNotificationDispatcher {
+    
+    private final UpcomingDoseLoader upcomingDoseLoader;
+    private final DoseNotificationSender sender;
+    private final boolean enabled;
+    private final Duration tick;
+    private final Duration horizon;
+    private final int shardCount;
+    private final int batchSize;
+    private final int senderThreads;
+    private final ZoneId zone;
+    private final Clock clock;
+    
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private volatile DoseTimingWheel[] shards;
+    private volatile Instant scheduledUntil;
+    private ScheduledExecutorService tickExecutor;
+    private ExecutorService sendExecutor;
+    
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+    private final AtomicLong totalLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong maxTickNanos = new AtomicLong();
+    
+    @Autowired
+    public DoseNotificationDispatcher(
+            UpcomingDoseLoader upcomingDoseLoader,
+            Optional<DoseNotificationSender> sender,
+            @Value("${pillscheduler.dispatcher.enabled:true}") boolean enabled,
+            @Value("${pillscheduler.dispatcher.tick:PT1S}") Duration tick,
+            @Value("${pillscheduler.dispatcher.horizon:PT1H}") Duration horizon,
+            @Value("${pillscheduler.dispatcher.shards:4}") int shardCount,
+            @Value("${pillscheduler.dispatcher.batch-size:500}") int batchSize,
+            @Value("${pillscheduler.dispatcher.sender-threads:4}") int senderThreads,
+            @Value("${pillscheduler.dispatcher.zone:}") String zone) {
+        this(upcomingDoseLoader, sender.orElse(null), enabled, tick, horizon, shardCount, batchSize, senderThreads,
+                zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone), Clock.systemUTC());
+    }
+    
+    DoseNotificationDispatcher(UpcomingDoseLoader upcomingDoseLoader, DoseNotificationSender sender, boolean enabled,
+                               Duration tick, Duration horizon, int shardCount, int batchSize, int senderThreads,
+                               ZoneId zone, Clock clock) {
+        if (horizon.compareTo(Duration.ofDays(1)) >= 0) {
+            throw new IllegalArgumentException("The dispatcher horizon must be shorter than a day");
+        }
+        this.upcomingDoseLoader = upcomingDoseLoader;
+        this.sender = sender;
+        this.enabled = enabled;
+        this.tick = tick;
+        this.horizon = horizon;
+        this.shardCount = shardCount;
+        this.batchSize = batchSize;
+        this.senderThreads = senderThreads;
+        this.zone = zone;
+        this.clock = clock;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Dose notification dispatcher is disabled");
+            return;
+        }
+        if (sender == null) {
+            log.warn("No dose notification sender configured, dose notifications are disabled");
+            return;
+        }
+        long now = clock.millis();
+        DoseTimingWheel[] wheels = new DoseTimingWheel[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            // Twice the horizon, so a wheel that lags behind the loader still has room for everything loaded
+            wheels[i] = new DoseTimingWheel(tick, horizon.multipliedBy(2), now);
+        }
+        scheduledUntil = Instant.ofEpochMilli(now);
+        sendExecutor = Executors.newFixedThreadPool(senderThreads, namedThreads("dose-sender-"));
+        tickExecutor = Executors.newScheduledThreadPool(shardCount, namedThreads("dose-dispatcher-"));
+        shards = wheels;
+        for (DoseTimingWheel shard : wheels) {
+            tickExecutor.scheduleAtFixedRate(() -> advance(shard), tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        loadUpcoming();
+        log.info("Dose notification dispatcher started with {} shards, {} tick and {} horizon", shardCount, tick, horizon);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        shards = null;
+        if (tickExecutor != null) {
+            tickExecutor.shutdownNow();
+        }
+        if (sendExecutor != null) {
+            sendExecutor.shutdown();
+        }
+    }
+    
+    /**
+     * Extends the loaded window up to now plus the horizon. Runs every load interval, each run
+     * only reads the doses due since the previous one.
+     */
+    @Scheduled(fixedDelayString = "${pillscheduler.dispatcher.load-interval:PT1M}")
+    public void loadUpcoming() {
+        if (shards == null || !loadLock.tryLock()) {
+            return;
+        }
+        Instant from = scheduledUntil;
+        try {
+            Instant to = clock.instant().plus(horizon);
+            // Published before loading, so changes committed meanwhile schedule themselves up to the new bound
+            scheduledUntil = to;
+            int loaded = upcomingDoseLoader.load(from, to, zone, this::schedule);
+            log.debug("Loaded {} dose notifications due until {}", loaded, to);
+        } catch (RuntimeException e) {
+            // Load the same window again next time, pending entries are not scheduled twice
+            scheduledUntil = from;
+            log.error("Loading upcoming doses failed: {}", e.getMessage(), e);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+    
+    /**
+     * Schedules the upcoming occurrences of a new reminder's doses once the transaction commits
+     */
+    public void reminderCreated(Reminder reminder) {
+        if (shards == null || reminder.getFlag() != Flag.ACTIVE || reminder.getDoses() == null) {
+            return;
+        }
+        RecurrenceRule rule = RecurrenceRule.of(reminder);
+        Instant now = clock.instant();
+        List<DoseNotification> notifications = new ArrayList<>();
+        for (Dose dose : reminder.getDoses()) {
+            notifications.addAll(UpcomingDoseLoader.occurrences(reminder, dose, rule, now, scheduledUntil, zone));
+        }
+        afterCommit(() -> notifications.forEach(this::schedule));
+    }
+    
+    /**
+     * Cancels every pending notification of a reminder's doses once the transaction commits
+     */
+    public void reminderDeleted(Reminder reminder) {
+        if (shards == null || reminder.getDoses() == null) {
+            return;
+        }
+        String userId = reminder.getUser().getId();
+        List<Integer> doseIds = reminder.getDoses().stream().map(Dose::getId).toList();
+        afterCommit(() -> doseIds.forEach(doseId -> cancel(userId, doseId, null)));
+    }
+    
+    /**
+     * Cancels the pending notification of a dose on a date once the transaction commits
+     */
+    public void doseTaken(Reminder reminder, Dose dose, LocalDate date) {
+        if (shards == null) {
+            return;
+        }
+        String userId = reminder.getUser().getId();
+        afterCommit(() -> cancel(userId, dose.getId(), date));
+    }
+    
+    /**
+     * Schedules the notification of a dose on a date again, if it is still upcoming, once the
+     * transaction commits
+     */
+    public void doseNotTaken(Reminder reminder, Dose dose, LocalDate date) {
+        if (shards == null || reminder.getFlag() != Flag.ACTIVE || dose.getDoseTime() == null
+                || !RecurrenceRule.of(reminder).appliesOn(date)) {
+            return;
+        }
+        DoseNotification notification = DoseNotification.of(reminder, dose, date, zone);
+        if (notification.dueAt().isAfter(clock.instant()) && !notification.dueAt().isAfter(scheduledUntil)) {
+            afterCommit(() -> schedule(notification));
+        }
+    }
+    
+    public int getPendingCount() {
+        DoseTimingWheel[] wheels = shards;
+        int pending = 0;
+        if (wheels != null) {
+            for (DoseTimingWheel wheel : wheels) {
+                pending += wheel.size();
+            }
+        }
+        return pending;
+    }
+    
+    public long getDispatchedCount() {
+        return dispatched.get();
+    }
+    
+    /**
+     * Notifications handed to the sender more than two ticks after they fell due
+     */
+    public long getLateCount() {
+        return late.get();
+    }
+    
+    public long getTotalLagMillis() {
+        return totalLagMillis.get();
+    }
+    
+    public long getMaxLagMillis() {
+        return maxLagMillis.get();
+    }
+    
+    public long getFailedBatchCount() {
+        return failedBatches.get();
+    }
+    
+    public long getMaxTickNanos() {
+        return maxTickNanos.get();
+    }
+    
+    private void schedule(DoseNotification notification) {
+        DoseTimingWheel[] wheels = shards;
+        if (wheels != null) {
+            wheels[Math.floorMod(notification.userId().hashCode(), wheels.length)].schedule(notification);
+        }
+    }
+    
+    private void cancel(String userId, Integer doseId, LocalDate date) {
+        DoseTimingWheel[] wheels = shards;
+        if (wheels != null) {
+            wheels[Math.floorMod(userId.hashCode(), wheels.length)].cancel(doseId, date);
+        }
+    }
+    
+    private void advance(DoseTimingWheel shard) {
+        try {
+            long started = System.nanoTime();
+            List<DoseNotification> due = shard.advance(clock.millis());
+            for (int from = 0; from < due.size(); from += batchSize) {
+                List<DoseNotification> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+                sendExecutor.execute(() -> send(batch));
+            }
+            maxTickNanos.accumulateAndGet(System.nanoTime() - started, Math::max);
+        } catch (RejectedExecutionException e) {
+            log.debug("Dropping due dose notifications during shutdown");
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task and stop the shard for good
+            log.error("Advancing dose notification shard failed: {}", e.getMessage(), e);
+        }
+    }
+    
+    private void send(List<DoseNotification> batch) {
+        long now = clock.millis();
+        long lateAfterMillis = tick.toMillis() * 2;
+        for (DoseNotification notification : batch) {
+            long lag = Math.max(0, now - notification.dueAt().toEpochMilli());
+            totalLagMillis.addAndGet(lag);
+            maxLagMillis.accumulateAndGet(lag, Math::max);
+            if (lag > lateAfterMillis) {
+                late.incrementAndGet();
+            }
+        }
+        try {
+            sender.send(batch);
+            dispatched.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            log.error("Sending {} dose notifications failed: {}", batch.size(), e.getMessage(), e);
+        }
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,12 @@
+package com.zerobee.pillscheduler.service;
+
+import java.util.List;
+
+/**
+ * Delivers due dose notifications to the users' devices. Called from the dispatcher's sender
+ * threads with batches of at most the configured batch size; throwing fails the whole batch.
+ */
+public interface DoseNotificationSender {
+    
+    void send(List<DoseNotification> batch);
+}
@@ -0,0 +1,130 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.DoseDTO;
+import com.zerobee.pillscheduler.dto.ReminderDTO;
+import com.zerobee.pillscheduler.enums.ReminderView;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import com.zerobee.pillscheduler.repository.DoseTakenStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Fills the taken status and taken dates of every dose of a batch of reminders with set-based
+ * queries, instead of querying dose by dose. Only what the requested {@link ReminderView} returns
+ * is loaded.
+ */
+@Component
+@RequiredArgsConstructor
+public class DoseStatusLoader {
+    
+    // Keeps the IN list well below the bind parameter limits of the JDBC drivers
+    private static final int MAX_IDS_PER_QUERY = 1000;
+    
+    private final DoseTakenStore doseTakenStore;
+    
+    public ReminderDTO enrich(ReminderDTO reminderDTO, LocalDate date) {
+        return enrich(reminderDTO, date, Map.of());
+    }
+    
+    public ReminderDTO enrich(ReminderDTO reminderDTO, LocalDate date, Map<DoseTakenEntry, Boolean> pending) {
+        return enrich(reminderDTO, date, pending, ReminderView.FULL);
+    }
+    
+    public ReminderDTO enrich(ReminderDTO reminderDTO, LocalDate date, Map<DoseTakenEntry, Boolean> pending,
+                              ReminderView view) {
+        enrich(List.of(reminderDTO), date, pending, view);
+        return reminderDTO;
+    }
+    
+    public List<ReminderDTO> enrich(List<ReminderDTO> reminderDTOs, LocalDate date) {
+        return enrich(reminderDTOs, date, Map.of());
+    }
+    
+    public List<ReminderDTO> enrich(List<ReminderDTO> reminderDTOs, LocalDate date,
+                                    Map<DoseTakenEntry, Boolean> pending) {
+        return enrich(reminderDTOs, date, pending, ReminderView.FULL);
+    }
+    
+    /**
+     * Sets {@link DoseDTO#getTaken()} for the given date and, in the full view, the complete
+     * {@link DoseDTO#getTakenDates()} history on every dose of the given reminders. The standard
+     * view only reads the taken records of the date, the summary view none and clears the taken
+     * flags. Pending marks (see {@link DoseMarkBuffer}) take precedence over the stored state.
+     */
+    public List<ReminderDTO> enrich(List<ReminderDTO> reminderDTOs, LocalDate date,
+                                    Map<DoseTakenEntry, Boolean> pending, ReminderView view) {
+        List<DoseDTO> doseDTOs = reminderDTOs.stream()
+                .filter(reminderDTO -> reminderDTO.getDoses() != null)
+                .flatMap(reminderDTO -> reminderDTO.getDoses().stream())
+                .toList();
+        if (doseDTOs.isEmpty()) {
+            return reminderDTOs;
+        }
+        if (view == ReminderView.SUMMARY) {
+            doseDTOs.forEach(doseDTO -> doseDTO.setTaken(null));
+            return reminderDTOs;
+        }
+        
+        List<Integer> doseIds = doseDTOs.stream().map(DoseDTO::getId).toList();
+        if (view == ReminderView.STANDARD) {
+            Set<Integer> takenDoseIds = loadTakenDoseIds(doseIds, date);
+            for (DoseDTO doseDTO : doseDTOs) {
+                doseDTO.setTaken(pending.getOrDefault(new DoseTakenEntry(doseDTO.getId(), date),
+                        takenDoseIds.contains(doseDTO.getId())));
+            }
+            return reminderDTOs;
+        }
+        
+        Map<Integer, List<LocalDate>> takenDatesByDose = loadTakenDates(doseIds);
+        if (!pending.isEmpty()) {
+            applyPending(takenDatesByDose, new HashSet<>(doseIds), pending);
+        }
+        
+        for (DoseDTO doseDTO : doseDTOs) {
+            List<LocalDate> takenDates = takenDatesByDose.getOrDefault(doseDTO.getId(), new ArrayList<>());
+            doseDTO.setTaken(takenDates.contains(date));
+            doseDTO.setTakenDates(takenDates);
+        }
+        return reminderDTOs;
+    }
+    
+    private static void applyPending(Map<Integer, List<LocalDate>> takenDatesByDose, Set<Integer> doseIds,
+                                     Map<DoseTakenEntry, Boolean> pending) {
+        pending.forEach((entry, taken) -> {
+            if (!doseIds.contains(entry.doseId())) {
+                return;
+            }
+            List<LocalDate> takenDates = takenDatesByDose.computeIfAbsent(entry.doseId(), id -> new ArrayList<>());
+            takenDates.remove(entry.date());
+            if (taken) {
+                takenDates.add(entry.date());
+                Collections.sort(takenDates);
+            }
+        });
+    }
+    
+    private Set<Integer> loadTakenDoseIds(List<Integer> doseIds, LocalDate date) {
+        Set<Integer> takenDoseIds = new HashSet<>();
+        for (int from = 0; from < doseIds.size(); from += MAX_IDS_PER_QUERY) {
+            List<Integer> chunk = doseIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, doseIds.size()));
+            for (DoseTakenEntry entry : doseTakenStore.findTakenEntriesByDoseIdInAndDateBetween(chunk, date, date)) {
+                takenDoseIds.add(entry.doseId());
+            }
+        }
+        return takenDoseIds;
+    }
+    
+    private Map<Integer, List<LocalDate>> loadTakenDates(List<Integer> doseIds) {
+        Map<Integer, List<LocalDate>> takenDatesByDose = new HashMap<>();
+        for (int from = 0; from < doseIds.size(); from += MAX_IDS_PER_QUERY) {
+            List<Integer> chunk = doseIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, doseIds.size()));
+            for (DoseTakenEntry entry : doseTakenStore.findTakenEntriesByDoseIdIn(chunk)) {
+                takenDatesByDose.computeIfAbsent(entry.doseId(), id -> new ArrayList<>()).add(entry.date());
+            }
+        }
+        return takenDatesByDose;
+    }
+}
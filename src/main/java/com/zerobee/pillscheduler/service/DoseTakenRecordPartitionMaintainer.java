@@ -0,0 +1,51 @@
+package com.zerobee.pillscheduler.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps the monthly partitions of dose_taken_records (see migration V4) created ahead of time, so
+ * new records never land in the default partition
+ */
+@Component
+@Log4j2
+public class DoseTakenRecordPartitionMaintainer {
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean maintain;
+    private final int monthsAhead;
+    
+    public DoseTakenRecordPartitionMaintainer(JdbcTemplate jdbcTemplate,
+                                              @Value("${pillscheduler.partitions.maintain:true}") boolean maintain,
+                                              @Value("${pillscheduler.partitions.months-ahead:12}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maintain = maintain;
+        this.monthsAhead = monthsAhead;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${pillscheduler.partitions.cron:0 0 4 * * *}")
+    public void createUpcomingPartitions() {
+        if (!maintain) {
+            return;
+        }
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        try {
+            for (int i = 0; i <= monthsAhead; i++) {
+                jdbcTemplate.queryForObject("SELECT create_dose_taken_records_partition(?)::text",
+                        String.class, month.plusMonths(i));
+            }
+            log.debug("Dose taken record partitions exist up to {}", month.plusMonths(monthsAhead));
+        } catch (DataAccessException e) {
+            log.error("Creating dose taken record partitions failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.zerobee.pillscheduler.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One shard of the dose notification dispatcher: a hashed timing wheel of pending notifications.
+ * Time is cut into ticks and every pending notification sits in the slot of the tick it is due in,
+ * so scheduling and cancelling are O(1) and advancing the wheel only touches the slots of the
+ * elapsed ticks, however many notifications are pending overall. The wheel spans at least the
+ * requested duration, notifications further ahead are rejected.
+ * Thread-safe: every operation holds the shard's lock.
+ */
+final class DoseTimingWheel {
+    
+    private final long tickMillis;
+    private final int mask;
+    private final List<Timeout>[] slots;
+    // Pending notifications per dose, to cancel them without scanning the slots
+    private final Map<Integer, List<Timeout>> byDose = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    private long lastTick;
+    private int size;
+    
+    @SuppressWarnings("unchecked")
+    DoseTimingWheel(Duration tick, Duration span, long startMillis) {
+        this.tickMillis = tick.toMillis();
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be at least one millisecond");
+        }
+        long ticks = Math.max(1, span.toMillis() / tickMillis + 1);
+        if (ticks > 1 << 24) {
+            throw new IllegalArgumentException("Span of " + span + " is too long for a tick of " + tick);
+        }
+        int slotCount = Integer.highestOneBit((int) ticks - 1) << 1;
+        this.slots = new List[Math.max(slotCount, 1)];
+        this.mask = slots.length - 1;
+        this.lastTick = Math.floorDiv(startMillis, tickMillis);
+    }
+    
+    /**
+     * Adds a notification, unless the same dose and date is already pending or it is due beyond
+     * the span of the wheel. Notifications already overdue fire on the next tick.
+     */
+    boolean schedule(DoseNotification notification) {
+        long deadlineTick = Math.ceilDiv(notification.dueAt().toEpochMilli(), tickMillis);
+        lock.lock();
+        try {
+            deadlineTick = Math.max(deadlineTick, lastTick + 1);
+            if (deadlineTick - lastTick > slots.length) {
+                return false;
+            }
+            List<Timeout> pending = byDose.computeIfAbsent(notification.doseId(), id -> new ArrayList<>(2));
+            for (Timeout timeout : pending) {
+                if (timeout.notification.date().equals(notification.date())) {
+                    return false;
+                }
+            }
+            Timeout timeout = new Timeout(notification, deadlineTick);
+            pending.add(timeout);
+            int index = (int) (deadlineTick & mask);
+            if (slots[index] == null) {
+                slots[index] = new ArrayList<>();
+            }
+            slots[index].add(timeout);
+            size++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Cancels the pending notification of a dose on a date, or every pending one of the dose when
+     * date is null. Returns how many were cancelled.
+     */
+    int cancel(Integer doseId, LocalDate date) {
+        lock.lock();
+        try {
+            List<Timeout> pending = byDose.get(doseId);
+            if (pending == null) {
+                return 0;
+            }
+            int cancelled = 0;
+            Iterator<Timeout> iterator = pending.iterator();
+            while (iterator.hasNext()) {
+                Timeout timeout = iterator.next();
+                if (date == null || timeout.notification.date().equals(date)) {
+                    // Left in its slot and dropped when the wheel gets there
+                    timeout.cancelled = true;
+                    iterator.remove();
+                    cancelled++;
+                }
+            }
+            if (pending.isEmpty()) {
+                byDose.remove(doseId);
+            }
+            size -= cancelled;
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Moves the wheel forward to the given time and returns the notifications that became due
+     */
+    List<DoseNotification> advance(long nowMillis) {
+        long nowTick = Math.floorDiv(nowMillis, tickMillis);
+        lock.lock();
+        try {
+            if (nowTick <= lastTick) {
+                return List.of();
+            }
+            List<DoseNotification> due = new ArrayList<>();
+            // After a long pause every slot is visited once, the deadline check sorts out the rest
+            long fromTick = Math.max(lastTick + 1, nowTick - mask);
+            for (long tick = fromTick; tick <= nowTick; tick++) {
+                expireSlot((int) (tick & mask), nowTick, due);
+            }
+            lastTick = nowTick;
+            return due;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void expireSlot(int index, long nowTick, List<DoseNotification> due) {
+        List<Timeout> slot = slots[index];
+        if (slot == null) {
+            return;
+        }
+        int kept = 0;
+        for (Timeout timeout : slot) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            if (timeout.deadlineTick <= nowTick) {
+                due.add(timeout.notification);
+                removeFromIndex(timeout);
+                size--;
+            } else {
+                slot.set(kept++, timeout);
+            }
+        }
+        if (kept == 0) {
+            slots[index] = null;
+        } else {
+            slot.subList(kept, slot.size()).clear();
+        }
+    }
+    
+    private void removeFromIndex(Timeout timeout) {
+        Integer doseId = timeout.notification.doseId();
+        List<Timeout> pending = byDose.get(doseId);
+        if (pending != null) {
+            pending.remove(timeout);
+            if (pending.isEmpty()) {
+                byDose.remove(doseId);
+            }
+        }
+    }
+    
+    private static final class Timeout {
+        private final DoseNotification notification;
+        private final long deadlineTick;
+        private boolean cancelled;
+        
+        private Timeout(DoseNotification notification, long deadlineTick) {
+            this.notification = notification;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.zerobee.pillscheduler.service;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.Notification;
+import com.zerobee.pillscheduler.metrics.FirebaseCallMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Sends dose notifications through Firebase Cloud Messaging. Each user's devices subscribe to the
+ * topic "user-&lt;uid&gt;", so the backend does not have to track device registration tokens.
+ */
+@Component
+@ConditionalOnProperty(name = "pillscheduler.firebase.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Log4j2
+public class FcmDoseNotificationSender implements DoseNotificationSender {
+    
+    // FCM accepts at most 500 messages per batch request
+    private static final int MAX_MESSAGES_PER_REQUEST = 500;
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    
+    private final FirebaseCallMetrics firebaseCallMetrics;
+    
+    @Override
+    public void send(List<DoseNotification> batch) {
+        for (int from = 0; from < batch.size(); from += MAX_MESSAGES_PER_REQUEST) {
+            List<Message> messages = batch.subList(from, Math.min(from + MAX_MESSAGES_PER_REQUEST, batch.size()))
+                    .stream()
+                    .map(this::toMessage)
+                    .toList();
+            try {
+                BatchResponse response = firebaseCallMetrics.record("sendAll",
+                        () -> FirebaseMessaging.getInstance().sendAll(messages));
+                if (response.getFailureCount() > 0) {
+                    log.warn("{} of {} dose notifications were rejected by FCM",
+                            response.getFailureCount(), messages.size());
+                }
+            } catch (FirebaseMessagingException e) {
+                throw new IllegalStateException("Sending dose notifications failed: " + e.getMessage(), e);
+            }
+        }
+    }
+    
+    private Message toMessage(DoseNotification notification) {
+        return Message.builder()
+                .setTopic("user-" + notification.userId())
+                .setNotification(Notification.builder()
+                        .setTitle("Time for " + notification.reminderName())
+                        .setBody("Dose scheduled at " + notification.doseTime().format(TIME_FORMATTER))
+                        .build())
+                .putData("reminderId", String.valueOf(notification.reminderId()))
+                .putData("doseId", String.valueOf(notification.doseId()))
+                .putData("date", notification.date().toString())
+                .build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.zerobee.pillscheduler.service;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.FirebaseToken;
+import com.zerobee.pillscheduler.exception.InvalidToken;
+import com.zerobee.pillscheduler.metrics.FirebaseCallMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Verifies ID tokens with the Firebase Admin SDK
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class FirebaseIdTokenVerifier implements IdTokenVerifier {
+    
+    private final FirebaseCallMetrics firebaseCallMetrics;
+    
+    @Override
+    public VerifiedIdToken verify(String idToken) {
+        try {
+            FirebaseToken decodedToken = firebaseCallMetrics.record("verifyIdToken",
+                    () -> FirebaseAuth.getInstance().verifyIdToken(idToken));
+            return new VerifiedIdToken(decodedToken.getUid(), expiryOf(decodedToken));
+        } catch (FirebaseAuthException e) {
+            log.error("Error decoding token: {}", e.getMessage());
+            throw new InvalidToken();
+        }
+    }
+    
+    private Instant expiryOf(FirebaseToken decodedToken) {
+        Object exp = decodedToken.getClaims().get("exp");
+        return exp instanceof Number seconds ? Instant.ofEpochSecond(seconds.longValue()) : null;
+    }
+}
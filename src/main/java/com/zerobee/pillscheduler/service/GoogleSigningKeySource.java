@@ -0,0 +1,101 @@
+package com.zerobee.pillscheduler.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zerobee.pillscheduler.metrics.FirebaseCallMetrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fetches the X.509 certificates Firebase signs ID tokens with from Google's public endpoint
+ */
+public class GoogleSigningKeySource implements SigningKeySource {
+    
+    public static final URI FIREBASE_CERTIFICATES = URI.create(
+            "https://www.googleapis.com/robot/v1/metadata/x509/securetoken@system.gserviceaccount.com");
+    
+    // Used when the response carries no max-age, Google serves the certificates for about six hours
+    private static final Duration DEFAULT_MAX_AGE = Duration.ofHours(1);
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d{1,9})");
+    
+    private final HttpClient httpClient;
+    private final URI uri;
+    private final FirebaseCallMetrics firebaseCallMetrics;
+    private final Clock clock;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    public GoogleSigningKeySource(FirebaseCallMetrics firebaseCallMetrics) {
+        this(HttpClient.newBuilder().connectTimeout(TIMEOUT).build(), FIREBASE_CERTIFICATES, firebaseCallMetrics,
+                Clock.systemUTC());
+    }
+    
+    GoogleSigningKeySource(HttpClient httpClient, URI uri, FirebaseCallMetrics firebaseCallMetrics, Clock clock) {
+        this.httpClient = httpClient;
+        this.uri = uri;
+        this.firebaseCallMetrics = firebaseCallMetrics;
+        this.clock = clock;
+    }
+    
+    @Override
+    public SigningKeys fetch() throws IOException {
+        HttpResponse<String> response = firebaseCallMetrics.record("fetchSigningKeys", this::send);
+        if (response.statusCode() != 200) {
+            throw new IOException("Fetching signing keys failed with status " + response.statusCode());
+        }
+        Map<String, String> certificates = objectMapper.readValue(response.body(), new TypeReference<>() {
+        });
+        
+        Map<String, PublicKey> keys = new HashMap<>();
+        try {
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            for (Map.Entry<String, String> certificate : certificates.entrySet()) {
+                keys.put(certificate.getKey(), factory.generateCertificate(new ByteArrayInputStream(
+                        certificate.getValue().getBytes(StandardCharsets.US_ASCII))).getPublicKey());
+            }
+        } catch (CertificateException e) {
+            throw new IOException("Malformed signing key certificate", e);
+        }
+        Duration maxAge = maxAge(response.headers().firstValue("Cache-Control").orElse(null));
+        return new SigningKeys(Map.copyOf(keys), clock.instant().plus(maxAge));
+    }
+    
+    /**
+     * The max-age of a Cache-Control header value
+     */
+    static Duration maxAge(String cacheControl) {
+        if (cacheControl != null) {
+            Matcher matcher = MAX_AGE.matcher(cacheControl);
+            if (matcher.find()) {
+                return Duration.ofSeconds(Long.parseLong(matcher.group(1)));
+            }
+        }
+        return DEFAULT_MAX_AGE;
+    }
+    
+    private HttpResponse<String> send() throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(TIMEOUT).GET().build();
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching signing keys");
+        }
+    }
+}
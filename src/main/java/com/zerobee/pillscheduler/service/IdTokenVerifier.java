@@ -0,0 +1,11 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.exception.InvalidToken;
+
+/**
+ * Verifies Firebase ID tokens. Implementations throw {@link InvalidToken} for any token they reject.
+ */
+public interface IdTokenVerifier {
+    
+    VerifiedIdToken verify(String idToken);
+}
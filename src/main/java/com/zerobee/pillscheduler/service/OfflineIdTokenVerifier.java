@@ -0,0 +1,165 @@
+package com.zerobee.pillscheduler.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zerobee.pillscheduler.exception.InvalidToken;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies Firebase ID tokens locally, the way Firebase documents it: an RS256 signature by one of
+ * the published signing keys, the project as aud, https://securetoken.google.com/&lt;project&gt; as iss,
+ * exp in the future, iat and auth_time in the past and a non-empty sub, which is the uid.
+ * The key set is fetched in the background and refreshed shortly before its Cache-Control max-age
+ * runs out, so verifying costs one RSA signature check and no network call. While no current key
+ * set is available, and for tokens naming a key the set does not hold, the fallback verifier (the
+ * Firebase SDK) decides.
+ */
+@Log4j2
+public class OfflineIdTokenVerifier implements IdTokenVerifier, AutoCloseable {
+    
+    private static final String ISSUER_PREFIX = "https://securetoken.google.com/";
+    private static final int MAX_UID_LENGTH = 128;
+    private static final Duration REFRESH_AHEAD = Duration.ofMinutes(5);
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+    
+    private final String projectId;
+    private final String issuer;
+    private final SigningKeySource keySource;
+    private final IdTokenVerifier fallback;
+    private final Duration clockSkew;
+    private final Clock clock;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private volatile SigningKeys keys;
+    private ScheduledExecutorService refresher;
+    
+    public OfflineIdTokenVerifier(String projectId, SigningKeySource keySource, IdTokenVerifier fallback,
+                                  Duration clockSkew, Clock clock) {
+        this.projectId = projectId;
+        this.issuer = ISSUER_PREFIX + projectId;
+        this.keySource = keySource;
+        this.fallback = fallback;
+        this.clockSkew = clockSkew;
+        this.clock = clock;
+    }
+    
+    /**
+     * Fetches the key set in the background and keeps it fresh from then on
+     */
+    public void start() {
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "signing-key-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.execute(this::refreshAndReschedule);
+    }
+    
+    @Override
+    public void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+    
+    @Override
+    public VerifiedIdToken verify(String idToken) {
+        SigningKeys current = keys;
+        if (current == null || !clock.instant().isBefore(current.expiresAt())) {
+            return fallback.verify(idToken);
+        }
+        String[] parts = idToken != null ? idToken.split("\\.", -1) : new String[0];
+        if (parts.length != 3) {
+            throw new InvalidToken();
+        }
+        JsonNode header = decode(parts[0]);
+        if (!"RS256".equals(header.path("alg").asText())) {
+            throw new InvalidToken();
+        }
+        PublicKey key = current.byKeyId().get(header.path("kid").asText());
+        if (key == null) {
+            // Signed with a key published after the set was fetched, or not by Firebase at all
+            return fallback.verify(idToken);
+        }
+        if (!signatureMatches(key, parts)) {
+            throw new InvalidToken();
+        }
+        return checkClaims(decode(parts[1]));
+    }
+    
+    /**
+     * Fetches the key set once and returns when to fetch it next
+     */
+    Duration refresh() {
+        try {
+            SigningKeys fetched = keySource.fetch();
+            keys = fetched;
+            Duration untilRefresh = Duration.between(clock.instant(), fetched.expiresAt()).minus(REFRESH_AHEAD);
+            log.debug("Fetched {} signing keys valid until {}", fetched.byKeyId().size(), fetched.expiresAt());
+            return untilRefresh.compareTo(RETRY_DELAY) > 0 ? untilRefresh : RETRY_DELAY;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Fetching signing keys failed, retrying in {}: {}", RETRY_DELAY, e.getMessage());
+            return RETRY_DELAY;
+        }
+    }
+    
+    private void refreshAndReschedule() {
+        Duration delay = refresh();
+        if (!refresher.isShutdown()) {
+            refresher.schedule(this::refreshAndReschedule, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private VerifiedIdToken checkClaims(JsonNode claims) {
+        Instant now = clock.instant();
+        JsonNode exp = claims.path("exp");
+        JsonNode iat = claims.path("iat");
+        JsonNode authTime = claims.path("auth_time");
+        String uid = claims.path("sub").asText();
+        if (!projectId.equals(claims.path("aud").asText())
+                || !issuer.equals(claims.path("iss").asText())
+                || !exp.canConvertToLong() || !Instant.ofEpochSecond(exp.asLong()).isAfter(now.minus(clockSkew))
+                || !iat.canConvertToLong() || Instant.ofEpochSecond(iat.asLong()).isAfter(now.plus(clockSkew))
+                || !authTime.canConvertToLong() || Instant.ofEpochSecond(authTime.asLong()).isAfter(now.plus(clockSkew))
+                || uid.isEmpty() || uid.length() > MAX_UID_LENGTH) {
+            throw new InvalidToken();
+        }
+        return new VerifiedIdToken(uid, Instant.ofEpochSecond(exp.asLong()));
+    }
+    
+    private JsonNode decode(String part) {
+        try {
+            JsonNode node = objectMapper.readTree(Base64.getUrlDecoder().decode(part));
+            if (node == null || !node.isObject()) {
+                throw new InvalidToken();
+            }
+            return node;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidToken();
+        }
+    }
+    
+    private static boolean signatureMatches(PublicKey key, String[] parts) {
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initVerify(key);
+            signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+            return signature.verify(Base64.getUrlDecoder().decode(parts[2]));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
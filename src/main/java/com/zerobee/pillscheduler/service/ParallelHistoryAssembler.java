@@ -0,0 +1,99 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.DailyReminderSummaryDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Assembles long histories on a dedicated {@link ForkJoinPool}: the date range is split in halves
+ * down to chunks of chunk-days, every chunk is summarized from the engine's immutable snapshot and
+ * the chunks are concatenated in date order. Ranges shorter than threshold-days are summarized on
+ * the calling thread, below that the hand-off costs more than it saves (see
+ * ParallelHistoryBenchmark). The pool is separate from the common pool, so histories never
+ * compete with parallel streams and a parallelism of 1 turns the parallel mode off.
+ */
+@Component
+public class ParallelHistoryAssembler {
+    
+    private final int thresholdDays;
+    private final int chunkDays;
+    private final ForkJoinPool pool;
+    
+    @Autowired
+    public ParallelHistoryAssembler(
+            @Value("${pillscheduler.history.parallel-threshold-days:180}") int thresholdDays,
+            @Value("${pillscheduler.history.parallel-chunk-days:31}") int chunkDays,
+            @Value("${pillscheduler.history.parallelism:0}") int parallelism) {
+        if (chunkDays < 1) {
+            throw new IllegalArgumentException("The history chunk must cover at least one day");
+        }
+        this.thresholdDays = thresholdDays;
+        this.chunkDays = chunkDays;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = threads > 1 ? new ForkJoinPool(threads, ParallelHistoryAssembler::newWorker, null, false) : null;
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Summaries for every day from startDate to endDate, both inclusive, in date order
+     */
+    List<DailyReminderSummaryDTO> summarize(ReminderHistoryEngine engine, LocalDate startDate, LocalDate endDate) {
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        if (pool == null || days < thresholdDays || days <= chunkDays) {
+            return engine.summarize(startDate, endDate);
+        }
+        return pool.invoke(new SummarizeTask(engine, startDate.toEpochDay(), endDate.toEpochDay(), chunkDays));
+    }
+    
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("history-worker-" + thread.getPoolIndex());
+        return thread;
+    }
+    
+    private static final class SummarizeTask extends RecursiveTask<List<DailyReminderSummaryDTO>> {
+        
+        private final ReminderHistoryEngine engine;
+        private final long firstEpochDay;
+        private final long lastEpochDay;
+        private final int chunkDays;
+        
+        SummarizeTask(ReminderHistoryEngine engine, long firstEpochDay, long lastEpochDay, int chunkDays) {
+            this.engine = engine;
+            this.firstEpochDay = firstEpochDay;
+            this.lastEpochDay = lastEpochDay;
+            this.chunkDays = chunkDays;
+        }
+        
+        @Override
+        protected List<DailyReminderSummaryDTO> compute() {
+            if (lastEpochDay - firstEpochDay < chunkDays) {
+                return engine.summarize(LocalDate.ofEpochDay(firstEpochDay), LocalDate.ofEpochDay(lastEpochDay));
+            }
+            long middle = firstEpochDay + (lastEpochDay - firstEpochDay) / 2;
+            SummarizeTask first = new SummarizeTask(engine, firstEpochDay, middle, chunkDays);
+            SummarizeTask second = new SummarizeTask(engine, middle + 1, lastEpochDay, chunkDays);
+            first.fork();
+            List<DailyReminderSummaryDTO> secondHalf = second.compute();
+            List<DailyReminderSummaryDTO> history = new ArrayList<>(first.join());
+            history.addAll(secondHalf);
+            return history;
+        }
+    }
+}
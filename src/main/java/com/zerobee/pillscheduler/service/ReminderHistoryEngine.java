@@ -0,0 +1,128 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.DailyReminderSummaryDTO;
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import com.zerobee.pillscheduler.utils.RecurrenceRule;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Builds daily summaries in memory from a user's reminders (with their doses already loaded)
+ * and the dose taken records of the requested range, so that the number of queries behind a
+ * summary or a history does not depend on how many days it covers.
+ * The constructor copies what the summaries need into an immutable snapshot detached from the
+ * entities, so one engine can summarize disjoint date ranges on several threads at once
+ * (see {@link ParallelHistoryAssembler}).
+ */
+class ReminderHistoryEngine {
+    
+    private static final DateTimeFormatter DOSE_TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    
+    private final List<ReminderSnapshot> reminders;
+    private final Map<Integer, Set<LocalDate>> takenDatesByDose;
+    
+    ReminderHistoryEngine(List<Reminder> reminders, List<DoseTakenEntry> takenEntries) {
+        this.reminders = reminders.stream().map(ReminderSnapshot::of).toList();
+        Map<Integer, Set<LocalDate>> takenDates = new HashMap<>();
+        for (DoseTakenEntry entry : takenEntries) {
+            takenDates.computeIfAbsent(entry.doseId(), id -> new HashSet<>()).add(entry.date());
+        }
+        this.takenDatesByDose = Map.copyOf(takenDates);
+    }
+    
+    /**
+     * Summaries for every day from startDate to endDate, both inclusive, in date order
+     */
+    List<DailyReminderSummaryDTO> summarize(LocalDate startDate, LocalDate endDate) {
+        List<DailyReminderSummaryDTO> history = new ArrayList<>();
+        LocalDate currentDate = startDate;
+        while (!currentDate.isAfter(endDate)) {
+            history.add(summarize(currentDate));
+            currentDate = currentDate.plusDays(1);
+        }
+        return history;
+    }
+    
+    DailyReminderSummaryDTO summarize(LocalDate date) {
+        int totalReminders = 0;
+        int totalDoses = 0;
+        int dosesTaken = 0;
+        
+        List<DailyReminderSummaryDTO.DailyReminderStatusDTO> reminderStatuses = new ArrayList<>();
+        
+        long epochDay = date.toEpochDay();
+        for (ReminderSnapshot reminder : reminders) {
+            if (!reminder.rule().appliesOn(epochDay)) {
+                continue;
+            }
+            totalReminders++;
+            
+            List<DoseSnapshot> doses = reminder.doses();
+            totalDoses += doses.size();
+            
+            List<DailyReminderSummaryDTO.DoseDailyStatusDTO> doseStatuses = new ArrayList<>(doses.size());
+            int reminderDosesTaken = 0;
+            
+            for (DoseSnapshot dose : doses) {
+                boolean isDoseTaken = isTaken(dose.id(), date);
+                if (isDoseTaken) {
+                    reminderDosesTaken++;
+                }
+                
+                doseStatuses.add(DailyReminderSummaryDTO.DoseDailyStatusDTO.builder()
+                        .doseId(dose.id())
+                        .doseTime(dose.time())
+                        .taken(isDoseTaken)
+                        .build());
+            }
+            dosesTaken += reminderDosesTaken;
+            
+            reminderStatuses.add(DailyReminderSummaryDTO.DailyReminderStatusDTO.builder()
+                    .reminderId(reminder.id())
+                    .reminderName(reminder.name())
+                    .totalDoses(doses.size())
+                    .dosesTaken(reminderDosesTaken)
+                    .doseStatuses(doseStatuses)
+                    .build());
+        }
+        
+        double adherencePercentage = totalDoses > 0 ? ((double) dosesTaken / totalDoses) * 100 : 0;
+        
+        return DailyReminderSummaryDTO.builder()
+                .date(date)
+                .totalReminders(totalReminders)
+                .totalDoses(totalDoses)
+                .dosesTaken(dosesTaken)
+                .dosesMissed(totalDoses - dosesTaken)
+                .adherencePercentage(Math.round(adherencePercentage * 100.0) / 100.0) // Round to 2 decimal places
+                .reminderStatuses(reminderStatuses)
+                .build();
+    }
+    
+    private boolean isTaken(Integer doseId, LocalDate date) {
+        Set<LocalDate> takenDates = takenDatesByDose.get(doseId);
+        return takenDates != null && takenDates.contains(date);
+    }
+    
+    private record ReminderSnapshot(Integer id, String name, RecurrenceRule rule, List<DoseSnapshot> doses) {
+        
+        static ReminderSnapshot of(Reminder reminder) {
+            List<DoseSnapshot> doses = reminder.getDoses() == null ? List.of() : reminder.getDoses().stream()
+                    .map(DoseSnapshot::of)
+                    .toList();
+            return new ReminderSnapshot(reminder.getId(), reminder.getR_name(), RecurrenceRule.of(reminder), doses);
+        }
+    }
+    
+    private record DoseSnapshot(Integer id, String time) {
+        
+        static DoseSnapshot of(Dose dose) {
+            return new DoseSnapshot(dose.getId(),
+                    dose.getDoseTime() != null ? dose.getDoseTime().format(DOSE_TIME_FORMAT) : null);
+        }
+    }
+}
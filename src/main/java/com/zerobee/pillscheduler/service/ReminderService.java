@@ -1,88 +1,164 @@
 package com.zerobee.pillscheduler.service;
 
+import com.zerobee.pillscheduler.dto.BulkMarkResultDTO;
 import com.zerobee.pillscheduler.dto.DailyReminderSummaryDTO;
 import com.zerobee.pillscheduler.dto.DoseDTO;
+import com.zerobee.pillscheduler.dto.DoseMarkOperationDTO;
 import com.zerobee.pillscheduler.dto.ReminderDTO;
+import com.zerobee.pillscheduler.dto.ReminderPageDTO;
+import com.zerobee.pillscheduler.entity.ChangeLogEntry;
 import com.zerobee.pillscheduler.entity.Dose;
-import com.zerobee.pillscheduler.entity.DoseTakenRecord;
 import com.zerobee.pillscheduler.entity.Reminder;
 import com.zerobee.pillscheduler.entity.User;
 import com.zerobee.pillscheduler.enums.Flag;
 import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.enums.ReminderView;
 import com.zerobee.pillscheduler.enums.Status;
 import com.zerobee.pillscheduler.exception.DoseNotFoundException;
+import com.zerobee.pillscheduler.exception.InvalidCursorException;
 import com.zerobee.pillscheduler.exception.ReminderNotFoundException;
 import com.zerobee.pillscheduler.exception.UserNotFoundException;
+import com.zerobee.pillscheduler.repository.DoseListItem;
 import com.zerobee.pillscheduler.repository.DoseRepository;
-import com.zerobee.pillscheduler.repository.DoseTakenRecordRepository;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import com.zerobee.pillscheduler.repository.DoseTakenStore;
+import com.zerobee.pillscheduler.repository.ReminderListItem;
 import com.zerobee.pillscheduler.repository.ReminderRepository;
-import com.zerobee.pillscheduler.utils.FrequencyLogic;
+import com.zerobee.pillscheduler.repository.UserRepository;
+import com.zerobee.pillscheduler.utils.PageCursor;
+import com.zerobee.pillscheduler.utils.RecurrenceRule;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Log4j2
-public class ReminderService implements FrequencyLogic {
+public class ReminderService {
+    
+    static final int MAX_BULK_OPERATIONS = 500;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String REMINDER_CURSOR_SCOPE = "reminders";
     
     private final ReminderRepository reminderRepository;
     private final DoseRepository doseRepository;
-    private final DoseTakenRecordRepository doseTakenRecordRepository;
+    private final DoseTakenStore doseTakenStore;
+    private final UserRepository userRepository;
     private final UserService userService;
+    private final DoseStatusLoader doseStatusLoader;
+    private final AdherenceRollupService adherenceRollupService;
+    private final DoseNotificationDispatcher doseNotificationDispatcher;
+    private final DataVersionService dataVersionService;
+    private final ChangeLogService changeLogService;
+    private final DoseMarkBuffer doseMarkBuffer;
+    private final ScheduledOccurrenceService scheduledOccurrenceService;
+    private final ParallelHistoryAssembler parallelHistoryAssembler;
+    private final TransactionTemplate transactionTemplate;
     
     @Transactional
     public ReminderDTO createReminder(String token, ReminderDTO requestDTO) {
         User user = userService.fetchUser(token).toUser();
         
-        Reminder reminder = buildReminderEntity(requestDTO, user);
-        reminder = reminderRepository.save(reminder);
-        
-        // Create doses based on the times specified in the DTO
-        if (requestDTO.getDoses() != null && !requestDTO.getDoses().isEmpty()) {
-            // Store the final reference to the reminder that we'll use in the lambda
-            final Reminder finalReminder = reminder;
-            
-            List<Dose> doses = requestDTO.getDoses().stream()
-                    .map(doseDTO -> {
-                        // Use the final reference
-                        return Dose.builder()
-                                .doseTime(doseDTO.getDoseTime())
-                                .taken(false)
-                                .reminder(finalReminder) // Use the final reference
-                                .build();
-                    })
-                    .collect(Collectors.toList());
-            
-            // Update the original reminder with the doses
-            reminder.setDoses(doses);
-            reminder.setRemaining_doses(doses.size());
-            reminder = reminderRepository.save(reminder);
+        // A reference is enough for the foreign key, a detached User would be looked up again on insert
+        Reminder reminder = buildReminderEntity(requestDTO, userRepository.getReferenceById(user.getId()));
+        
+        // Create doses based on the times specified in the DTO, they are inserted with the reminder
+        List<Dose> doses = new ArrayList<>();
+        if (requestDTO.getDoses() != null) {
+            requestDTO.getDoses().forEach(doseDTO -> doses.add(Dose.builder()
+                    .doseTime(doseDTO.getDoseTime())
+                    .taken(false)
+                    .reminder(reminder)
+                    .build()));
         }
-        
-        return enrichReminderDTOWithStatus(reminder.toReminderDTO(), LocalDate.now());
+        reminder.setDoses(doses);
+        reminder.setRemaining_doses(doses.size());
+        reminderRepository.save(reminder);
+        scheduledOccurrenceService.reminderSaved(reminder);
+        adherenceRollupService.invalidateFrom(user.getId(), scheduleStart(reminder));
+        doseNotificationDispatcher.reminderCreated(reminder);
+        changeLogService.record(user.getId(), List.of(ChangeLogEntry.reminderSaved(reminder)));
+        
+        return doseStatusLoader.enrich(reminder.toReminderDTO(), LocalDate.now());
     }
     
     public List<ReminderDTO> fetchRemindersForUser(String token) {
+        return fetchRemindersForUser(token, ReminderView.FULL);
+    }
+    
+    public List<ReminderDTO> fetchRemindersForUser(String token, ReminderView view) {
         User user = userService.fetchUser(token).toUser();
-        List<Reminder> reminders = reminderRepository.findByUserId(user.getId());
+        List<Reminder> reminders = reminderRepository.findWithDosesByUserId(user.getId());
         
-        LocalDate today = LocalDate.now();
-        return reminders.stream()
-                .map(reminder -> enrichReminderDTOWithStatus(reminder.toReminderDTO(), today))
-                .collect(Collectors.toList());
+        return doseStatusLoader.enrich(toReminderDTOs(reminders), LocalDate.now(), doseMarkBuffer.pending(user.getId()),
+                view);
+    }
+    
+    /**
+     * One page of the user's reminders in id order, optionally only those with the given flag.
+     * Reads the list view columns of the page, then the doses and their statuses of the whole page
+     * with one query each.
+     */
+    public ReminderPageDTO fetchReminderPage(String token, String cursor, Integer size, String flag) {
+        return fetchReminderPage(token, cursor, size, flag, ReminderView.FULL);
+    }
+    
+    public ReminderPageDTO fetchReminderPage(String token, String cursor, Integer size, String flag,
+                                             ReminderView view) {
+        int pageSize = size != null ? size : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        pageSize = Math.min(pageSize, MAX_PAGE_SIZE);
+        Set<Flag> flags = flag != null ? EnumSet.of(Flag.valueOf(flag.toUpperCase())) : EnumSet.allOf(Flag.class);
+        long afterId = cursor != null ? PageCursor.decode(cursor, REMINDER_CURSOR_SCOPE) : 0;
+        if (afterId < 0 || afterId > Integer.MAX_VALUE) {
+            throw new InvalidCursorException("Cursor out of range");
+        }
+        User user = userService.fetchUser(token).toUser();
+        
+        // One extra row tells whether there is a next page
+        List<ReminderListItem> items = reminderRepository.findListPageByUserId(
+                user.getId(), flags, (int) afterId, PageRequest.ofSize(pageSize + 1));
+        boolean hasMore = items.size() > pageSize;
+        if (hasMore) {
+            items = items.subList(0, pageSize);
+        }
+        
+        Map<Integer, List<DoseDTO>> dosesByReminder = new HashMap<>();
+        if (!items.isEmpty()) {
+            for (DoseListItem dose : doseRepository.findListItemsByReminderIdIn(
+                    items.stream().map(ReminderListItem::id).toList())) {
+                dosesByReminder.computeIfAbsent(dose.reminderId(), id -> new ArrayList<>()).add(dose.toDoseDTO());
+            }
+        }
+        List<ReminderDTO> reminderDTOs = items.stream()
+                .map(item -> item.toReminderDTO(dosesByReminder.getOrDefault(item.id(), new ArrayList<>())))
+                .toList();
+        
+        return ReminderPageDTO.builder()
+                .reminders(doseStatusLoader.enrich(reminderDTOs, LocalDate.now(), doseMarkBuffer.pending(user.getId()),
+                        view))
+                .nextCursor(hasMore ? PageCursor.encode(REMINDER_CURSOR_SCOPE, items.get(items.size() - 1).id()) : null)
+                .build();
     }
     
     public ReminderDTO fetchReminderById(String token, Integer id) {
+        return fetchReminderById(token, id, ReminderView.FULL);
+    }
+    
+    public ReminderDTO fetchReminderById(String token, Integer id, ReminderView view) {
         User user = userService.fetchUser(token).toUser();
-        Reminder reminder = reminderRepository.findById(id)
+        Reminder reminder = reminderRepository.findWithDosesById(id)
                 .orElseThrow(() -> new ReminderNotFoundException("Reminder not found with ID: " + id));
         
         // Check if the reminder belongs to the authenticated user
@@ -90,28 +166,32 @@ public class ReminderService implements FrequencyLogic {
             throw new UserNotFoundException("You are not authorized to access this reminder");
         }
         
-        return enrichReminderDTOWithStatus(reminder.toReminderDTO(), LocalDate.now());
+        return doseStatusLoader.enrich(reminder.toReminderDTO(), LocalDate.now(), doseMarkBuffer.pending(user.getId()),
+                view);
     }
     
     public List<ReminderDTO> fetchActiveRemindersByFrequency(String token, String flag, String status, Frequency frequency) {
+        return fetchActiveRemindersByFrequency(token, flag, status, frequency, ReminderView.FULL);
+    }
+    
+    public List<ReminderDTO> fetchActiveRemindersByFrequency(String token, String flag, String status, Frequency frequency,
+                                                             ReminderView view) {
         User user = userService.fetchUser(token).toUser();
         
         Flag flagEnum = Flag.valueOf(flag.toUpperCase());
         Status statusEnum = Status.valueOf(status.toUpperCase());
         
-        List<Reminder> reminders = reminderRepository.findByUserAndFlagAndStatusAndFrequency(
-                user, flagEnum, statusEnum, frequency);
+        List<Reminder> reminders = reminderRepository.findByUserIdAndFlagAndStatusAndFrequency(
+                user.getId(), flagEnum, statusEnum, frequency);
         
-        LocalDate today = LocalDate.now();
-        return reminders.stream()
-                .map(reminder -> enrichReminderDTOWithStatus(reminder.toReminderDTO(), today))
-                .collect(Collectors.toList());
+        return doseStatusLoader.enrich(toReminderDTOs(reminders), LocalDate.now(), doseMarkBuffer.pending(user.getId()),
+                view);
     }
     
     @Transactional
     public void deleteReminderById(String token, Integer id) {
         User user = userService.fetchUser(token).toUser();
-        Reminder reminder = reminderRepository.findById(id)
+        Reminder reminder = reminderRepository.findWithDosesById(id)
                 .orElseThrow(() -> new ReminderNotFoundException("Reminder not found with ID: " + id));
         
         // Check if the reminder belongs to the authenticated user
@@ -119,7 +199,11 @@ public class ReminderService implements FrequencyLogic {
             throw new UserNotFoundException("You are not authorized to delete this reminder");
         }
         
+        doseNotificationDispatcher.reminderDeleted(reminder);
+        scheduledOccurrenceService.reminderDeleted(reminder);
         reminderRepository.delete(reminder);
+        adherenceRollupService.invalidateFrom(user.getId(), scheduleStart(reminder));
+        changeLogService.record(user.getId(), List.of(ChangeLogEntry.reminderDeleted(reminder)));
     }
     
     @Transactional
@@ -128,19 +212,21 @@ public class ReminderService implements FrequencyLogic {
         Reminder reminder = getReminderForUser(reminderId, user);
         Dose dose = getDoseForReminder(doseId, reminder);
         
-        // Check if dose is already marked as taken for this date
-        if (doseTakenRecordRepository.existsByDoseAndDate(dose, date)) {
+        if (doseMarkBuffer.isEnabled()) {
+            doseMarkBuffer.add(user.getId(), reminderId, doseId, date, true);
+            log.info("Dose {} buffered as taken for date {}", doseId, date);
+            return;
+        }
+        if (!doseTakenStore.setTaken(dose, date, true)) {
             log.info("Dose {} already marked as taken for date {}", doseId, date);
             return;
         }
         
-        // Create a dose taken record
-        DoseTakenRecord takenRecord = DoseTakenRecord.builder()
-                .dose(dose)
-                .date(date)
-                .build();
-        
-        doseTakenRecordRepository.save(takenRecord);
+        if (RecurrenceRule.of(reminder).appliesOn(date)) {
+            adherenceRollupService.adjustDosesTaken(user.getId(), date, 1);
+        }
+        doseNotificationDispatcher.doseTaken(reminder, dose, date);
+        changeLogService.record(user.getId(), List.of(ChangeLogEntry.doseMarked(dose, date, true)));
         log.info("Dose {} marked as taken for date {}", doseId, date);
     }
     
@@ -150,146 +236,237 @@ public class ReminderService implements FrequencyLogic {
         Reminder reminder = getReminderForUser(reminderId, user);
         Dose dose = getDoseForReminder(doseId, reminder);
         
-        // Find and delete the dose taken record if it exists
-        doseTakenRecordRepository.findByDoseAndDate(dose, date)
-                .ifPresent(doseTakenRecordRepository::delete);
+        if (doseMarkBuffer.isEnabled()) {
+            doseMarkBuffer.add(user.getId(), reminderId, doseId, date, false);
+            log.info("Dose {} buffered as not taken for date {}", doseId, date);
+            return;
+        }
+        if (doseTakenStore.setTaken(dose, date, false)) {
+            if (RecurrenceRule.of(reminder).appliesOn(date)) {
+                adherenceRollupService.adjustDosesTaken(user.getId(), date, -1);
+            }
+            doseNotificationDispatcher.doseNotTaken(reminder, dose, date);
+            changeLogService.record(user.getId(), List.of(ChangeLogEntry.doseMarked(dose, date, false)));
+        }
         
         log.info("Dose {} marked as not taken for date {}", doseId, date);
     }
     
+    /**
+     * Applies a batch of mark taken / not taken operations, e.g. replayed by a client that was offline.
+     * Ownership of every dose is checked with one query, the whole batch is applied in one transaction,
+     * and repeating an operation is harmless: only (dose, date) pairs whose state differs are written.
+     * When the batch holds several operations for the same dose and date, the last one wins.
+     * Not transactional itself: the caller's buffered marks are stored first in a transaction of
+     * their own, so the batch's transaction never waits on them.
+     */
+    public BulkMarkResultDTO markDosesInBulk(String token, List<DoseMarkOperationDTO> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("No operations given");
+        }
+        if (operations.size() > MAX_BULK_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_OPERATIONS + " operations are allowed per request");
+        }
+        for (DoseMarkOperationDTO operation : operations) {
+            if (operation.getDoseId() == null || operation.getReminderId() == null || operation.getDate() == null
+                    || operation.getTaken() == null) {
+                throw new IllegalArgumentException("reminderId, doseId, date and taken are required for every operation");
+            }
+        }
+        User user = userService.fetchUser(token).toUser();
+        
+        // The user's buffered single marks are older than this batch, store them first so they cannot
+        // overwrite it
+        doseMarkBuffer.flush(user.getId());
+        return transactionTemplate.execute(status -> applyMarks(user.getId(), operations, false));
+    }
+    
+    /**
+     * Stores marks drained from the {@link DoseMarkBuffer}, in a transaction of their own so the
+     * batches of different users fail independently. The buffer passes at most
+     * {@link #MAX_BULK_OPERATIONS} marks per call. Ownership was checked when the marks were
+     * buffered, marks of doses deleted since then are dropped.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public BulkMarkResultDTO applyBufferedMarks(String userId, List<DoseMarkOperationDTO> operations) {
+        return applyMarks(userId, operations, true);
+    }
+    
+    /**
+     * ETag of a read of the caller's data with the given parameters. Costs the token check and,
+     * unless cached, one version lookup, so a conditional GET can be answered before any loading.
+     * Marks still in the write-behind buffer change it as well.
+     */
+    public String etag(String token, Object... parts) {
+        User user = userService.fetchUser(token).toUser();
+        long pendingStamp = doseMarkBuffer.pendingStamp(user.getId());
+        if (pendingStamp == 0) {
+            return dataVersionService.etag(user.getId(), parts);
+        }
+        Object[] withPending = Arrays.copyOf(parts, parts.length + 1);
+        withPending[parts.length] = "p" + pendingStamp;
+        return dataVersionService.etag(user.getId(), withPending);
+    }
+    
     /**
      * New method to fetch reminders for a specific date
      */
     public List<ReminderDTO> fetchRemindersForDate(String token, LocalDate date) {
+        return fetchRemindersForDate(token, date, ReminderView.FULL);
+    }
+    
+    public List<ReminderDTO> fetchRemindersForDate(String token, LocalDate date, ReminderView view) {
         User user = userService.fetchUser(token).toUser();
-        List<Reminder> reminders = reminderRepository.findByUserId(user.getId());
-        
-        // Filter reminders applicable for the given date
-        List<Reminder> remindersForDate = reminders.stream()
-                .filter(reminder -> isReminderApplicableForDate(reminder, date))
-                .toList();
+        List<Reminder> remindersForDate;
+        if (scheduledOccurrenceService.covers(date, date)) {
+            // Looked up in the materialized occurrences of the date, reminders without doses by their rule
+            remindersForDate = reminderRepository.findWithDosesScheduledOn(user.getId(), date).stream()
+                    .filter(reminder -> !reminder.getDoses().isEmpty() || RecurrenceRule.of(reminder).appliesOn(date))
+                    .toList();
+        } else {
+            // Filter reminders applicable for the given date
+            remindersForDate = reminderRepository.findWithDosesByUserId(user.getId()).stream()
+                    .filter(reminder -> RecurrenceRule.of(reminder).appliesOn(date))
+                    .toList();
+        }
         
         // Convert to DTOs with status for the specific date
-        return remindersForDate.stream()
-                .map(reminder -> enrichReminderDTOWithStatus(reminder.toReminderDTO(), date))
-                .collect(Collectors.toList());
+        return doseStatusLoader.enrich(toReminderDTOs(remindersForDate), date, doseMarkBuffer.pending(user.getId()), view);
     }
     
     /**
-     * New method to fetch reminder history for a date range
+     * New method to fetch reminder history for a date range.
+     * Without reminder statuses the counters are served from the daily adherence rollup, with them
+     * ranges inside the occurrence horizon are read from the materialized occurrences and longer
+     * ones are assembled in parallel.
      */
-    public List<DailyReminderSummaryDTO> fetchReminderHistory(String token, LocalDate startDate, LocalDate endDate) {
+    public List<DailyReminderSummaryDTO> fetchReminderHistory(String token, LocalDate startDate, LocalDate endDate,
+                                                              boolean includeStatuses) {
         // Validate date range
         if (startDate.isAfter(endDate)) {
             throw new IllegalArgumentException("Start date cannot be after end date");
         }
         
         User user = userService.fetchUser(token).toUser();
-        List<DailyReminderSummaryDTO> history = new ArrayList<>();
-        
-        // For each day in the range, generate a summary
-        LocalDate currentDate = startDate;
-        while (!currentDate.isAfter(endDate)) {
-            history.add(getDailySummary(user, currentDate));
-            currentDate = currentDate.plusDays(1);
+        if (!includeStatuses) {
+            return adherenceRollupService.readRange(user.getId(), startDate, endDate,
+                    doseMarkBuffer.pending(user.getId()));
         }
-        
-        return history;
+        return scheduledOccurrenceService.summarize(user.getId(), startDate, endDate, doseMarkBuffer.pending(user.getId()))
+                .orElseGet(() -> parallelHistoryAssembler.summarize(historyEngine(user, startDate, endDate),
+                        startDate, endDate));
     }
     
     /**
      * New method to get a summary for a specific day
      */
-    public DailyReminderSummaryDTO getDailySummary(String token, LocalDate date) {
+    public DailyReminderSummaryDTO getDailySummary(String token, LocalDate date, boolean includeStatuses) {
         User user = userService.fetchUser(token).toUser();
+        if (!includeStatuses) {
+            return adherenceRollupService.readRange(user.getId(), date, date, doseMarkBuffer.pending(user.getId()))
+                    .get(0);
+        }
         return getDailySummary(user, date);
     }
     
     // Private helper methods
     
-    private DailyReminderSummaryDTO getDailySummary(User user, LocalDate date) {
-        List<Reminder> reminders = reminderRepository.findByUserId(user.getId()).stream()
-                .filter(reminder -> isReminderApplicableForDate(reminder, date))
-                .toList();
+    private BulkMarkResultDTO applyMarks(String userId, List<DoseMarkOperationDTO> operations, boolean dropMissing) {
+        Map<DoseTakenEntry, DoseMarkOperationDTO> latestByKey = new LinkedHashMap<>();
+        for (DoseMarkOperationDTO operation : operations) {
+            latestByKey.put(new DoseTakenEntry(operation.getDoseId(), operation.getDate()), operation);
+        }
         
-        int totalReminders = reminders.size();
-        int totalDoses = 0;
-        int dosesTaken = 0;
+        Set<Integer> doseIds = new HashSet<>();
+        for (DoseTakenEntry key : latestByKey.keySet()) {
+            doseIds.add(key.doseId());
+        }
         
-        // Create reminder statuses list
-        List<DailyReminderSummaryDTO.DailyReminderStatusDTO> reminderStatuses = new ArrayList<>();
+        Map<Integer, Dose> ownedDoses = new HashMap<>();
+        for (Dose dose : doseRepository.findOwnedWithReminder(doseIds, userId)) {
+            ownedDoses.put(dose.getId(), dose);
+        }
         
-        for (Reminder reminder : reminders) {
-            List<Dose> doses = reminder.getDoses();
-            int reminderTotalDoses = doses.size();
-            totalDoses += reminderTotalDoses;
-            
-            List<DailyReminderSummaryDTO.DoseDailyStatusDTO> doseStatuses = new ArrayList<>();
-            int reminderDosesTaken = 0;
-            
-            for (Dose dose : doses) {
-                boolean isDoseTaken = doseTakenRecordRepository.existsByDoseAndDate(dose, date);
-                if (isDoseTaken) {
-                    reminderDosesTaken++;
-                    dosesTaken++;
-                }
-                
-                // Add dose status
-                doseStatuses.add(DailyReminderSummaryDTO.DoseDailyStatusDTO.builder()
-                        .doseId(dose.getId())
-                        .doseTime(dose.getDoseTime().format(DateTimeFormatter.ofPattern("HH:mm")))
-                        .taken(isDoseTaken)
-                        .build());
+        Map<DoseTakenEntry, Boolean> takenByKey = new LinkedHashMap<>();
+        for (Map.Entry<DoseTakenEntry, DoseMarkOperationDTO> entry : latestByKey.entrySet()) {
+            DoseTakenEntry key = entry.getKey();
+            DoseMarkOperationDTO operation = entry.getValue();
+            Dose dose = ownedDoses.get(key.doseId());
+            if (dose == null && dropMissing) {
+                continue;
+            }
+            if (dose == null) {
+                throw new DoseNotFoundException("Dose not found with ID: " + key.doseId());
+            }
+            if (!dose.getReminder().getId().equals(operation.getReminderId())) {
+                throw new ReminderNotFoundException("Dose does not belong to the specified reminder");
+            }
+            takenByKey.put(key, operation.getTaken());
+        }
+        
+        int marked = 0;
+        int unmarked = 0;
+        Map<LocalDate, Integer> rollupDeltas = new TreeMap<>();
+        Map<Integer, RecurrenceRule> rules = new HashMap<>();
+        List<ChangeLogEntry> changes = new ArrayList<>();
+        
+        for (DoseTakenEntry key : doseTakenStore.setTaken(takenByKey)) {
+            Dose dose = ownedDoses.get(key.doseId());
+            changes.add(ChangeLogEntry.doseMarked(dose, key.date(), takenByKey.get(key)));
+            int delta;
+            if (takenByKey.get(key)) {
+                doseNotificationDispatcher.doseTaken(dose.getReminder(), dose, key.date());
+                marked++;
+                delta = 1;
+            } else {
+                doseNotificationDispatcher.doseNotTaken(dose.getReminder(), dose, key.date());
+                unmarked++;
+                delta = -1;
             }
             
-            // Add reminder status
-            reminderStatuses.add(DailyReminderSummaryDTO.DailyReminderStatusDTO.builder()
-                    .reminderId(reminder.getId())
-                    .reminderName(reminder.getR_name())
-                    .totalDoses(reminderTotalDoses)
-                    .dosesTaken(reminderDosesTaken)
-                    .doseStatuses(doseStatuses)
-                    .build());
+            RecurrenceRule rule = rules.computeIfAbsent(dose.getReminder().getId(), id -> RecurrenceRule.of(dose.getReminder()));
+            if (rule.appliesOn(key.date())) {
+                rollupDeltas.merge(key.date(), delta, Integer::sum);
+            }
         }
         
-        // Calculate adherence percentage
-        double adherencePercentage = totalDoses > 0 ? ((double) dosesTaken / totalDoses) * 100 : 0;
-        
-        // Create summary DTO
-        return DailyReminderSummaryDTO.builder()
-                .date(date)
-                .totalReminders(totalReminders)
-                .totalDoses(totalDoses)
-                .dosesTaken(dosesTaken)
-                .dosesMissed(totalDoses - dosesTaken)
-                .adherencePercentage(Math.round(adherencePercentage * 100.0) / 100.0) // Round to 2 decimal places
-                .reminderStatuses(reminderStatuses)
+        rollupDeltas.forEach((date, delta) -> {
+            if (delta != 0) {
+                adherenceRollupService.adjustDosesTaken(userId, date, delta);
+            }
+        });
+        if (!changes.isEmpty()) {
+            changeLogService.record(userId, changes);
+        }
+        
+        log.info("Bulk mark for user {}: {} marked, {} unmarked", userId, marked, unmarked);
+        return BulkMarkResultDTO.builder()
+                .requested(operations.size())
+                .marked(marked)
+                .unmarked(unmarked)
+                .unchanged(latestByKey.size() - marked - unmarked)
                 .build();
     }
     
-    private boolean isReminderApplicableForDate(Reminder reminder, LocalDate date) {
-        // Check if the date is within the reminder's date range
-        LocalDate startDate = reminder.getStart_date_time().toLocalDate();
-        LocalDate endDate = reminder.getEnd_date_time() != null ?
-                reminder.getEnd_date_time().toLocalDate() : LocalDate.MAX;
-        
-        if (date.isBefore(startDate) || date.isAfter(endDate)) {
-            return false;
-        }
-        
-        // Check based on frequency
-        return switch (reminder.getFrequency()) {
-            case DAILY -> true;
-            case ALTERNATE_DAYS -> {
-                long daysBetween = startDate.until(date).getDays();
-                yield daysBetween % 2 == 0;
-            }
-            case CUSTOM -> {
-                DayOfWeek dayOfWeek = date.getDayOfWeek();
-                yield isCustomDayReminder(reminder, dayOfWeek);
-            }
-            default -> false;
-        };
+    private DailyReminderSummaryDTO getDailySummary(User user, LocalDate date) {
+        return scheduledOccurrenceService.summarize(user.getId(), date, date, doseMarkBuffer.pending(user.getId()))
+                .map(summaries -> summaries.get(0))
+                .orElseGet(() -> historyEngine(user, date, date).summarize(date));
+    }
+    
+    private LocalDate scheduleStart(Reminder reminder) {
+        return reminder.getStart_date_time() != null ? reminder.getStart_date_time().toLocalDate() : LocalDate.EPOCH;
+    }
+    
+    /**
+     * Loads the user's reminders with their doses and the taken records of the range once,
+     * so the summaries can be assembled in memory with a fixed number of queries
+     */
+    private ReminderHistoryEngine historyEngine(User user, LocalDate startDate, LocalDate endDate) {
+        List<Reminder> reminders = reminderRepository.findWithDosesByUserId(user.getId());
+        List<DoseTakenEntry> takenEntries = doseMarkBuffer.overlayPending(user.getId(), doseTakenStore
+                .findTakenEntriesByUserIdAndDateBetween(user.getId(), startDate, endDate), startDate, endDate);
+        return new ReminderHistoryEngine(reminders, takenEntries);
     }
     
     private Reminder buildReminderEntity(ReminderDTO dto, User user) {
@@ -332,32 +509,9 @@ public class ReminderService implements FrequencyLogic {
         return dose;
     }
     
-    /**
-     * Renamed and simplified version of enrichReminderDTOWithTakenDates
-     * This method enriches a ReminderDTO with the taken status for each dose on a specific date
-     */
-    private ReminderDTO enrichReminderDTOWithStatus(ReminderDTO reminderDTO, LocalDate date) {
-        // For each dose in the DTO, check if it was taken on the specified date
-        if (reminderDTO.getDoses() != null) {
-            for (DoseDTO doseDTO : reminderDTO.getDoses()) {
-                // Load the Dose entity to check its taken records
-                Dose dose = doseRepository.findById(doseDTO.getId())
-                        .orElseThrow(() -> new DoseNotFoundException("Dose not found with ID: " + doseDTO.getId()));
-                
-                // Check if the dose was taken on the specified date
-                boolean wasTakenOnDate = doseTakenRecordRepository.existsByDoseAndDate(dose, date);
-                doseDTO.setTaken(wasTakenOnDate);
-                
-                // Optional: If you want to include the full history of taken dates
-                List<LocalDate> takenDates = doseTakenRecordRepository.findByDose(dose)
-                        .stream()
-                        .map(DoseTakenRecord::getDate)
-                        .collect(Collectors.toList());
-                
-                doseDTO.setTakenDates(takenDates);
-            }
-        }
-        
-        return reminderDTO;
+    private List<ReminderDTO> toReminderDTOs(List<Reminder> reminders) {
+        return reminders.stream()
+                .map(Reminder::toReminderDTO)
+                .collect(Collectors.toList());
     }
 }
\ No newline at end of file
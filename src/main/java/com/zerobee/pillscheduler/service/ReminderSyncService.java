@@ -0,0 +1,155 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.DoseTakenChangeDTO;
+import com.zerobee.pillscheduler.dto.ReminderDTO;
+import com.zerobee.pillscheduler.dto.ReminderSyncDTO;
+import com.zerobee.pillscheduler.entity.ChangeLogEntry;
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.entity.User;
+import com.zerobee.pillscheduler.enums.ChangeType;
+import com.zerobee.pillscheduler.exception.InvalidCursorException;
+import com.zerobee.pillscheduler.repository.ChangeLogRepository;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import com.zerobee.pillscheduler.repository.DoseTakenStore;
+import com.zerobee.pillscheduler.repository.ReminderRepository;
+import com.zerobee.pillscheduler.utils.PageCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Delta sync of a user's reminders and dose marks. A sync without cursor returns the current
+ * state, every later one only the changes appended to the change log since the cursor, so its
+ * cost follows what changed rather than the size of the history.
+ * The cursor is the user's data version: writes of one user commit in version order (see
+ * {@link DataVersionService#bump(String)}), so a version read once is never followed by the
+ * commit of a lower one. Applying a change twice is harmless, which is what makes reading the
+ * version before the data safe.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReminderSyncService {
+    
+    // Larger than the changes of any single write (a bulk mark of 500 operations, buffered marks are
+    // stored in chunks of that size), which are never split
+    static final int MAX_CHANGES = 1000;
+    private static final String SYNC_CURSOR_SCOPE = "sync";
+    
+    private final UserService userService;
+    private final ReminderRepository reminderRepository;
+    private final ChangeLogRepository changeLogRepository;
+    private final DoseTakenStore doseTakenStore;
+    private final DataVersionService dataVersionService;
+    
+    public ReminderSyncDTO sync(String token, String cursor) {
+        long afterVersion = cursor != null ? PageCursor.decode(cursor, SYNC_CURSOR_SCOPE) : 0;
+        if (afterVersion < 0) {
+            throw new InvalidCursorException("Cursor out of range");
+        }
+        User user = userService.fetchUser(token).toUser();
+        return cursor == null ? snapshot(user) : changesSince(user, afterVersion);
+    }
+    
+    private ReminderSyncDTO snapshot(User user) {
+        // Read before the data: changes committed in between are sent again by the next sync
+        long version = dataVersionService.currentVersion(user.getId());
+        List<Reminder> reminders = reminderRepository.findWithDosesByUserId(user.getId());
+        
+        Map<Integer, Integer> reminderIdByDose = new HashMap<>();
+        for (Reminder reminder : reminders) {
+            for (Dose dose : reminder.getDoses()) {
+                reminderIdByDose.put(dose.getId(), reminder.getId());
+            }
+        }
+        List<DoseTakenChangeDTO> doseChanges = new ArrayList<>();
+        if (!reminderIdByDose.isEmpty()) {
+            for (DoseTakenEntry entry : doseTakenStore.findTakenEntriesByDoseIdIn(reminderIdByDose.keySet())) {
+                doseChanges.add(doseChange(reminderIdByDose.get(entry.doseId()), entry.doseId(), entry.date(), true));
+            }
+        }
+        
+        return ReminderSyncDTO.builder()
+                .snapshot(true)
+                .reminders(toSyncDTOs(reminders))
+                .deletedReminderIds(List.of())
+                .doseChanges(doseChanges)
+                .nextCursor(PageCursor.encode(SYNC_CURSOR_SCOPE, version))
+                .hasMore(false)
+                .build();
+    }
+    
+    private ReminderSyncDTO changesSince(User user, long afterVersion) {
+        List<ChangeLogEntry> changes = changeLogRepository.findByUserIdAfterVersion(
+                user.getId(), afterVersion, PageRequest.ofSize(MAX_CHANGES + 1));
+        boolean hasMore = changes.size() > MAX_CHANGES;
+        if (hasMore) {
+            // Leave the write cut off by the limit for the next sync, the cursor moves past whole versions only
+            long cutVersion = changes.get(MAX_CHANGES).getVersion();
+            changes = changes.stream().filter(change -> change.getVersion() != cutVersion).toList();
+            if (changes.isEmpty()) {
+                // A write larger than the limit, sent whole so the cursor never gets stuck in front of it
+                changes = changeLogRepository.findByUserIdAndVersion(user.getId(), cutVersion);
+            }
+        }
+        long version = changes.isEmpty() ? afterVersion : changes.get(changes.size() - 1).getVersion();
+        
+        // Only the last state of a reminder or a (dose, date) pair matters
+        Set<Integer> savedIds = new LinkedHashSet<>();
+        Set<Integer> deletedIds = new LinkedHashSet<>();
+        Map<DoseTakenEntry, DoseTakenChangeDTO> doseChanges = new LinkedHashMap<>();
+        for (ChangeLogEntry change : changes) {
+            switch (change.getType()) {
+                case REMINDER_SAVED -> savedIds.add(change.getReminderId());
+                case REMINDER_DELETED -> {
+                    savedIds.remove(change.getReminderId());
+                    deletedIds.add(change.getReminderId());
+                }
+                case DOSE_TAKEN, DOSE_NOT_TAKEN -> doseChanges.put(
+                        new DoseTakenEntry(change.getDoseId(), change.getDate()),
+                        doseChange(change.getReminderId(), change.getDoseId(), change.getDate(),
+                                change.getType() == ChangeType.DOSE_TAKEN));
+            }
+        }
+        doseChanges.values().removeIf(change -> deletedIds.contains(change.getReminderId()));
+        
+        // A reminder deleted after the log was read is missing here, its tombstone comes with the next sync
+        List<Reminder> saved = savedIds.isEmpty()
+                ? List.of()
+                : reminderRepository.findWithDosesByUserIdAndIdIn(user.getId(), savedIds);
+        
+        return ReminderSyncDTO.builder()
+                .snapshot(false)
+                .reminders(toSyncDTOs(saved))
+                .deletedReminderIds(new ArrayList<>(deletedIds))
+                .doseChanges(new ArrayList<>(doseChanges.values()))
+                .nextCursor(PageCursor.encode(SYNC_CURSOR_SCOPE, version))
+                .hasMore(hasMore)
+                .build();
+    }
+    
+    private static List<ReminderDTO> toSyncDTOs(List<Reminder> reminders) {
+        List<ReminderDTO> dtos = new ArrayList<>(reminders.size());
+        for (Reminder reminder : reminders) {
+            ReminderDTO dto = reminder.toReminderDTO();
+            if (dto.getDoses() != null) {
+                // Taken state travels as dose changes
+                dto.getDoses().forEach(dose -> dose.setTaken(null));
+            }
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+    
+    private static DoseTakenChangeDTO doseChange(Integer reminderId, Integer doseId, LocalDate date, boolean taken) {
+        return DoseTakenChangeDTO.builder()
+                .reminderId(reminderId)
+                .doseId(doseId)
+                .date(date)
+                .taken(taken)
+                .build();
+    }
+}
@@ -0,0 +1,343 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.DailyReminderSummaryDTO;
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.entity.ScheduledOccurrenceHorizon;
+import com.zerobee.pillscheduler.repository.*;
+import com.zerobee.pillscheduler.utils.RecurrenceRule;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Keeps the {@link com.zerobee.pillscheduler.entity.ScheduledOccurrence} table materialized for a
+ * rolling horizon around today, so reads of dates inside it are range joins against the taken
+ * records instead of recurrence rule evaluation in memory. A background job moves the horizon
+ * forward and only materializes the days it gained; saving or deleting a reminder regenerates
+ * that reminder's rows in the same transaction.
+ * <p>
+ * The job first records the horizon it is about to materialize on the horizon row, then
+ * materializes a page of doses per transaction and publishes the new horizon last, so reminder
+ * saves never wait for more than one page. Each page holds the lock of the horizon row
+ * and a reminder saved in between regenerates its rows in the recorded horizon too, so a
+ * reminder saved while the horizon moves is never missed.
+ * Reminders without doses have no occurrences, reads add them by their recurrence rule.
+ */
+@Service
+@Log4j2
+public class ScheduledOccurrenceService {
+    
+    private static final int HORIZON_ID = 1;
+    private static final int PAGE_SIZE = 1000;
+    // Days that left the horizon are deleted this much later, so reads of instances whose view of
+    // the horizon is one job run behind still find their rows
+    private static final int PRUNE_GRACE_DAYS = 7;
+    private static final DateTimeFormatter DOSE_TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+    private static final String INSERT_SQL =
+            "INSERT INTO scheduled_occurrences (user_id, date, dose_id, reminder_id) VALUES (?, ?, ?, ?)";
+    
+    private final ScheduledOccurrenceRepository scheduledOccurrenceRepository;
+    private final ScheduledOccurrenceHorizonRepository horizonRepository;
+    private final DoseRepository doseRepository;
+    private final ReminderRepository reminderRepository;
+    private final DoseTakenStore doseTakenStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int pastDays;
+    private final int futureDays;
+    
+    // As of the last run of the job on this instance, null until then
+    private volatile ScheduledOccurrenceHorizon horizon;
+    
+    public ScheduledOccurrenceService(ScheduledOccurrenceRepository scheduledOccurrenceRepository,
+                                      ScheduledOccurrenceHorizonRepository horizonRepository,
+                                      DoseRepository doseRepository,
+                                      ReminderRepository reminderRepository,
+                                      DoseTakenStore doseTakenStore,
+                                      JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${pillscheduler.occurrences.enabled:true}") boolean enabled,
+                                      @Value("${pillscheduler.occurrences.past-days:90}") int pastDays,
+                                      @Value("${pillscheduler.occurrences.future-days:30}") int futureDays) {
+        this.scheduledOccurrenceRepository = scheduledOccurrenceRepository;
+        this.horizonRepository = horizonRepository;
+        this.doseRepository = doseRepository;
+        this.reminderRepository = reminderRepository;
+        this.doseTakenStore = doseTakenStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.pastDays = pastDays;
+        this.futureDays = futureDays;
+    }
+    
+    /**
+     * Whether the occurrences of every date from startDate to endDate are materialized
+     */
+    public boolean covers(LocalDate startDate, LocalDate endDate) {
+        ScheduledOccurrenceHorizon current = horizon;
+        return enabled && current != null && current.covers(startDate, endDate);
+    }
+    
+    /**
+     * Moves the horizon to the configured days around today. Only the days it gained are
+     * materialized, the days it left are deleted.
+     */
+    @Scheduled(fixedDelayString = "${pillscheduler.occurrences.extend-interval:PT1H}")
+    public void extendHorizon() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        try {
+            horizon = extend(today.minusDays(pastDays), today.plusDays(futureDays));
+        } catch (DataAccessException e) {
+            log.error("Extending the scheduled occurrences failed: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Regenerates the occurrences of a saved reminder within the horizon and the one being
+     * materialized, if any. Must run inside the transaction that saved it, after its doses were
+     * inserted.
+     */
+    @Transactional
+    public void reminderSaved(Reminder reminder) {
+        if (!enabled) {
+            return;
+        }
+        Optional<ScheduledOccurrenceHorizon> current = horizonRepository.findForShare(HORIZON_ID)
+                .filter(row -> row.getStartDate() != null || row.getNextStartDate() != null);
+        if (current.isEmpty()) {
+            // The first run of the job materializes every reminder
+            return;
+        }
+        LocalDate startDate = earlier(current.get().getStartDate(), current.get().getNextStartDate());
+        LocalDate endDate = later(current.get().getEndDate(), current.get().getNextEndDate());
+        scheduledOccurrenceRepository.deleteByReminderId(reminder.getId());
+        RecurrenceRule rule = RecurrenceRule.of(reminder);
+        List<Object[]> rows = new ArrayList<>();
+        for (Dose dose : reminder.getDoses()) {
+            addRows(rows, reminder.getUser().getId(), dose.getId(), reminder.getId(), rule, startDate, endDate);
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+    
+    /**
+     * Deletes the occurrences of a reminder, inside the transaction that deletes it
+     */
+    @Transactional
+    public void reminderDeleted(Reminder reminder) {
+        if (enabled) {
+            scheduledOccurrenceRepository.deleteByReminderId(reminder.getId());
+        }
+    }
+    
+    /**
+     * Summaries for every day from startDate to endDate, both inclusive, in date order, read with
+     * one query from the materialized occurrences, plus the user's reminders without doses that apply
+     * on each day. Empty if the range is not inside the horizon.
+     * Pending marks (see {@link DoseMarkBuffer}) take precedence over the stored state.
+     */
+    public Optional<List<DailyReminderSummaryDTO>> summarize(String userId, LocalDate startDate, LocalDate endDate,
+                                                             Map<DoseTakenEntry, Boolean> pending) {
+        if (!covers(startDate, endDate)) {
+            return Optional.empty();
+        }
+        List<ScheduledOccurrenceStatus> occurrences = doseTakenStore.findOccurrenceStatuses(userId, startDate, endDate);
+        List<DoselessReminder> withoutDoses = reminderRepository.findWithoutDosesByUserId(userId).stream()
+                .map(reminder -> new DoselessReminder(reminder.getId(), reminder.getR_name(), RecurrenceRule.of(reminder)))
+                .toList();
+        List<DailyReminderSummaryDTO> history = new ArrayList<>();
+        int from = 0;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            int to = from;
+            while (to < occurrences.size() && occurrences.get(to).date().equals(date)) {
+                to++;
+            }
+            history.add(summarize(date, occurrences.subList(from, to), withoutDoses, pending));
+            from = to;
+        }
+        return Optional.of(history);
+    }
+    
+    /**
+     * Records the new horizon, materializes the days it gained and then publishes it, each step in
+     * its own transaction
+     */
+    private ScheduledOccurrenceHorizon extend(LocalDate startDate, LocalDate endDate) {
+        ScheduledOccurrenceHorizon current = transactionTemplate.execute(status -> {
+            ScheduledOccurrenceHorizon row = horizonRepository.findForUpdate(HORIZON_ID)
+                    .orElseGet(() -> horizonRepository.saveAndFlush(ScheduledOccurrenceHorizon.builder().id(HORIZON_ID).build()));
+            boolean keepsEndDate = row.getStartDate() != null
+                    && !endDate.isAfter(row.getEndDate())
+                    && !endDate.isBefore(row.getStartDate().minusDays(1));
+            row.setNextStartDate(startDate);
+            row.setNextEndDate(keepsEndDate ? row.getEndDate() : endDate);
+            return row;
+        });
+        LocalDate newEndDate = current.getNextEndDate();
+        
+        int inserted = 0;
+        boolean overlaps = current.getStartDate() != null
+                && !endDate.isBefore(current.getStartDate().minusDays(1))
+                && !startDate.isAfter(current.getEndDate().plusDays(1));
+        if (!overlaps) {
+            inserted += materialize(startDate, newEndDate);
+        } else {
+            if (startDate.isBefore(current.getStartDate())) {
+                inserted += materialize(startDate, current.getStartDate().minusDays(1));
+            }
+            if (newEndDate.isAfter(current.getEndDate())) {
+                inserted += materialize(current.getEndDate().plusDays(1), newEndDate);
+            }
+        }
+        
+        int materialized = inserted;
+        return transactionTemplate.execute(status -> {
+            ScheduledOccurrenceHorizon row = horizonRepository.findForUpdate(HORIZON_ID).orElseThrow();
+            int pruned = scheduledOccurrenceRepository.deleteBefore(startDate.minusDays(PRUNE_GRACE_DAYS));
+            row.setStartDate(startDate);
+            row.setEndDate(newEndDate);
+            // Unless a concurrent run on another instance recorded a different one meanwhile
+            if (startDate.equals(row.getNextStartDate()) && newEndDate.equals(row.getNextEndDate())) {
+                row.setNextStartDate(null);
+                row.setNextEndDate(null);
+            }
+            log.info("Scheduled occurrences materialized from {} to {}: {} inserted, {} pruned",
+                    startDate, newEndDate, materialized, pruned);
+            return row;
+        });
+    }
+    
+    /**
+     * Replaces the occurrences of every dose from startDate to endDate, one page of doses per
+     * transaction
+     */
+    private int materialize(LocalDate startDate, LocalDate endDate) {
+        int inserted = 0;
+        Page page = new Page(0, 0, false);
+        while (!page.last()) {
+            int afterId = page.lastDoseId();
+            page = transactionTemplate.execute(status -> materializePage(afterId, startDate, endDate));
+            inserted += page.inserted();
+        }
+        return inserted;
+    }
+    
+    /**
+     * Replaces the occurrences from startDate to endDate of the page of doses after afterId, under
+     * the lock of the horizon row so no reminder of the page is regenerated at the same time. The
+     * last page also covers the rows of every higher dose id.
+     */
+    private Page materializePage(int afterId, LocalDate startDate, LocalDate endDate) {
+        horizonRepository.findForUpdate(HORIZON_ID);
+        List<DoseSchedule> schedules = doseRepository.findSchedulesAfter(afterId, PageRequest.ofSize(PAGE_SIZE));
+        boolean last = schedules.size() < PAGE_SIZE;
+        int lastDoseId = last ? Integer.MAX_VALUE : schedules.get(schedules.size() - 1).doseId();
+        scheduledOccurrenceRepository.deleteByDoseIdBetweenAndDateBetween(afterId + 1, lastDoseId, startDate, endDate);
+        List<Object[]> rows = new ArrayList<>();
+        for (DoseSchedule schedule : schedules) {
+            addRows(rows, schedule.userId(), schedule.doseId(), schedule.reminderId(), schedule.rule(),
+                    startDate, endDate);
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        return new Page(lastDoseId, rows.size(), last);
+    }
+    
+    private record Page(int lastDoseId, int inserted, boolean last) {
+    }
+    
+    private record DoselessReminder(Integer id, String name, RecurrenceRule rule) {
+    }
+    
+    private static void addRows(List<Object[]> rows, String userId, Integer doseId, Integer reminderId,
+                                RecurrenceRule rule, LocalDate startDate, LocalDate endDate) {
+        for (LocalDate date : rule.occurrences(startDate, endDate)) {
+            rows.add(new Object[]{userId, date, doseId, reminderId});
+        }
+    }
+    
+    private static LocalDate earlier(LocalDate first, LocalDate second) {
+        return first == null || second != null && second.isBefore(first) ? second : first;
+    }
+    
+    private static LocalDate later(LocalDate first, LocalDate second) {
+        return first == null || second != null && second.isAfter(first) ? second : first;
+    }
+    
+    private static DailyReminderSummaryDTO summarize(LocalDate date, List<ScheduledOccurrenceStatus> occurrences,
+                                                     List<DoselessReminder> withoutDoses,
+                                                     Map<DoseTakenEntry, Boolean> pending) {
+        List<DailyReminderSummaryDTO.DailyReminderStatusDTO> reminderStatuses = new ArrayList<>();
+        DailyReminderSummaryDTO.DailyReminderStatusDTO reminderStatus = null;
+        int dosesTaken = 0;
+        int dosesMissed = 0;
+        
+        // Ordered by reminder, so the doses of a reminder are adjacent
+        for (ScheduledOccurrenceStatus occurrence : occurrences) {
+            boolean taken = pending.getOrDefault(occurrence.entry(), occurrence.taken());
+            if (reminderStatus == null || !reminderStatus.getReminderId().equals(occurrence.reminderId())) {
+                reminderStatus = DailyReminderSummaryDTO.DailyReminderStatusDTO.builder()
+                        .reminderId(occurrence.reminderId())
+                        .reminderName(occurrence.reminderName())
+                        .doseStatuses(new ArrayList<>())
+                        .build();
+                reminderStatuses.add(reminderStatus);
+            }
+            reminderStatus.setTotalDoses(reminderStatus.getTotalDoses() + 1);
+            if (taken) {
+                reminderStatus.setDosesTaken(reminderStatus.getDosesTaken() + 1);
+                dosesTaken++;
+            } else {
+                dosesMissed++;
+            }
+            reminderStatus.getDoseStatuses().add(DailyReminderSummaryDTO.DoseDailyStatusDTO.builder()
+                    .doseId(occurrence.doseId())
+                    .doseTime(occurrence.doseTime() != null ? occurrence.doseTime().format(DOSE_TIME_FORMAT) : null)
+                    .taken(taken)
+                    .build());
+        }
+        
+        boolean addedDoseless = false;
+        for (DoselessReminder reminder : withoutDoses) {
+            if (reminder.rule().appliesOn(date)) {
+                reminderStatuses.add(DailyReminderSummaryDTO.DailyReminderStatusDTO.builder()
+                        .reminderId(reminder.id())
+                        .reminderName(reminder.name())
+                        .doseStatuses(new ArrayList<>())
+                        .build());
+                addedDoseless = true;
+            }
+        }
+        if (addedDoseless) {
+            reminderStatuses.sort(Comparator.comparing(DailyReminderSummaryDTO.DailyReminderStatusDTO::getReminderId));
+        }
+        
+        int totalDoses = occurrences.size();
+        double adherencePercentage = totalDoses > 0 ? ((double) dosesTaken / totalDoses) * 100 : 0;
+        
+        return DailyReminderSummaryDTO.builder()
+                .date(date)
+                .totalReminders(reminderStatuses.size())
+                .totalDoses(totalDoses)
+                .dosesTaken(dosesTaken)
+                .dosesMissed(dosesMissed)
+                .adherencePercentage(Math.round(adherencePercentage * 100.0) / 100.0) // Round to 2 decimal places
+                .reminderStatuses(reminderStatuses)
+                .build();
+    }
+}
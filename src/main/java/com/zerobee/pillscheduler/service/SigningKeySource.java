@@ -0,0 +1,12 @@
+package com.zerobee.pillscheduler.service;
+
+import java.io.IOException;
+
+/**
+ * Where {@link OfflineIdTokenVerifier} gets its signing keys from
+ */
+@FunctionalInterface
+public interface SigningKeySource {
+    
+    SigningKeys fetch() throws IOException;
+}
@@ -0,0 +1,13 @@
+package com.zerobee.pillscheduler.service;
+
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Public keys ID tokens are signed with, by key id (the kid header of a token)
+ *
+ * @param expiresAt until when the set may be used, from the Cache-Control max-age it was served with
+ */
+public record SigningKeys(Map<String, PublicKey> byKeyId, Instant expiresAt) {
+}
@@ -0,0 +1,108 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.enums.Flag;
+import com.zerobee.pillscheduler.repository.DoseRepository;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import com.zerobee.pillscheduler.repository.DoseTakenStore;
+import com.zerobee.pillscheduler.utils.RecurrenceRule;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Finds the dose occurrences of active reminders that fall due in a time window and have not been
+ * taken yet. Only doses whose time of day lies in the window are read, page by page, so loading
+ * the next minute touches about a minute's worth of doses.
+ */
+@Component
+@RequiredArgsConstructor
+public class UpcomingDoseLoader {
+    
+    private static final int PAGE_SIZE = 1000;
+    
+    private final DoseRepository doseRepository;
+    private final DoseTakenStore doseTakenStore;
+    
+    /**
+     * Passes every untaken occurrence due after from and at or before to to the consumer.
+     * The window must be shorter than a day.
+     */
+    public int load(Instant from, Instant to, ZoneId zone, Consumer<DoseNotification> consumer) {
+        if (!from.isBefore(to)) {
+            return 0;
+        }
+        if (Duration.between(from, to).compareTo(Duration.ofDays(1)) >= 0) {
+            throw new IllegalArgumentException("Windows of a day or longer are not supported");
+        }
+        LocalTime fromTime = from.atZone(zone).toLocalTime();
+        LocalTime toTime = to.atZone(zone).toLocalTime();
+        if (fromTime.isBefore(toTime)) {
+            return loadDoseTimes(from, to, zone, fromTime, toTime, consumer);
+        }
+        // The window crosses midnight
+        return loadDoseTimes(from, to, zone, fromTime, LocalTime.MAX, consumer)
+                + loadDoseTimes(from, to, zone, LocalTime.MIN, toTime, consumer);
+    }
+    
+    /**
+     * Occurrences of the dose due after from and at or before to
+     */
+    static List<DoseNotification> occurrences(Reminder reminder, Dose dose, RecurrenceRule rule,
+                                              Instant from, Instant to, ZoneId zone) {
+        List<DoseNotification> occurrences = new ArrayList<>(1);
+        if (dose.getDoseTime() == null) {
+            return occurrences;
+        }
+        LocalDate lastDate = to.atZone(zone).toLocalDate();
+        for (LocalDate date = from.atZone(zone).toLocalDate(); !date.isAfter(lastDate); date = date.plusDays(1)) {
+            if (!rule.appliesOn(date)) {
+                continue;
+            }
+            DoseNotification notification = DoseNotification.of(reminder, dose, date, zone);
+            if (notification.dueAt().isAfter(from) && !notification.dueAt().isAfter(to)) {
+                occurrences.add(notification);
+            }
+        }
+        return occurrences;
+    }
+    
+    private int loadDoseTimes(Instant from, Instant to, ZoneId zone, LocalTime fromTime, LocalTime toTime,
+                              Consumer<DoseNotification> consumer) {
+        LocalDate firstDate = from.atZone(zone).toLocalDate();
+        LocalDate lastDate = to.atZone(zone).toLocalDate();
+        Map<Integer, RecurrenceRule> rules = new HashMap<>();
+        int loaded = 0;
+        int afterId = 0;
+        
+        while (true) {
+            List<Dose> doses = doseRepository.findWithReminderByDoseTimeBetween(
+                    Flag.ACTIVE, fromTime, toTime, afterId, PageRequest.ofSize(PAGE_SIZE));
+            if (doses.isEmpty()) {
+                return loaded;
+            }
+            afterId = doses.get(doses.size() - 1).getId();
+            
+            Set<DoseTakenEntry> taken = new HashSet<>(doseTakenStore.findTakenEntriesByDoseIdInAndDateBetween(
+                    doses.stream().map(Dose::getId).toList(), firstDate, lastDate));
+            for (Dose dose : doses) {
+                Reminder reminder = dose.getReminder();
+                RecurrenceRule rule = rules.computeIfAbsent(reminder.getId(), id -> RecurrenceRule.of(reminder));
+                for (DoseNotification notification : occurrences(reminder, dose, rule, from, to, zone)) {
+                    if (!taken.contains(new DoseTakenEntry(dose.getId(), notification.date()))) {
+                        consumer.accept(notification);
+                        loaded++;
+                    }
+                }
+            }
+            if (doses.size() < PAGE_SIZE) {
+                return loaded;
+            }
+        }
+    }
+}
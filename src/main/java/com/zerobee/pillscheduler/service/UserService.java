@@ -2,7 +2,6 @@ package com.zerobee.pillscheduler.service;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.FirebaseToken;
 import com.google.firebase.auth.UserRecord;
 import com.zerobee.pillscheduler.dto.AccessTokenBody;
 import com.zerobee.pillscheduler.dto.UserDTO;
@@ -11,10 +10,13 @@ import com.zerobee.pillscheduler.exception.FirebaseOperationException;
 import com.zerobee.pillscheduler.exception.InvalidToken;
 import com.zerobee.pillscheduler.exception.TokenNotFound;
 import com.zerobee.pillscheduler.exception.UserNotFoundException;
+import com.zerobee.pillscheduler.metrics.FirebaseCallMetrics;
 import com.zerobee.pillscheduler.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 
@@ -24,6 +26,11 @@ import java.util.Optional;
 public class UserService {
     
     private final UserRepository repo;
+    private final VerifiedTokenCache tokenCache;
+    private final IdTokenVerifier idTokenVerifier;
+    private final FirebaseCallMetrics firebaseCallMetrics;
+    private final DataVersionService dataVersionService;
+    private final TransactionTemplate transactionTemplate;
     
     public UserDTO loginUser(AccessTokenBody tokenBody) {
         String authHeader = tokenBody.getToken();
@@ -33,12 +40,16 @@ public class UserService {
         }
         
         String token = authHeader.substring(7);
-        UserRecord firebaseUser = fetchFirebaseUserFromToken(token).orElseThrow(InvalidToken::new);
+        String uid = extractUidFromToken(token);
+        
+        // Known users log in on the verified token alone, the Firebase profile is only read at sign-up
+        Optional<User> existingUser = repo.findById(uid);
+        if (existingUser.isPresent())
+            return existingUser.get().toUserDTO();
         
-        if (isUserPresent(firebaseUser))
-            return fetchUserById(firebaseUser).toUserDTO();
-        else
-            return createUser(firebaseUser);
+        UserRecord firebaseUser = fetchFirebaseUser(uid).orElseThrow(InvalidToken::new);
+        // Outside of the Firebase call, which would otherwise hold a connection
+        return transactionTemplate.execute(status -> createUser(firebaseUser));
     }
     
     public UserDTO fetchUser(String token) {
@@ -48,12 +59,19 @@ public class UserService {
         }
         
         String actualToken = token.substring(7);
-        String uid = extractUidFromToken(actualToken);
+        UserDTO cachedUser = tokenCache.get(actualToken);
+        if (cachedUser != null) {
+            return cachedUser;
+        }
         
-        User user = repo.findById(uid).orElseThrow(InvalidToken::new);
-        return user.toUserDTO();
+        VerifiedIdToken verifiedToken = idTokenVerifier.verify(actualToken);
+        User user = repo.findById(verifiedToken.uid()).orElseThrow(InvalidToken::new);
+        UserDTO userDTO = user.toUserDTO();
+        tokenCache.put(actualToken, userDTO, verifiedToken.expiresAt());
+        return userDTO;
     }
     
+    @Transactional
     public UserDTO updateUser(String token, UserDTO userDTO) {
         if (token == null || token.isBlank() || !token.startsWith("Bearer")) {
             throw new TokenNotFound();
@@ -72,9 +90,12 @@ public class UserService {
         existingUser.setPhoto_url(userDTO.getPhoto_url());
         
         User updatedUser = repo.save(existingUser);
+        tokenCache.invalidateUser(uid);
+        dataVersionService.bump(uid);
         return updatedUser.toUserDTO();
     }
     
+    @Transactional
     public void deleteUser(String token) {
         if (token == null || token.isBlank() || !token.startsWith("Bearer")) {
             throw new TokenNotFound();
@@ -85,18 +106,25 @@ public class UserService {
         User existingUser = repo.findById(uid)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + uid));
         
+        // Deleted and flushed first, so a failing delete never leaves the Firebase account removed and a
+        // failing Firebase call rolls it back
+        repo.delete(existingUser);
+        repo.flush();
+        dataVersionService.bump(uid);
         try {
-            FirebaseAuth.getInstance().deleteUser(uid);
-            repo.delete(existingUser);
+            firebaseCallMetrics.record("deleteUser", () -> {
+                FirebaseAuth.getInstance().deleteUser(uid);
+                return null;
+            });
+            tokenCache.invalidateUser(uid);
         } catch (FirebaseAuthException e) {
             throw new FirebaseOperationException("Failed to delete user from Firebase: " + e.getMessage());
         }
     }
     
-    private Optional<UserRecord> fetchFirebaseUserFromToken(String token) {
-        String uid = extractUidFromToken(token);
+    private Optional<UserRecord> fetchFirebaseUser(String uid) {
         try {
-            return Optional.of(FirebaseAuth.getInstance().getUser(uid));
+            return Optional.of(firebaseCallMetrics.record("getUser", () -> FirebaseAuth.getInstance().getUser(uid)));
         } catch (FirebaseAuthException e) {
             log.error("Error fetching Firebase user: {}", e.getMessage());
             return Optional.empty();
@@ -104,23 +132,7 @@ public class UserService {
     }
     
     private String extractUidFromToken(String token) {
-        try {
-            FirebaseToken decodedToken = FirebaseAuth.getInstance().verifyIdToken(token);
-            return decodedToken.getUid();
-        } catch (FirebaseAuthException e) {
-            log.error("Error decoding token: {}", e.getMessage());
-            throw new InvalidToken();
-        }
-    }
-    
-    private boolean isUserPresent(UserRecord firebaseUser) {
-        return repo.existsById(firebaseUser.getUid());
-    }
-    
-    private User fetchUserById(UserRecord firebaseUser) {
-        return repo
-                .findById(firebaseUser.getUid())
-                .orElseThrow(() -> new UserNotFoundException(firebaseUser.getUid()));
+        return idTokenVerifier.verify(token).uid();
     }
     
     private UserDTO createUser(UserRecord firebaseUser) {
@@ -133,6 +145,7 @@ public class UserService {
                 .build();
         
         repo.save(user);
+        dataVersionService.bump(user.getId());
         return user.toUserDTO();
     }
 }
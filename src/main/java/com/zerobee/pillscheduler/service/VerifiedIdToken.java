@@ -0,0 +1,11 @@
+package com.zerobee.pillscheduler.service;
+
+import java.time.Instant;
+
+/**
+ * The parts of a verified ID token the application uses
+ *
+ * @param expiresAt the token's exp claim, or null if it had none
+ */
+public record VerifiedIdToken(String uid, Instant expiresAt) {
+}
@@ -0,0 +1,159 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.UserDTO;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache of already verified ID tokens and the user they resolved to.
+ * Entries are keyed by a SHA-256 digest of the token (the raw token is never stored)
+ * and never outlive the token's own expiry.
+ */
+@Component
+@Log4j2
+public class VerifiedTokenCache {
+    
+    private final int maxSize;
+    private final Duration maxTtl;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    @Autowired
+    public VerifiedTokenCache(
+            @Value("${pillscheduler.token-cache.max-size:10000}") int maxSize,
+            @Value("${pillscheduler.token-cache.max-ttl:PT10M}") Duration maxTtl) {
+        this(maxSize, maxTtl, Clock.systemUTC());
+    }
+    
+    VerifiedTokenCache(int maxSize, Duration maxTtl, Clock clock) {
+        this.maxSize = maxSize;
+        this.maxTtl = maxTtl;
+        this.clock = clock;
+        // Access order turns the map into an LRU, removeEldestEntry keeps it bounded
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > VerifiedTokenCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Returns a copy of the cached user for this token, or null if it is unknown or expired
+     */
+    public UserDTO get(String token) {
+        String key = digest(token);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (!clock.instant().isBefore(entry.expiresAt())) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return copy(entry.user());
+        }
+    }
+    
+    /**
+     * Caches the user resolved from a verified token until the earlier of the token's
+     * expiry and the configured maximum time to live
+     */
+    public void put(String token, UserDTO user, Instant tokenExpiresAt) {
+        Instant expiresAt = clock.instant().plus(maxTtl);
+        if (tokenExpiresAt != null && tokenExpiresAt.isBefore(expiresAt)) {
+            expiresAt = tokenExpiresAt;
+        }
+        if (!clock.instant().isBefore(expiresAt)) {
+            return;
+        }
+        String key = digest(token);
+        synchronized (entries) {
+            entries.put(key, new Entry(copy(user), expiresAt));
+        }
+    }
+    
+    /**
+     * Drops every cached token of the given user, e.g. after their profile changed
+     */
+    public void invalidateUser(String userId) {
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().user().getId().equals(userId)) {
+                    iterator.remove();
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+        log.debug("Invalidated cached tokens of user {}", userId);
+    }
+    
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    public long getHitCount() {
+        return hits.get();
+    }
+    
+    public long getMissCount() {
+        return misses.get();
+    }
+    
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+    
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to ship SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static UserDTO copy(UserDTO user) {
+        return UserDTO.builder()
+                .id(user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .photo_url(user.getPhoto_url())
+                .build();
+    }
+    
+    private record Entry(UserDTO user, Instant expiresAt) {
+    }
+}
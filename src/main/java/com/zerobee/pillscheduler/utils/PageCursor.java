@@ -0,0 +1,41 @@
+package com.zerobee.pillscheduler.utils;
+
+import com.zerobee.pillscheduler.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination cursors. A cursor carries the position after which the next page starts,
+ * tagged with the listing it belongs to so a cursor of one listing is rejected by another.
+ * Clients must treat it as an opaque string.
+ */
+public final class PageCursor {
+    
+    private PageCursor() {
+    }
+    
+    public static String encode(String scope, long position) {
+        String raw = scope + ":" + position;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Position carried by a cursor of the given listing
+     *
+     * @throws InvalidCursorException if the cursor is malformed or belongs to another listing
+     */
+    public static long decode(String cursor, String scope) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(':');
+            if (separator < 0 || !raw.substring(0, separator).equals(scope)) {
+                throw new InvalidCursorException("Cursor does not belong to this listing");
+            }
+            return Long.parseLong(raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException
+            throw new InvalidCursorException("Malformed cursor");
+        }
+    }
+}
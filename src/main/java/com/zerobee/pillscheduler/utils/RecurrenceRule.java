@@ -0,0 +1,151 @@
+package com.zerobee.pillscheduler.utils;
+
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.enums.Frequency;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Compiled form of a reminder's schedule: a weekday bitmask, a step in days counted from an
+ * epoch-day anchor and inclusive epoch-day bounds. Build it once per reminder with
+ * {@link #of(Reminder)}; every query afterwards is plain integer arithmetic.
+ */
+public final class RecurrenceRule {
+    
+    private static final int ALL_DAYS = 0b111_1111;
+    
+    private static final RecurrenceRule NEVER = new RecurrenceRule(0, 0, 0, -1, 1);
+    
+    // Bit 0 is Monday, bit 6 is Sunday
+    private final int weekdayMask;
+    private final long anchorEpochDay;
+    private final long firstEpochDay;
+    private final long lastEpochDay;
+    private final int stepDays;
+    
+    private RecurrenceRule(int weekdayMask, long anchorEpochDay, long firstEpochDay, long lastEpochDay, int stepDays) {
+        this.weekdayMask = weekdayMask;
+        this.anchorEpochDay = anchorEpochDay;
+        this.firstEpochDay = firstEpochDay;
+        this.lastEpochDay = lastEpochDay;
+        this.stepDays = stepDays;
+    }
+    
+    public static RecurrenceRule of(Reminder reminder) {
+        return of(reminder.getFrequency(), reminder.getDays(), reminder.getStart_date_time(), reminder.getEnd_date_time());
+    }
+    
+    /**
+     * The rule of a reminder's schedule columns, for reads that do not load the reminder entity
+     */
+    public static RecurrenceRule of(Frequency frequency, String days, LocalDateTime startDateTime,
+                                    LocalDateTime endDateTime) {
+        if (startDateTime == null || frequency == null) {
+            return NEVER;
+        }
+        long start = startDateTime.toLocalDate().toEpochDay();
+        long end = endDateTime != null ? endDateTime.toLocalDate().toEpochDay() : Long.MAX_VALUE;
+        
+        return switch (frequency) {
+            case DAILY -> new RecurrenceRule(ALL_DAYS, start, start, end, 1);
+            case ALTERNATE_DAYS -> new RecurrenceRule(ALL_DAYS, start, start, end, 2);
+            case CUSTOM -> new RecurrenceRule(parseWeekdays(days), start, start, end, 1);
+        };
+    }
+    
+    /**
+     * Parses a comma separated list of day names such as "MONDAY, thursday" into a weekday bitmask.
+     * Unknown names are ignored.
+     */
+    public static int parseWeekdays(String days) {
+        if (days == null) return 0;
+        int mask = 0;
+        for (String day : days.split(",")) {
+            String name = day.trim().toUpperCase();
+            for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+                if (dayOfWeek.name().equals(name)) {
+                    mask |= 1 << (dayOfWeek.getValue() - 1);
+                }
+            }
+        }
+        return mask;
+    }
+    
+    public boolean appliesOn(LocalDate date) {
+        return appliesOn(date.toEpochDay());
+    }
+    
+    public boolean appliesOn(long epochDay) {
+        if (epochDay < firstEpochDay || epochDay > lastEpochDay) {
+            return false;
+        }
+        if (stepDays > 1 && Math.floorMod(epochDay - anchorEpochDay, stepDays) != 0) {
+            return false;
+        }
+        return (weekdayMask & (1 << weekdayIndex(epochDay))) != 0;
+    }
+    
+    /**
+     * First date strictly after the given one on which the rule applies, if any
+     */
+    public Optional<LocalDate> nextOccurrence(LocalDate after) {
+        long next = nextEpochDay(after.toEpochDay() + 1);
+        return next < 0 ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(next));
+    }
+    
+    /**
+     * Lazily iterates the dates from startDate to endDate, both inclusive, on which the rule applies
+     */
+    public Iterable<LocalDate> occurrences(LocalDate startDate, LocalDate endDate) {
+        long last = Math.min(endDate.toEpochDay(), lastEpochDay);
+        return () -> new Iterator<>() {
+            private long next = nextEpochDay(startDate.toEpochDay());
+            
+            @Override
+            public boolean hasNext() {
+                return next >= 0 && next <= last;
+            }
+            
+            @Override
+            public LocalDate next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                LocalDate date = LocalDate.ofEpochDay(next);
+                next = nextEpochDay(next + 1);
+                return date;
+            }
+        };
+    }
+    
+    /**
+     * Smallest epoch day greater than or equal to the given one on which the rule applies, or -1.
+     * Stepping by stepDays visits every weekday within seven steps as long as the step is not a
+     * multiple of seven, so the search is bounded.
+     */
+    private long nextEpochDay(long fromEpochDay) {
+        if (weekdayMask == 0) {
+            return -1;
+        }
+        long candidate = Math.max(fromEpochDay, firstEpochDay);
+        if (stepDays > 1) {
+            candidate += Math.floorMod(anchorEpochDay - candidate, stepDays);
+        }
+        for (int i = 0; i < 7 && candidate <= lastEpochDay; i++, candidate += stepDays) {
+            if ((weekdayMask & (1 << weekdayIndex(candidate))) != 0) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+    
+    // Epoch day 0 (1970-01-01) was a Thursday, which is index 3 when Monday is 0
+    private static int weekdayIndex(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7L);
+    }
+}
@@ -0,0 +1,52 @@
+-- Baseline: the schema as Hibernate generated it before migrations were introduced.
+-- Databases created that way are baselined at this version and start from V2.
+
+CREATE TABLE users
+(
+    id        varchar(255) NOT NULL,
+    name      varchar(255),
+    email     varchar(255),
+    photo_url varchar(255),
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE reminders
+(
+    id              integer GENERATED BY DEFAULT AS IDENTITY,
+    r_name          varchar(255),
+    r_photo         varchar(255),
+    r_type          varchar(255),
+    category        varchar(255),
+    frequency       varchar(255),
+    days            varchar(255),
+    start_date_time timestamp(6),
+    end_date_time   timestamp(6),
+    notes           varchar(255),
+    flag            varchar(255),
+    status          varchar(255),
+    remaining_doses integer,
+    user_id         varchar(255) NOT NULL,
+    CONSTRAINT pk_reminders PRIMARY KEY (id),
+    CONSTRAINT fk_reminders_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE doses
+(
+    id          integer GENERATED BY DEFAULT AS IDENTITY,
+    dose_time   time(6),
+    taken       boolean NOT NULL,
+    reminder_id integer NOT NULL,
+    CONSTRAINT pk_doses PRIMARY KEY (id),
+    CONSTRAINT fk_doses_reminder FOREIGN KEY (reminder_id) REFERENCES reminders (id)
+);
+
+CREATE TABLE dose_taken_records
+(
+    id      integer GENERATED BY DEFAULT AS IDENTITY,
+    dose_id integer NOT NULL,
+    date    date    NOT NULL,
+    CONSTRAINT pk_dose_taken_records PRIMARY KEY (id),
+    CONSTRAINT uk_dose_taken_records_dose_id_date UNIQUE (dose_id, date),
+    CONSTRAINT fk_dose_taken_records_dose FOREIGN KEY (dose_id) REFERENCES doses (id)
+);
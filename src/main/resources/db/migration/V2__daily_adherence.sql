@@ -0,0 +1,15 @@
+-- Per-user, per-day adherence counters kept by AdherenceRollupService. Rows are rebuilt on demand,
+-- so an empty table is a valid starting point. Databases Hibernate updated after the rollup was
+-- added already have it.
+
+CREATE TABLE IF NOT EXISTS daily_adherence
+(
+    id              integer GENERATED BY DEFAULT AS IDENTITY,
+    user_id         varchar(255) NOT NULL,
+    date            date         NOT NULL,
+    total_reminders integer      NOT NULL,
+    total_doses     integer      NOT NULL,
+    doses_taken     integer      NOT NULL,
+    CONSTRAINT pk_daily_adherence PRIMARY KEY (id),
+    CONSTRAINT uk_daily_adherence_user_id_date UNIQUE (user_id, date)
+);
@@ -0,0 +1,18 @@
+-- Indexes backing the repository queries. The unique constraints of V1 and V2 already index
+-- dose_taken_records(dose_id, date), used by the dose id lookups, and daily_adherence(user_id, date).
+
+-- ReminderRepository.findByUserIdAndFlagAndStatusAndFrequency, and every user_id = ? lookup
+CREATE INDEX IF NOT EXISTS idx_reminders_user_flag_status_frequency ON reminders (user_id, flag, status, frequency);
+
+-- ReminderRepository.findListPageByUserId: keyset pagination on id within a user
+CREATE INDEX IF NOT EXISTS idx_reminders_user_id_id ON reminders (user_id, id);
+
+-- Fetching the doses of a batch of reminders
+CREATE INDEX IF NOT EXISTS idx_doses_reminder_id ON doses (reminder_id);
+
+-- DoseRepository.findWithReminderByDoseTimeBetween, read by the notification dispatcher
+CREATE INDEX IF NOT EXISTS idx_doses_dose_time ON doses (dose_time, id);
+
+-- Date range scans of the taken records
+CREATE INDEX IF NOT EXISTS idx_dose_taken_records_date ON dose_taken_records (date);
+
@@ -0,0 +1,75 @@
+-- Range partition dose_taken_records by month of date. Queries on a date range only read the
+-- partitions of that range, and old months can be detached or archived one partition at a time.
+-- Primary and unique keys of a partitioned table must contain the partition key, so the primary
+-- key becomes (id, date). Ids keep coming from the database, now from a sequence default that every
+-- partition inherits instead of the identity column, and stay unique.
+
+ALTER TABLE dose_taken_records RENAME TO dose_taken_records_unpartitioned;
+
+CREATE SEQUENCE dose_taken_records_seq;
+SELECT setval('dose_taken_records_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM dose_taken_records_unpartitioned), false);
+
+CREATE TABLE dose_taken_records
+(
+    id      integer NOT NULL DEFAULT nextval('dose_taken_records_seq'),
+    dose_id integer NOT NULL,
+    date    date    NOT NULL
+) PARTITION BY RANGE (date);
+
+ALTER SEQUENCE dose_taken_records_seq OWNED BY dose_taken_records.id;
+
+-- Rows outside every monthly partition, e.g. dates marked far in the past
+CREATE TABLE dose_taken_records_default PARTITION OF dose_taken_records DEFAULT;
+
+-- Constraint names are taken over from the old table
+ALTER TABLE dose_taken_records_unpartitioned DROP CONSTRAINT IF EXISTS pk_dose_taken_records;
+ALTER TABLE dose_taken_records_unpartitioned DROP CONSTRAINT IF EXISTS uk_dose_taken_records_dose_id_date;
+ALTER TABLE dose_taken_records_unpartitioned DROP CONSTRAINT IF EXISTS fk_dose_taken_records_dose;
+DROP INDEX IF EXISTS idx_dose_taken_records_date;
+
+ALTER TABLE dose_taken_records ADD CONSTRAINT pk_dose_taken_records PRIMARY KEY (id, date);
+ALTER TABLE dose_taken_records ADD CONSTRAINT uk_dose_taken_records_dose_id_date UNIQUE (dose_id, date);
+ALTER TABLE dose_taken_records ADD CONSTRAINT fk_dose_taken_records_dose FOREIGN KEY (dose_id) REFERENCES doses (id);
+CREATE INDEX idx_dose_taken_records_date ON dose_taken_records (date);
+
+-- Creates the partition of the month containing the given date, if missing. Rows of that month
+-- that already landed in the default partition are moved into it.
+CREATE OR REPLACE FUNCTION create_dose_taken_records_partition(month_date date) RETURNS void AS
+$$
+DECLARE
+    start_date     date := date_trunc('month', month_date)::date;
+    end_date       date := (date_trunc('month', month_date) + interval '1 month')::date;
+    partition_name text := 'dose_taken_records_' || to_char(month_date, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE dose_taken_records INCLUDING DEFAULTS)', partition_name);
+    EXECUTE format('INSERT INTO %I SELECT * FROM dose_taken_records_default WHERE date >= %L AND date < %L',
+                   partition_name, start_date, end_date);
+    DELETE FROM dose_taken_records_default WHERE date >= start_date AND date < end_date;
+    EXECUTE format('ALTER TABLE dose_taken_records ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, start_date, end_date);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions from the oldest record's month to a year ahead; DoseTakenRecordPartitionMaintainer
+-- keeps creating the months ahead from then on
+DO
+$$
+DECLARE
+    month_date date := date_trunc('month', LEAST(
+            (SELECT MIN(date) FROM dose_taken_records_unpartitioned), current_date))::date;
+BEGIN
+    WHILE month_date <= current_date + interval '12 months' LOOP
+        PERFORM create_dose_taken_records_partition(month_date);
+        month_date := (month_date + interval '1 month')::date;
+    END LOOP;
+END;
+$$;
+
+INSERT INTO dose_taken_records (id, dose_id, date)
+SELECT id, dose_id, date
+FROM dose_taken_records_unpartitioned;
+
+DROP TABLE dose_taken_records_unpartitioned;
@@ -0,0 +1,29 @@
+-- Bitmap storage of taken doses: one row per dose and month, bit n of taken_mask set when the
+-- dose was taken on day n + 1. Used when pillscheduler.dose-taken.storage=bitmap.
+
+CREATE TABLE dose_taken_months
+(
+    id          integer GENERATED BY DEFAULT AS IDENTITY,
+    dose_id     integer NOT NULL,
+    month_start date    NOT NULL,
+    taken_mask  integer NOT NULL,
+    CONSTRAINT pk_dose_taken_months PRIMARY KEY (id),
+    CONSTRAINT uk_dose_taken_months_dose_id_month_start UNIQUE (dose_id, month_start),
+    CONSTRAINT fk_dose_taken_months_dose FOREIGN KEY (dose_id) REFERENCES doses (id)
+);
+
+-- Folds the rows of dose_taken_records into dose_taken_months, keeping bits already set there.
+-- Safe to run again, e.g. right before switching a database that kept writing rows to bitmap.
+CREATE OR REPLACE FUNCTION merge_dose_taken_records_into_months() RETURNS void AS
+$$
+INSERT INTO dose_taken_months (dose_id, month_start, taken_mask)
+SELECT dose_id, month_start, taken_mask
+FROM (SELECT dose_id,
+             date_trunc('month', date)::date                  AS month_start,
+             bit_or(1 << (extract(DAY FROM date)::integer - 1)) AS taken_mask
+      FROM dose_taken_records
+      GROUP BY dose_id, date_trunc('month', date)::date) months
+ON CONFLICT (dose_id, month_start) DO UPDATE SET taken_mask = dose_taken_months.taken_mask | EXCLUDED.taken_mask;
+$$ LANGUAGE sql;
+
+SELECT merge_dose_taken_records_into_months();
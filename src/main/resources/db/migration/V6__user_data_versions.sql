@@ -0,0 +1,9 @@
+-- Per-user data versions behind the ETags of the read endpoints. Users without a row are at
+-- version 0, their first write creates it.
+
+CREATE TABLE user_data_versions
+(
+    user_id varchar(255) NOT NULL,
+    version bigint       NOT NULL,
+    CONSTRAINT pk_user_data_versions PRIMARY KEY (user_id)
+);
@@ -0,0 +1,20 @@
+-- Append-only log of reminder and dose changes read by the delta sync. Rows carry the user's data
+-- version of the write that appended them, the sync cursor is the last version a client has seen.
+-- No foreign keys: tombstones outlive the reminders they describe.
+
+CREATE SEQUENCE change_log_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE change_log
+(
+    id          bigint       NOT NULL,
+    user_id     varchar(255) NOT NULL,
+    version     bigint       NOT NULL,
+    type        varchar(32)  NOT NULL,
+    reminder_id integer      NOT NULL,
+    dose_id     integer,
+    date        date,
+    CONSTRAINT pk_change_log PRIMARY KEY (id)
+);
+
+-- ChangeLogRepository.findByUserIdAfterVersion
+CREATE INDEX idx_change_log_user_id_version ON change_log (user_id, version, id);
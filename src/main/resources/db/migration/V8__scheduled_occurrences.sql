@@ -0,0 +1,33 @@
+-- Materialized schedule: one row per dose and date it is scheduled on, for the dates of the rolling
+-- horizon recorded in scheduled_occurrence_horizon. ScheduledOccurrenceService extends it in the
+-- background and regenerates a reminder's rows whenever the reminder is saved or deleted. Reads of
+-- dates inside the horizon join it against dose_taken_records instead of evaluating the rules.
+
+CREATE TABLE scheduled_occurrences
+(
+    user_id     varchar(255) NOT NULL,
+    date        date         NOT NULL,
+    dose_id     integer      NOT NULL,
+    reminder_id integer      NOT NULL,
+    CONSTRAINT pk_scheduled_occurrences PRIMARY KEY (user_id, date, dose_id),
+    CONSTRAINT fk_scheduled_occurrences_dose FOREIGN KEY (dose_id) REFERENCES doses (id) ON DELETE CASCADE
+);
+
+-- Regeneration of one reminder
+CREATE INDEX idx_scheduled_occurrences_reminder_id ON scheduled_occurrences (reminder_id);
+-- Pruning of the days that left the horizon
+CREATE INDEX idx_scheduled_occurrences_date ON scheduled_occurrences (date);
+
+-- The materialized range as a single row, without dates until the first run of the job. The next
+-- dates are the range a running extension materializes, reminders saved meanwhile cover it too.
+CREATE TABLE scheduled_occurrence_horizon
+(
+    id              integer NOT NULL,
+    start_date      date,
+    end_date        date,
+    next_start_date date,
+    next_end_date   date,
+    CONSTRAINT pk_scheduled_occurrence_horizon PRIMARY KEY (id)
+);
+
+INSERT INTO scheduled_occurrence_horizon (id) VALUES (1);
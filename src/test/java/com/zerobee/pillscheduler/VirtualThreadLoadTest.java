@@ -0,0 +1,207 @@
+package com.zerobee.pillscheduler;
+
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.entity.User;
+import com.zerobee.pillscheduler.enums.Flag;
+import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.enums.Status;
+import com.zerobee.pillscheduler.repository.ReminderRepository;
+import com.zerobee.pillscheduler.repository.UserRepository;
+import com.zerobee.pillscheduler.service.IdTokenVerifier;
+import com.zerobee.pillscheduler.support.StubIdTokenVerifier;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the application twice, once on Tomcat's platform thread pool and once on virtual threads,
+ * and drives the same authenticated load against both while every token verification waits on a
+ * simulated slow Firebase. Reports throughput and latencies per mode in
+ * build/reports/load/virtual-threads.txt. Run with ./gradlew loadTest.
+ */
+@Tag("load")
+class VirtualThreadLoadTest {
+    
+    private static final int PLATFORM_POOL_SIZE = 20;
+    private static final int CONCURRENCY = 200;
+    private static final int REQUESTS = 4000;
+    private static final Duration FIREBASE_LATENCY = Duration.ofMillis(50);
+    private static final String USER_ID = "load-user";
+    private static final Path REPORT = Path.of("build", "reports", "load", "virtual-threads.txt");
+    
+    record LoadResult(String mode, double throughput, long p50Millis, long p99Millis, int errors) {
+        @Override
+        public String toString() {
+            return String.format("%-8s %8.1f req/s  p50 %4d ms  p99 %4d ms  errors %d",
+                    mode, throughput, p50Millis, p99Millis, errors);
+        }
+    }
+    
+    @Test
+    void virtualThreadsServeMoreRequestsWhileFirebaseIsSlow() throws Exception {
+        LoadResult platform = runLoad(false);
+        
+        List<String> pinnedInBlockingCalls = new ArrayList<>();
+        LoadResult virtual;
+        try (RecordingStream pinning = new RecordingStream()) {
+            pinning.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(1)).withStackTrace();
+            pinning.onEvent("jdk.VirtualThreadPinned", event -> {
+                if (isFirebaseOrJdbcCall(event)) {
+                    pinnedInBlockingCalls.add(event.getStackTrace().getFrames().get(0).toString());
+                }
+            });
+            pinning.startAsync();
+            virtual = runLoad(true);
+        }
+        
+        report(platform, virtual);
+        
+        assertThat(platform.errors()).as("errors of %s", platform).isZero();
+        assertThat(virtual.errors()).as("errors of %s", virtual).isZero();
+        assertThat(virtual.throughput()).as("throughput of %s against %s", virtual, platform)
+                .isGreaterThan(platform.throughput());
+        assertThat(pinnedInBlockingCalls).as("virtual threads pinned in token verification or JDBC").isEmpty();
+    }
+    
+    private LoadResult runLoad(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        ApplicationContextInitializer<GenericApplicationContext> stubFirebase = context ->
+                context.registerBean(IdTokenVerifier.class, () -> new StubIdTokenVerifier(FIREBASE_LATENCY),
+                        definition -> definition.setPrimary(true));
+        
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PillSchedulerApplication.class)
+                .profiles("test")
+                .initializers(stubFirebase)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "server.tomcat.threads.max=" + PLATFORM_POOL_SIZE,
+                        // Every request pays for verification, as on a cold cache
+                        "pillscheduler.token-cache.max-size=0",
+                        "spring.datasource.url=jdbc:h2:mem:load-" + mode + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=DATE,MONTH,VALUE;DB_CLOSE_DELAY=-1",
+                        // A database per mode, so its schema comes from the entities instead of the migrations
+                        "spring.flyway.enabled=false",
+                        "spring.jpa.hibernate.ddl-auto=create-drop")
+                .run()) {
+            seed(context);
+            int port = Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+            return drive(mode, URI.create("http://localhost:" + port + "/reminder/fetch"));
+        }
+    }
+    
+    private void seed(ConfigurableApplicationContext context) {
+        User user = context.getBean(UserRepository.class).save(User.builder()
+                .id(USER_ID)
+                .name("Load Test")
+                .email("load@example.com")
+                .build());
+        Reminder reminder = Reminder.builder()
+                .r_name("Metformin")
+                .frequency(Frequency.DAILY)
+                .start_date_time(LocalDateTime.now().minusDays(30))
+                .flag(Flag.ACTIVE)
+                .status(Status.NOT_TAKEN)
+                .remaining_doses(2)
+                .user(user)
+                .build();
+        reminder.setDoses(List.of(
+                Dose.builder().doseTime(LocalTime.of(8, 0)).taken(false).reminder(reminder).build(),
+                Dose.builder().doseTime(LocalTime.of(20, 0)).taken(false).reminder(reminder).build()));
+        context.getBean(ReminderRepository.class).save(reminder);
+    }
+    
+    private LoadResult drive(String mode, URI uri) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", StubIdTokenVerifier.bearer(USER_ID))
+                .GET()
+                .build();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger remaining = new AtomicInteger(REQUESTS);
+        AtomicInteger errors = new AtomicInteger();
+        
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient httpClient = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clients)
+                     .build()) {
+            for (int i = 0; i < CONCURRENCY; i++) {
+                clients.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies.add(System.nanoTime() - sent);
+                    }
+                    return null;
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new LoadResult(mode, sorted.length / seconds,
+                percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.99), errors.get());
+    }
+    
+    private static long percentileMillis(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return Duration.ofNanos(sortedNanos[Math.max(index, 0)]).toMillis();
+    }
+    
+    private static void report(LoadResult... results) throws IOException {
+        StringBuilder report = new StringBuilder(String.format("%d requests, %d concurrent, %d platform threads, "
+                + "Firebase latency %s%n", REQUESTS, CONCURRENCY, PLATFORM_POOL_SIZE, FIREBASE_LATENCY));
+        for (LoadResult result : results) {
+            report.append(result).append(System.lineSeparator());
+        }
+        Files.createDirectories(REPORT.getParent());
+        Files.writeString(REPORT, report);
+    }
+    
+    private static boolean isFirebaseOrJdbcCall(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return false;
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (type.contains("IdTokenVerifier") || type.startsWith("java.sql.")
+                    || type.startsWith("org.h2.") || type.startsWith("org.postgresql.")
+                    || type.startsWith("com.zaxxer.hikari.")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
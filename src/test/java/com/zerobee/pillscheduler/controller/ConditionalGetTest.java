@@ -0,0 +1,107 @@
+package com.zerobee.pillscheduler.controller;
+
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.service.ReminderService;
+import com.zerobee.pillscheduler.support.IntegrationTestConfig;
+import com.zerobee.pillscheduler.support.RecordingStatementInspector;
+import com.zerobee.pillscheduler.support.StubIdTokenVerifier;
+import com.zerobee.pillscheduler.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Polling with the last ETag costs no SQL at all once the caller's token and data version are
+ * cached, and any write makes the old ETag stale
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.zerobee.pillscheduler.support.RecordingStatementInspector")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(IntegrationTestConfig.class)
+class ConditionalGetTest {
+    
+    private static final String USER_ID = "etag-user";
+    private static final String TOKEN = StubIdTokenVerifier.bearer(USER_ID);
+    private static final LocalDate TODAY = LocalDate.now();
+    
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ReminderService reminderService;
+    @Autowired
+    private TestData testData;
+    
+    private Reminder reminder;
+    
+    @BeforeEach
+    void seed() {
+        reminder = testData.reminder(testData.user(USER_ID), "Metformin", TODAY.minusDays(7).atTime(8, 0), LocalTime.of(8, 0));
+    }
+    
+    @AfterEach
+    void cleanUp() {
+        testData.reset();
+    }
+    
+    @Test
+    void matchingEtagIsAnsweredWithoutSql() throws Exception {
+        for (String path : List.of("/reminder/fetch", "/reminder/by-date/" + TODAY, "/reminder/daily-summary/" + TODAY)) {
+            String etag = fetch(path, null, 200);
+            
+            RecordingStatementInspector.clear();
+            fetch(path, etag, 304);
+            
+            assertThat(RecordingStatementInspector.statements()).as("SQL of the 304 of " + path).isEmpty();
+        }
+    }
+    
+    @Test
+    void writeMakesTheEtagStale() throws Exception {
+        String etag = fetch("/reminder/fetch", null, 200);
+        
+        Dose dose = reminder.getDoses().get(0);
+        reminderService.markDoseAsTakenForDate(TOKEN, reminder.getId(), dose.getId(), TODAY);
+        
+        String newEtag = fetch("/reminder/fetch", etag, 200);
+        assertThat(newEtag).isNotEqualTo(etag);
+        fetch("/reminder/fetch", newEtag, 304);
+    }
+    
+    @Test
+    void etagDependsOnTheRequestParameters() throws Exception {
+        String withStatuses = fetch("/reminder/daily-summary/" + TODAY, null, 200);
+        String countersOnly = fetch("/reminder/daily-summary/" + TODAY + "?includeStatuses=false", null, 200);
+        
+        assertThat(countersOnly).isNotEqualTo(withStatuses);
+        fetch("/reminder/daily-summary/" + TODAY + "?includeStatuses=false", withStatuses, 200);
+    }
+    
+    private String fetch(String path, String ifNoneMatch, int expectedStatus) throws Exception {
+        var request = get(path).header(HttpHeaders.AUTHORIZATION, TOKEN);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return mockMvc.perform(request)
+                .andExpect(status().is(expectedStatus))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+    }
+}
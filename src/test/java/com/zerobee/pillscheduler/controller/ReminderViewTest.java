@@ -0,0 +1,119 @@
+package com.zerobee.pillscheduler.controller;
+
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.service.ReminderService;
+import com.zerobee.pillscheduler.support.IntegrationTestConfig;
+import com.zerobee.pillscheduler.support.RecordingStatementInspector;
+import com.zerobee.pillscheduler.support.StubIdTokenVerifier;
+import com.zerobee.pillscheduler.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The view levels and the fields= selector of the reminder endpoints leave out the taken history,
+ * and do not read the taken records they leave out
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.zerobee.pillscheduler.support.RecordingStatementInspector")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(IntegrationTestConfig.class)
+class ReminderViewTest {
+    
+    private static final String USER_ID = "view-user";
+    private static final String TOKEN = StubIdTokenVerifier.bearer(USER_ID);
+    private static final LocalDate TODAY = LocalDate.now();
+    
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ReminderService reminderService;
+    @Autowired
+    private TestData testData;
+    
+    @BeforeEach
+    void seed() {
+        Reminder reminder = testData.reminder(testData.user(USER_ID), "Metformin", TODAY.minusDays(7).atTime(8, 0),
+                LocalTime.of(8, 0));
+        Integer doseId = reminder.getDoses().get(0).getId();
+        reminderService.markDoseAsTakenForDate(TOKEN, reminder.getId(), doseId, TODAY.minusDays(1));
+        reminderService.markDoseAsTakenForDate(TOKEN, reminder.getId(), doseId, TODAY);
+    }
+    
+    @AfterEach
+    void cleanUp() {
+        testData.reset();
+    }
+    
+    @Test
+    void viewsDecideHowMuchOfEachDoseIsLoaded() throws Exception {
+        fetch("/reminder/fetch")
+                .andExpect(jsonPath("$.data[0].doses[0].taken").value(true))
+                .andExpect(jsonPath("$.data[0].doses[0].takenDates.length()").value(2));
+        assertThat(takenRecordReads()).isEqualTo(1);
+        
+        fetch("/reminder/fetch?view=STANDARD")
+                .andExpect(jsonPath("$.data[0].doses[0].taken").value(true))
+                .andExpect(jsonPath("$.data[0].doses[0].takenDates").doesNotExist());
+        assertThat(takenRecordReads()).isEqualTo(1);
+        
+        fetch("/reminder/by-date/" + TODAY + "?view=SUMMARY")
+                .andExpect(jsonPath("$.data[0].r_name").value("Metformin"))
+                .andExpect(jsonPath("$.data[0].doses[0].doseTime").exists())
+                .andExpect(jsonPath("$.data[0].doses[0].taken").doesNotExist());
+        assertThat(takenRecordReads()).isZero();
+    }
+    
+    @Test
+    void fieldsSelectPropertiesAndNarrowTheView() throws Exception {
+        fetch("/reminder/fetch?fields=id,doses.doseTime")
+                .andExpect(jsonPath("$.data[0].id").exists())
+                .andExpect(jsonPath("$.data[0].r_name").doesNotExist())
+                .andExpect(jsonPath("$.data[0].doses[0].doseTime").exists())
+                .andExpect(jsonPath("$.data[0].doses[0].id").doesNotExist())
+                .andExpect(jsonPath("$.data[0].doses[0].taken").doesNotExist());
+        assertThat(takenRecordReads()).isZero();
+        
+        fetch("/reminder/fetch?fields=r_name,doses.taken")
+                .andExpect(jsonPath("$.data[0].r_name").value("Metformin"))
+                .andExpect(jsonPath("$.data[0].doses[0].taken").value(true));
+        
+        mockMvc.perform(get("/reminder/fetch?fields=r_name,dosage").header(HttpHeaders.AUTHORIZATION, TOKEN))
+                .andExpect(status().isBadRequest());
+        // Fields the requested view does not have are rejected instead of silently left out
+        mockMvc.perform(get("/reminder/fetch?fields=doses.takenDates&view=STANDARD")
+                        .header(HttpHeaders.AUTHORIZATION, TOKEN))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/reminder/fetch?fields=doses.taken&view=SUMMARY").header(HttpHeaders.AUTHORIZATION, TOKEN))
+                .andExpect(status().isBadRequest());
+    }
+    
+    private ResultActions fetch(String path) throws Exception {
+        RecordingStatementInspector.clear();
+        return mockMvc.perform(get(path).header(HttpHeaders.AUTHORIZATION, TOKEN))
+                .andExpect(status().isOk());
+    }
+    
+    private long takenRecordReads() {
+        return RecordingStatementInspector.statements().stream()
+                .filter(sql -> sql.toLowerCase().contains("dose_taken_records"))
+                .count();
+    }
+}
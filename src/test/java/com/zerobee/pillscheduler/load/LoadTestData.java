@@ -0,0 +1,74 @@
+package com.zerobee.pillscheduler.load;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Seeds a migrated database with plain SQL, which takes seconds where going through the API would
+ * take longer than the load test itself: users, their reminders (daily, alternate days and three
+ * weekdays, one to three doses each) and a dose taken record for about 80% of every dose's
+ * scheduled days over the given years, in monthly partitions. Pass a single connection data
+ * source, the seeded random numbers are per connection.
+ */
+class LoadTestData {
+    
+    static final String USER_PREFIX = "load-user-";
+    
+    record DoseRef(int reminderId, int doseId) {
+    }
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    LoadTestData(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+    
+    /**
+     * Seeds the data and returns the doses of every user
+     */
+    Map<String, List<DoseRef>> seed(int users, int remindersPerUser, int years, LocalDate today) {
+        LocalDate startDate = today.minusYears(years);
+        for (LocalDate month = startDate.withDayOfMonth(1); !month.isAfter(today); month = month.plusMonths(1)) {
+            jdbcTemplate.queryForObject("SELECT create_dose_taken_records_partition(?)::text", String.class, month);
+        }
+        
+        jdbcTemplate.update("INSERT INTO users (id, name, email) "
+                + "SELECT CAST(? AS text) || i, 'Load User ' || i, 'load' || i || '@example.com' FROM generate_series(1, ?) i",
+                USER_PREFIX, users);
+        jdbcTemplate.update("INSERT INTO reminders (r_name, r_type, category, frequency, days, start_date_time, "
+                + "flag, status, remaining_doses, user_id) "
+                + "SELECT 'Reminder ' || r, 'MEDICINE', 'tablet', (ARRAY['DAILY', 'ALTERNATE_DAYS', 'CUSTOM'])[r % 3 + 1], "
+                + "CASE WHEN r % 3 = 2 THEN 'MONDAY, WEDNESDAY, FRIDAY' END, ?, 'ACTIVE', 'NOT_TAKEN', r % 3 + 1, CAST(? AS text) || u "
+                + "FROM generate_series(1, ?) u CROSS JOIN generate_series(1, ?) r",
+                startDate.atTime(7, 0), USER_PREFIX, users, remindersPerUser);
+        jdbcTemplate.update("INSERT INTO doses (dose_time, taken, reminder_id) "
+                + "SELECT make_time(8 + d * 6, 0, 0), false, r.id FROM reminders r "
+                + "CROSS JOIN generate_series(0, 2) d WHERE d < r.remaining_doses");
+        
+        jdbcTemplate.execute("SELECT setseed(0.42)");
+        jdbcTemplate.update("INSERT INTO dose_taken_records (dose_id, date) "
+                + "SELECT d.id, day::date "
+                + "FROM doses d JOIN reminders r ON r.id = d.reminder_id "
+                + "CROSS JOIN generate_series(?::date, ?::date, interval '1 day') day "
+                + "WHERE random() < 0.8 AND (r.frequency = 'DAILY' "
+                + "OR (r.frequency = 'ALTERNATE_DAYS' AND (day::date - r.start_date_time::date) % 2 = 0) "
+                + "OR (r.frequency = 'CUSTOM' AND extract(isodow FROM day) IN (1, 3, 5)))",
+                startDate, today.minusDays(1));
+        jdbcTemplate.execute("ANALYZE");
+        
+        Map<String, List<DoseRef>> dosesByUser = new HashMap<>();
+        RowCallbackHandler collect = row -> dosesByUser.computeIfAbsent(row.getString(1), id -> new ArrayList<>())
+                .add(new DoseRef(row.getInt(2), row.getInt(3)));
+        jdbcTemplate.query("SELECT r.user_id, r.id, d.id FROM doses d JOIN reminders r ON r.id = d.reminder_id", collect);
+        return dosesByUser;
+    }
+    
+    int takenRecordCount() {
+        Integer count = jdbcTemplate.queryForObject("SELECT count(*) FROM dose_taken_records", Integer.class);
+        return count != null ? count : 0;
+    }
+}
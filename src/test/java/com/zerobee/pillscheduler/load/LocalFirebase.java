@@ -0,0 +1,75 @@
+package com.zerobee.pillscheduler.load;
+
+import com.zerobee.pillscheduler.exception.InvalidToken;
+import com.zerobee.pillscheduler.service.IdTokenVerifier;
+import com.zerobee.pillscheduler.service.OfflineIdTokenVerifier;
+import com.zerobee.pillscheduler.support.SignedIdTokens;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * In-process stand-in for Firebase Authentication. It issues RS256 signed ID tokens with a local
+ * key pair and serves the public key to the application's own {@link OfflineIdTokenVerifier}, so
+ * every request goes through the real signature and claim checks. Tokens it did not sign are
+ * rejected instead of being handed to the Firebase SDK.
+ */
+class LocalFirebase implements AutoCloseable {
+    
+    private static final Duration TOKEN_VALIDITY = Duration.ofHours(1);
+    private static final Duration KEY_SET_VALIDITY = Duration.ofDays(1);
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(10);
+    
+    private final SignedIdTokens tokens = new SignedIdTokens();
+    private final OfflineIdTokenVerifier verifier;
+    
+    LocalFirebase() {
+        IdTokenVerifier rejectAll = idToken -> {
+            throw new InvalidToken();
+        };
+        verifier = new OfflineIdTokenVerifier(SignedIdTokens.PROJECT_ID,
+                () -> tokens.signingKeys(Instant.now().plus(KEY_SET_VALIDITY)), rejectAll,
+                Duration.ofMinutes(1), Clock.systemUTC());
+        verifier.start();
+        awaitKeySet();
+    }
+    
+    IdTokenVerifier verifier() {
+        return verifier;
+    }
+    
+    /**
+     * Authorization header value with a freshly signed token of the user
+     */
+    String bearer(String uid) {
+        return "Bearer " + tokens.issue(uid, Instant.now(), TOKEN_VALIDITY);
+    }
+    
+    @Override
+    public void close() {
+        verifier.close();
+    }
+    
+    // The key set is fetched in the background, until then every token is rejected
+    private void awaitKeySet() {
+        String probe = tokens.issue("probe", Instant.now(), TOKEN_VALIDITY);
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (true) {
+            try {
+                verifier.verify(probe);
+                return;
+            } catch (InvalidToken e) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Local signing keys were not picked up", e);
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(interrupted);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.zerobee.pillscheduler.load;
+
+import com.zerobee.pillscheduler.PillSchedulerApplication;
+import com.zerobee.pillscheduler.load.LoadTestData.DoseRef;
+import com.zerobee.pillscheduler.service.IdTokenVerifier;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Capacity test of the whole application: boots it against an embedded PostgreSQL migrated by
+ * Flyway, with {@link LocalFirebase} signing and verifying the ID tokens, seeds users with years of
+ * dose history and drives a mix of login, fetch, by-date, mark-taken and history requests at a
+ * fixed rate. Reports p50/p95/p99, throughput and the 4xx and 5xx answers per endpoint on stdout
+ * and in build/reports/load/mixed-traffic.txt. Fails on any 5xx answer or failed request.
+ * <p>
+ * Requests are sent on schedule whether or not earlier ones have returned, and latencies count
+ * from the scheduled send time, so a slow server shows up in the percentiles instead of lowering
+ * the request rate. Run with ./gradlew loadTest, tuned with -Ploadtest.rate=400,
+ * -Ploadtest.duration=PT2M, -Ploadtest.users=200, -Ploadtest.reminders-per-user=5,
+ * -Ploadtest.years=3 and -Ploadtest.warmup=PT10S.
+ */
+@Tag("load")
+class MixedTrafficLoadTest {
+    
+    private static final int USERS = Integer.getInteger("loadtest.users", 50);
+    private static final int REMINDERS_PER_USER = Integer.getInteger("loadtest.reminders-per-user", 5);
+    private static final int YEARS = Integer.getInteger("loadtest.years", 3);
+    // Requests per second, over all endpoints
+    private static final int RATE = Integer.getInteger("loadtest.rate", 200);
+    private static final Duration DURATION = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+    private static final Duration WARMUP = Duration.parse(System.getProperty("loadtest.warmup", "PT10S"));
+    private static final Path REPORT = Path.of("build", "reports", "load", "mixed-traffic.txt");
+    
+    enum Endpoint {
+        LOGIN(5),
+        FETCH(20),
+        BY_DATE(30),
+        MARK_TAKEN(20),
+        HISTORY(25);
+        
+        // Share of the requests, in percent
+        private final int weight;
+        
+        Endpoint(int weight) {
+            this.weight = weight;
+        }
+    }
+    
+    // Server errors also count the requests that got no answer at all
+    record EndpointResult(Endpoint endpoint, int requests, int clientErrors, int serverErrors, double throughput,
+                          double p50Millis, double p95Millis, double p99Millis) {
+        @Override
+        public String toString() {
+            return String.format("%-10s %7d req %8.1f req/s  p50 %7.1f ms  p95 %7.1f ms  p99 %7.1f ms  4xx %d  5xx %d",
+                    endpoint, requests, throughput, p50Millis, p95Millis, p99Millis, clientErrors, serverErrors);
+        }
+    }
+    
+    private final LocalDate today = LocalDate.now();
+    private final Map<String, String> tokens = new HashMap<>();
+    private Map<String, List<DoseRef>> dosesByUser;
+    private List<String> userIds;
+    private URI baseUri;
+    
+    @Test
+    void mixedTrafficAtTheConfiguredRate() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start();
+             LocalFirebase firebase = new LocalFirebase()) {
+            seed(postgres);
+            for (String userId : userIds) {
+                tokens.put(userId, firebase.bearer(userId));
+            }
+            
+            ApplicationContextInitializer<GenericApplicationContext> localFirebase = context ->
+                    context.registerBean(IdTokenVerifier.class, firebase::verifier,
+                            definition -> definition.setPrimary(true));
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PillSchedulerApplication.class)
+                    .profiles("test")
+                    .initializers(localFirebase)
+                    .properties(
+                            "server.port=0",
+                            "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                            "spring.datasource.username=postgres",
+                            "spring.datasource.password=",
+                            // The schema and settings of production instead of those of the test profile
+                            "spring.jpa.hibernate.ddl-auto=none",
+                            "spring.flyway.enabled=true",
+                            "pillscheduler.partitions.maintain=true",
+                            "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+                            "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+                            "pillscheduler.occurrences.enabled=true")
+                    .run()) {
+                int port = Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+                baseUri = URI.create("http://localhost:" + port);
+                
+                drive(WARMUP, new SplittableRandom(1));
+                List<EndpointResult> results = drive(DURATION, new SplittableRandom(2));
+                report(results);
+                
+                assertThat(results).allSatisfy(result -> {
+                    assertThat(result.requests()).isPositive();
+                    // 4xx answers are reported, not failed on: they are the client's doing
+                    assertThat(result.serverErrors()).as("5xx answers of %s", result.endpoint()).isZero();
+                });
+            }
+        }
+    }
+    
+    private void seed(EmbeddedPostgres postgres) throws Exception {
+        Flyway.configure().dataSource(postgres.getPostgresDatabase()).load().migrate();
+        SingleConnectionDataSource dataSource =
+                new SingleConnectionDataSource(postgres.getPostgresDatabase().getConnection(), true);
+        try {
+            LoadTestData data = new LoadTestData(dataSource);
+            long start = System.nanoTime();
+            dosesByUser = data.seed(USERS, REMINDERS_PER_USER, YEARS, today);
+            System.out.printf("Seeded %d users, %d dose taken records in %d ms%n", dosesByUser.size(),
+                    data.takenRecordCount(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } finally {
+            dataSource.destroy();
+        }
+        userIds = List.copyOf(new TreeSet<>(dosesByUser.keySet()));
+    }
+    
+    private List<EndpointResult> drive(Duration duration, SplittableRandom random) {
+        Map<Endpoint, ConcurrentLinkedQueue<Long>> latencies = new EnumMap<>(Endpoint.class);
+        Map<Endpoint, AtomicInteger> clientErrors = new EnumMap<>(Endpoint.class);
+        Map<Endpoint, AtomicInteger> serverErrors = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.put(endpoint, new ConcurrentLinkedQueue<>());
+            clientErrors.put(endpoint, new AtomicInteger());
+            serverErrors.put(endpoint, new AtomicInteger());
+        }
+        long intervalNanos = 1_000_000_000L / RATE;
+        long requests = duration.toNanos() / intervalNanos;
+        
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient httpClient = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clients)
+                     .build()) {
+            for (long i = 0; i < requests; i++) {
+                long scheduled = start + i * intervalNanos;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Endpoint endpoint = pick(random);
+                HttpRequest request = request(endpoint, random);
+                clients.submit(() -> {
+                    try {
+                        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 500) {
+                            serverErrors.get(endpoint).incrementAndGet();
+                        } else if (response.statusCode() >= 400) {
+                            clientErrors.get(endpoint).incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        serverErrors.get(endpoint).incrementAndGet();
+                    }
+                    latencies.get(endpoint).add(System.nanoTime() - scheduled);
+                    return null;
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        List<EndpointResult> results = new ArrayList<>();
+        for (Endpoint endpoint : Endpoint.values()) {
+            long[] sorted = latencies.get(endpoint).stream().mapToLong(Long::longValue).sorted().toArray();
+            results.add(new EndpointResult(endpoint, sorted.length, clientErrors.get(endpoint).get(),
+                    serverErrors.get(endpoint).get(), sorted.length / seconds,
+                    percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.95), percentileMillis(sorted, 0.99)));
+        }
+        return results;
+    }
+    
+    private HttpRequest request(Endpoint endpoint, SplittableRandom random) {
+        String userId = userIds.get(random.nextInt(userIds.size()));
+        String token = tokens.get(userId);
+        return switch (endpoint) {
+            case LOGIN -> HttpRequest.newBuilder(baseUri.resolve("/user/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"token\":\"" + token + "\"}"))
+                    .build();
+            case FETCH -> get("/reminder/fetch", token);
+            case BY_DATE -> get("/reminder/by-date/" + today.minusDays(random.nextInt(7)), token);
+            case MARK_TAKEN -> {
+                List<DoseRef> doses = dosesByUser.get(userId);
+                DoseRef dose = doses.get(random.nextInt(doses.size()));
+                LocalDate date = today.minusDays(random.nextInt(14));
+                yield HttpRequest.newBuilder(baseUri.resolve("/reminder/mark-taken/" + dose.reminderId() + "/"
+                                + dose.doseId() + "/" + date))
+                        .header("Authorization", token)
+                        .PUT(HttpRequest.BodyPublishers.noBody())
+                        .build();
+            }
+            case HISTORY -> get("/reminder/history?startDate=" + today.minusDays(29) + "&endDate=" + today, token);
+        };
+    }
+    
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Authorization", token)
+                .GET()
+                .build();
+    }
+    
+    private static Endpoint pick(SplittableRandom random) {
+        int roll = random.nextInt(100);
+        for (Endpoint endpoint : Endpoint.values()) {
+            roll -= endpoint.weight;
+            if (roll < 0) {
+                return endpoint;
+            }
+        }
+        return Endpoint.FETCH;
+    }
+    
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1e6;
+    }
+    
+    private static void report(List<EndpointResult> results) throws IOException {
+        StringBuilder report = new StringBuilder(String.format("%d users, %d reminders each, %d years of history, "
+                + "%d req/s for %s%n", USERS, REMINDERS_PER_USER, YEARS, RATE, DURATION));
+        results.forEach(result -> report.append(result).append(System.lineSeparator()));
+        System.out.print(report);
+        Files.createDirectories(REPORT.getParent());
+        Files.writeString(REPORT, report);
+    }
+}
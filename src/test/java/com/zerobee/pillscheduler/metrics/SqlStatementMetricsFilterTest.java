@@ -0,0 +1,38 @@
+package com.zerobee.pillscheduler.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlStatementMetricsFilterTest {
+    
+    @Test
+    void recordsStatementsInspectedDuringTheRequestPerRoute() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SqlStatementMetricsFilter filter = new SqlStatementMetricsFilter(registry);
+        SqlStatementCounter counter = new SqlStatementCounter();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/reminder/fetch/42");
+        
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/reminder/fetch/{id}");
+            counter.inspect("select 1");
+            counter.inspect("select 2");
+            counter.inspect("select 3");
+        });
+        // Outside a request nothing is counted
+        counter.inspect("select 4");
+        
+        DistributionSummary summary = registry.get("pillscheduler.http.sql.statements")
+                .tag("method", "GET")
+                .tag("uri", "/reminder/fetch/{id}")
+                .summary();
+        assertThat(summary.count()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualTo(3);
+        assertThat(SqlStatementCounter.close()).isZero();
+    }
+}
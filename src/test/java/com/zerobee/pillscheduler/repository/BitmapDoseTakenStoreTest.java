@@ -0,0 +1,176 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.User;
+import com.zerobee.pillscheduler.service.ScheduledOccurrenceService;
+import com.zerobee.pillscheduler.support.IntegrationTestConfig;
+import com.zerobee.pillscheduler.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(properties = {
+        "pillscheduler.dose-taken.storage=bitmap",
+        "pillscheduler.occurrences.enabled=true",
+        "pillscheduler.occurrences.past-days=5",
+        "pillscheduler.occurrences.future-days=0"
+})
+@ActiveProfiles("test")
+@Import(IntegrationTestConfig.class)
+class BitmapDoseTakenStoreTest {
+    
+    private static final String USER_ID = "bitmap-user";
+    private static final LocalDate TODAY = LocalDate.now();
+    
+    @Autowired
+    private DoseTakenStore doseTakenStore;
+    @Autowired
+    private ScheduledOccurrenceService scheduledOccurrenceService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private TestData testData;
+    
+    private TransactionTemplate transactionTemplate;
+    private Dose morning;
+    private Dose evening;
+    
+    @BeforeEach
+    void seed() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        User user = testData.user(USER_ID);
+        LocalDateTime start = LocalDate.of(2024, 1, 1).atStartOfDay();
+        morning = testData.reminder(user, "Metformin", start, LocalTime.of(8, 0)).getDoses().get(0);
+        evening = testData.reminder(user, "Vitamin D", start, LocalTime.of(20, 0)).getDoses().get(0);
+    }
+    
+    @AfterEach
+    void cleanUp() {
+        testData.reset();
+    }
+    
+    @Test
+    void storeIsTheBitmapOne() {
+        assertThat(doseTakenStore).isInstanceOf(BitmapDoseTakenStore.class);
+    }
+    
+    @Test
+    void marksReportOnlyTheBitsTheyChanged() {
+        Map<DoseTakenEntry, Boolean> first = new LinkedHashMap<>();
+        first.put(entry(morning, 2024, 1, 31), true);
+        first.put(entry(morning, 2024, 2, 1), true);
+        first.put(entry(morning, 2024, 2, 2), true);
+        first.put(entry(evening, 2024, 2, 1), true);
+        assertThat(write(first)).containsExactlyInAnyOrderElementsOf(first.keySet());
+        
+        Map<DoseTakenEntry, Boolean> second = new LinkedHashMap<>();
+        second.put(entry(morning, 2024, 2, 1), true);
+        second.put(entry(morning, 2024, 2, 2), false);
+        second.put(entry(morning, 2024, 3, 5), false);
+        second.put(entry(evening, 2024, 2, 1), true);
+        assertThat(write(second)).containsExactly(entry(morning, 2024, 2, 2));
+        
+        assertThat(transactionTemplate.execute(status -> doseTakenStore.setTaken(morning, LocalDate.of(2024, 2, 1), true)))
+                .isFalse();
+        assertThat(transactionTemplate.execute(status -> doseTakenStore.setTaken(evening, LocalDate.of(2024, 2, 1), false)))
+                .isTrue();
+        assertThat(transactionTemplate.execute(status -> doseTakenStore.setTaken(evening, LocalDate.of(2024, 2, 29), true)))
+                .isTrue();
+        
+        assertThat(doseTakenStore.findTakenEntriesByDoseIdIn(List.of(morning.getId(), evening.getId())))
+                .containsExactlyInAnyOrder(
+                        entry(morning, 2024, 1, 31),
+                        entry(morning, 2024, 2, 1),
+                        entry(evening, 2024, 2, 29));
+    }
+    
+    @Test
+    void takenEntriesStreamByDateThenDoseAcrossMonths() {
+        Map<DoseTakenEntry, Boolean> marks = new LinkedHashMap<>();
+        marks.put(entry(evening, 2024, 3, 1), true);
+        marks.put(entry(morning, 2024, 1, 31), true);
+        marks.put(entry(evening, 2024, 1, 2), true);
+        marks.put(entry(morning, 2024, 3, 1), true);
+        marks.put(entry(morning, 2024, 1, 2), true);
+        marks.put(entry(evening, 2024, 2, 15), true);
+        write(marks);
+        
+        List<DoseTakenEntry> streamed = transactionTemplate.execute(status -> {
+            try (Stream<DoseTakenEntry> entries = doseTakenStore.streamTakenEntriesByUserId(USER_ID)) {
+                return entries.toList();
+            }
+        });
+        
+        assertThat(streamed).containsExactly(
+                entry(morning, 2024, 1, 2),
+                entry(evening, 2024, 1, 2),
+                entry(morning, 2024, 1, 31),
+                entry(evening, 2024, 2, 15),
+                entry(morning, 2024, 3, 1),
+                entry(evening, 2024, 3, 1));
+    }
+    
+    @Test
+    void countsOnlyTheDaysInsideTheRange() {
+        Map<DoseTakenEntry, Boolean> marks = new LinkedHashMap<>();
+        for (int day = 10; day <= 31; day++) {
+            marks.put(entry(morning, 2024, 1, day), true);
+        }
+        for (int day = 1; day <= 20; day++) {
+            marks.put(entry(morning, 2024, 2, day), true);
+        }
+        marks.put(entry(evening, 2024, 3, 1), true);
+        write(marks);
+        
+        Map<Integer, Integer> counts = doseTakenStore.countTakenByDoseId(List.of(morning.getId(), evening.getId()),
+                LocalDate.of(2024, 1, 15), LocalDate.of(2024, 2, 10));
+        
+        // January 15 to 31 and February 1 to 10, the evening dose was not taken in the range
+        assertThat(counts).containsExactly(Map.entry(morning.getId(), 17 + 10));
+    }
+    
+    @Test
+    void occurrenceStatusesCarryTheTakenBits() {
+        scheduledOccurrenceService.extendHorizon();
+        LocalDate yesterday = TODAY.minusDays(1);
+        write(Map.of(
+                new DoseTakenEntry(morning.getId(), yesterday), true,
+                new DoseTakenEntry(evening.getId(), TODAY), true));
+        
+        List<ScheduledOccurrenceStatus> statuses = doseTakenStore.findOccurrenceStatuses(USER_ID, yesterday, TODAY);
+        
+        assertThat(statuses)
+                .extracting(ScheduledOccurrenceStatus::entry, ScheduledOccurrenceStatus::taken)
+                .containsExactly(
+                        tuple(new DoseTakenEntry(morning.getId(), yesterday), true),
+                        tuple(new DoseTakenEntry(evening.getId(), yesterday), false),
+                        tuple(new DoseTakenEntry(morning.getId(), TODAY), false),
+                        tuple(new DoseTakenEntry(evening.getId(), TODAY), true));
+    }
+    
+    private Set<DoseTakenEntry> write(Map<DoseTakenEntry, Boolean> marks) {
+        return transactionTemplate.execute(status -> doseTakenStore.setTaken(marks));
+    }
+    
+    private static DoseTakenEntry entry(Dose dose, int year, int month, int day) {
+        return new DoseTakenEntry(dose.getId(), LocalDate.of(year, month, day));
+    }
+}
@@ -0,0 +1,71 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.entity.DoseTakenMonth;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DoseTakenMaskTest {
+    
+    private static final LocalDate FEBRUARY = LocalDate.of(2024, 2, 1);
+    
+    @Test
+    void markAndUnmarkFlipOnlyTheirDay() {
+        DoseTakenMonth month = DoseTakenMonth.builder().monthStart(FEBRUARY).build();
+        
+        assertThat(month.mark(LocalDate.of(2024, 2, 1))).isTrue();
+        assertThat(month.mark(LocalDate.of(2024, 2, 29))).isTrue();
+        assertThat(month.mark(LocalDate.of(2024, 2, 29))).isFalse();
+        assertThat(month.getTakenMask()).isEqualTo(1 | 1 << 28);
+        
+        assertThat(month.unmark(LocalDate.of(2024, 2, 1))).isTrue();
+        assertThat(month.unmark(LocalDate.of(2024, 2, 1))).isFalse();
+        assertThat(month.getTakenMask()).isEqualTo(1 << 28);
+    }
+    
+    @Test
+    void thirtyFirstUsesTheHighestBitWithoutTheSign() {
+        DoseTakenMonth month = DoseTakenMonth.builder().monthStart(LocalDate.of(2024, 1, 1)).build();
+        for (int day = 1; day <= 31; day++) {
+            month.mark(LocalDate.of(2024, 1, day));
+        }
+        
+        assertThat(month.getTakenMask()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(new DoseTakenMask(1, LocalDate.of(2024, 1, 1), month.getTakenMask())
+                .countTaken(LocalDate.of(2023, 12, 1), LocalDate.of(2024, 3, 1))).isEqualTo(31);
+    }
+    
+    @Test
+    void countAndEntriesAreClippedToTheRange() {
+        // Taken on the 3rd, 10th, 11th and 28th
+        DoseTakenMask mask = new DoseTakenMask(7, FEBRUARY, 1 << 2 | 1 << 9 | 1 << 10 | 1 << 27);
+        
+        assertThat(mask.countTaken(LocalDate.of(2024, 2, 10), LocalDate.of(2024, 2, 27))).isEqualTo(2);
+        assertThat(mask.countTaken(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31))).isZero();
+        
+        List<DoseTakenEntry> entries = new ArrayList<>();
+        mask.forEachTaken(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 2, 10), entries::add);
+        assertThat(entries).containsExactly(
+                new DoseTakenEntry(7, LocalDate.of(2024, 2, 3)),
+                new DoseTakenEntry(7, LocalDate.of(2024, 2, 10)));
+        assertThat(mask.isTaken(LocalDate.of(2024, 2, 28))).isTrue();
+        assertThat(mask.isTaken(LocalDate.of(2024, 3, 28))).isFalse();
+    }
+    
+    @Test
+    void masksOfAMonthExpandByDateThenDose() {
+        List<DoseTakenEntry> entries = new ArrayList<>();
+        DoseTakenMask.forEachInDateOrder(List.of(
+                new DoseTakenMask(1, FEBRUARY, 1 << 4 | 1 << 1),
+                new DoseTakenMask(2, FEBRUARY, 1 << 1)), entries::add);
+        
+        assertThat(entries).containsExactly(
+                new DoseTakenEntry(1, LocalDate.of(2024, 2, 2)),
+                new DoseTakenEntry(2, LocalDate.of(2024, 2, 2)),
+                new DoseTakenEntry(1, LocalDate.of(2024, 2, 5)));
+    }
+}
@@ -0,0 +1,127 @@
+package com.zerobee.pillscheduler.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the migrations against an embedded PostgreSQL and checks that the hot queries are planned
+ * on the indexes they were added for, and that date range queries only read their partitions.
+ */
+class MigrationQueryPlanTest {
+    
+    private static EmbeddedPostgres postgres;
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    
+    @BeforeAll
+    static void migrateAndSeed() throws IOException, SQLException {
+        postgres = EmbeddedPostgres.start();
+        Flyway.configure().dataSource(postgres.getPostgresDatabase()).load().migrate();
+        dataSource = new SingleConnectionDataSource(postgres.getPostgresDatabase().getConnection(), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        
+        // Enough rows that the default planner settings prefer the indexes on their own: 2000 users,
+        // user-1 with a long list of 2000 reminders and the others with about 5, two doses per reminder,
+        // a taken record every other day from February to April for a quarter of the doses and two
+        // weeks of occurrences for every dose
+        for (LocalDate month = LocalDate.of(2024, 2, 1); month.getMonthValue() <= 4; month = month.plusMonths(1)) {
+            jdbcTemplate.queryForObject("SELECT create_dose_taken_records_partition(?)::text", String.class, month);
+        }
+        jdbcTemplate.execute("INSERT INTO users (id, name, email) "
+                + "SELECT 'user-' || i, 'User ' || i, 'user' || i || '@example.com' FROM generate_series(1, 2000) i");
+        jdbcTemplate.execute("INSERT INTO reminders (r_name, frequency, flag, status, start_date_time, user_id) "
+                + "SELECT 'Reminder ' || i, (ARRAY['DAILY', 'ALTERNATE_DAYS', 'CUSTOM'])[i % 3 + 1], "
+                + "CASE WHEN i % 4 = 0 THEN 'COMPLETED' ELSE 'ACTIVE' END, "
+                + "CASE WHEN i % 2 = 0 THEN 'TAKEN' ELSE 'NOT_TAKEN' END, '2024-01-01 08:00', "
+                + "CASE WHEN i <= 2000 THEN 'user-1' ELSE 'user-' || (i % 1999 + 2) END "
+                + "FROM generate_series(1, 12000) i");
+        jdbcTemplate.execute("INSERT INTO doses (dose_time, taken, reminder_id) "
+                + "SELECT make_time(i % 24, (i / 24) % 60, 0), false, (i + 1) / 2 FROM generate_series(1, 24000) i");
+        jdbcTemplate.execute("INSERT INTO dose_taken_records (dose_id, date) "
+                + "SELECT d.id, day::date FROM doses d "
+                + "CROSS JOIN generate_series(DATE '2024-02-01', DATE '2024-04-30', interval '2 days') day "
+                + "WHERE d.id % 4 = 0");
+        jdbcTemplate.execute("INSERT INTO scheduled_occurrences (user_id, date, dose_id, reminder_id) "
+                + "SELECT r.user_id, DATE '2024-03-01' + day, d.id, r.id "
+                + "FROM doses d JOIN reminders r ON r.id = d.reminder_id CROSS JOIN generate_series(0, 13) day");
+        jdbcTemplate.execute("ANALYZE");
+    }
+    
+    @AfterAll
+    static void stop() throws IOException {
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+    
+    @Test
+    void reminderFilterUsesCompositeIndex() {
+        assertThat(explain("SELECT * FROM reminders WHERE user_id = 'user-1' AND flag = 'ACTIVE' "
+                + "AND status = 'NOT_TAKEN' AND frequency = 'DAILY'"))
+                .contains("idx_reminders_user_flag_status_frequency");
+    }
+    
+    @Test
+    void reminderKeysetPageUsesUserIdIndex() {
+        assertThat(explain("SELECT * FROM reminders WHERE user_id = 'user-1' AND flag IN ('ACTIVE') "
+                + "AND id > 100 ORDER BY id LIMIT 21"))
+                .contains("idx_reminders_user_id_id");
+    }
+    
+    @Test
+    void dosesByReminderUseReminderIdIndex() {
+        assertThat(explain("SELECT * FROM doses WHERE reminder_id IN (1, 2, 3)"))
+                .contains("idx_doses_reminder_id");
+    }
+    
+    @Test
+    void dosesByTimeUseDoseTimeIndex() {
+        assertThat(explain("SELECT * FROM doses WHERE dose_time BETWEEN '08:00' AND '08:01' AND id > 0 "
+                + "ORDER BY dose_time, id LIMIT 1000"))
+                .contains("idx_doses_dose_time");
+    }
+    
+    @Test
+    void takenRecordsByDoseUseDoseIdDateIndex() {
+        assertThat(explain("SELECT dose_id, date FROM dose_taken_records WHERE dose_id IN (4, 8, 12)"))
+                .contains("dose_id_date");
+    }
+    
+    @Test
+    void occurrenceStatusesAreAnIndexedRangeJoin() {
+        String plan = explain("SELECT o.date, o.dose_id, t.id FROM scheduled_occurrences o "
+                + "LEFT JOIN dose_taken_records t ON t.dose_id = o.dose_id AND t.date = o.date "
+                + "WHERE o.user_id = 'user-7' AND o.date BETWEEN '2024-03-01' AND '2024-03-07'");
+        
+        assertThat(plan).contains("pk_scheduled_occurrences", "dose_id_date");
+    }
+    
+    @Test
+    void dateRangeOnlyReadsItsPartition() {
+        String plan = explain("SELECT * FROM dose_taken_records WHERE date >= '2024-03-01' AND date < '2024-04-01'");
+        
+        assertThat(plan).contains("dose_taken_records_2024_03");
+        assertThat(plan).doesNotContain("dose_taken_records_2024_02", "dose_taken_records_2024_04",
+                "dose_taken_records_default");
+    }
+    
+    private static String explain(String sql) {
+        List<String> lines = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class);
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,35 @@
+package com.zerobee.pillscheduler.repository;
+
+import com.zerobee.pillscheduler.support.IntegrationTestConfig;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the application on the embedded PostgreSQL migrated by Flyway, with Hibernate validating
+ * every entity mapping against the migrated schema, so an entity change without its migration
+ * fails here instead of on the first query in production. The test profile does the same for every
+ * test that imports {@link IntegrationTestConfig}, the properties keep it so if the profile changes.
+ */
+@SpringBootTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@ActiveProfiles("test")
+@Import(IntegrationTestConfig.class)
+class SchemaValidationTest {
+    
+    @Autowired
+    private Flyway flyway;
+    
+    @Test
+    void entitiesMatchTheMigratedSchema() {
+        assertThat(flyway.info().pending()).isEmpty();
+        assertThat(flyway.info().applied()).hasSizeGreaterThan(1);
+    }
+}
@@ -0,0 +1,118 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.AdherenceAnalyticsDTO;
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.enums.Flag;
+import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+class AdherenceAnalyticsEngineTest {
+    
+    // Monday to Sunday two weeks later, across the end of January
+    private static final LocalDate START = LocalDate.of(2024, 1, 29);
+    private static final LocalDate END = LocalDate.of(2024, 2, 11);
+    
+    @Test
+    void onePassCoversStreaksPeriodsRemindersAndHours() {
+        Reminder daily = reminder(1, Frequency.DAILY, 10, LocalTime.of(8, 0), LocalTime.of(20, 0));
+        List<DoseTakenEntry> taken = new ArrayList<>();
+        for (LocalDate date = START; !date.isAfter(END); date = date.plusDays(1)) {
+            taken.add(new DoseTakenEntry(10, date));
+            // The evening dose is missed on Feb 2 and not taken yet today
+            if (!date.equals(LocalDate.of(2024, 2, 2)) && !date.equals(END)) {
+                taken.add(new DoseTakenEntry(11, date));
+            }
+        }
+        
+        AdherenceAnalyticsDTO analytics = new AdherenceAnalyticsEngine(List.of(daily), taken, START, END).analyze(END);
+        
+        assertThat(analytics.getScheduledDoses()).isEqualTo(28);
+        assertThat(analytics.getTakenDoses()).isEqualTo(26);
+        assertThat(analytics.getAdherencePercentage()).isEqualTo(92.86);
+        // Feb 3 to Feb 10, the unfinished today does not break it
+        assertThat(analytics.getCurrentStreak()).isEqualTo(8);
+        assertThat(analytics.getLongestStreak()).isEqualTo(8);
+        assertThat(analytics.getWeekly())
+                .extracting("startDate", "endDate", "scheduledDoses", "takenDoses")
+                .containsExactly(
+                        tuple(START, LocalDate.of(2024, 2, 4), 14, 13),
+                        tuple(LocalDate.of(2024, 2, 5), END, 14, 13));
+        assertThat(analytics.getMonthly())
+                .extracting("startDate", "endDate", "scheduledDoses", "takenDoses")
+                .containsExactly(
+                        tuple(START, LocalDate.of(2024, 1, 31), 6, 6),
+                        tuple(LocalDate.of(2024, 2, 1), END, 22, 20));
+        assertThat(analytics.getReminders())
+                .extracting("reminderId", "scheduledDoses", "takenDoses")
+                .containsExactly(tuple(1, 28, 26));
+        assertThat(analytics.getMissesByHour())
+                .extracting("hour", "scheduledDoses", "missedDoses", "missPercentage")
+                .containsExactly(tuple(8, 14, 0, 0.0), tuple(20, 14, 2, 14.29));
+    }
+    
+    @Test
+    void daysWithoutScheduledDosesKeepTheStreakAndUnscheduledMarksDoNotCount() {
+        Reminder alternate = reminder(1, Frequency.ALTERNATE_DAYS, 10, LocalTime.of(9, 0));
+        List<DoseTakenEntry> taken = new ArrayList<>();
+        for (LocalDate date = START; !date.isAfter(END); date = date.plusDays(2)) {
+            taken.add(new DoseTakenEntry(10, date));
+        }
+        taken.add(new DoseTakenEntry(10, START.plusDays(1)));
+        // Outside the range
+        taken.add(new DoseTakenEntry(10, END.plusDays(1)));
+        
+        AdherenceAnalyticsDTO analytics = new AdherenceAnalyticsEngine(List.of(alternate), taken, START, END)
+                .analyze(END.plusDays(5));
+        
+        assertThat(analytics.getScheduledDoses()).isEqualTo(7);
+        assertThat(analytics.getTakenDoses()).isEqualTo(7);
+        assertThat(analytics.getCurrentStreak()).isEqualTo(7);
+        assertThat(analytics.getLongestStreak()).isEqualTo(7);
+    }
+    
+    @Test
+    void trailingStreakStopsAtTheLastMissedDay() {
+        Reminder daily = reminder(1, Frequency.DAILY, 10, LocalTime.of(8, 0));
+        List<DoseTakenEntry> taken = new ArrayList<>();
+        for (LocalDate date = START; !date.isAfter(END); date = date.plusDays(1)) {
+            if (!date.equals(LocalDate.of(2024, 2, 5))) {
+                taken.add(new DoseTakenEntry(10, date));
+            }
+        }
+        
+        AdherenceAnalyticsEngine.TrailingStreak streak = new AdherenceAnalyticsEngine(List.of(daily), taken,
+                START, END).trailingStreak(END);
+        // Taken every day of the range, e.g. when it ends before the missed day
+        AdherenceAnalyticsEngine.TrailingStreak unbroken = new AdherenceAnalyticsEngine(List.of(daily), taken,
+                START, LocalDate.of(2024, 2, 4)).trailingStreak(END);
+        
+        assertThat(streak).isEqualTo(new AdherenceAnalyticsEngine.TrailingStreak(6, false));
+        assertThat(unbroken).isEqualTo(new AdherenceAnalyticsEngine.TrailingStreak(7, true));
+    }
+    
+    private static Reminder reminder(int id, Frequency frequency, int firstDoseId, LocalTime... doseTimes) {
+        Reminder reminder = Reminder.builder()
+                .id(id)
+                .r_name("Reminder " + id)
+                .frequency(frequency)
+                .start_date_time(START.atTime(8, 0))
+                .flag(Flag.ACTIVE)
+                .build();
+        List<Dose> doses = new ArrayList<>();
+        for (int i = 0; i < doseTimes.length; i++) {
+            doses.add(Dose.builder().id(firstDoseId + i).doseTime(doseTimes[i]).reminder(reminder).build());
+        }
+        reminder.setDoses(doses);
+        return reminder;
+    }
+}
@@ -0,0 +1,92 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.enums.ExportFormat;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DoseHistoryWriterTest {
+    
+    private final DoseHistoryWriter writer = new DoseHistoryWriter();
+    
+    @Test
+    void writesNdjsonAndEscapedCsv() throws IOException {
+        Map<Integer, DoseHistoryWriter.DoseInfo> doses = Map.of(
+                7, new DoseHistoryWriter.DoseInfo(3, "Vitamin D, \"forte\"", 7, LocalTime.of(8, 30)));
+        List<DoseTakenEntry> entries = List.of(
+                new DoseTakenEntry(7, LocalDate.of(2024, 1, 1)),
+                new DoseTakenEntry(99, LocalDate.of(2024, 1, 1)), // unknown dose, skipped
+                new DoseTakenEntry(7, LocalDate.of(2024, 1, 2)));
+        
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        assertThat(writer.write(entries.stream(), doses, ExportFormat.NDJSON, ndjson)).isEqualTo(2);
+        assertThat(ndjson.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"date\":\"2024-01-01\",\"reminderId\":3,\"reminderName\":\"Vitamin D, \\\"forte\\\"\",\"doseId\":7,\"doseTime\":\"08:30\"}\n" +
+                "{\"date\":\"2024-01-02\",\"reminderId\":3,\"reminderName\":\"Vitamin D, \\\"forte\\\"\",\"doseId\":7,\"doseTime\":\"08:30\"}\n");
+        
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        assertThat(writer.write(entries.stream(), doses, ExportFormat.CSV, csv)).isEqualTo(2);
+        assertThat(csv.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "date,reminderId,reminderName,doseId,doseTime\n" +
+                "2024-01-01,3,\"Vitamin D, \"\"forte\"\"\",7,08:30\n" +
+                "2024-01-02,3,\"Vitamin D, \"\"forte\"\"\",7,08:30\n");
+    }
+    
+    /**
+     * Ten years of daily records for 150 doses is far more than the heap of the lowMemoryTest
+     * task could hold at once, so this only passes if the writer really streams.
+     */
+    @Test
+    @Tag("low-memory")
+    void exportsMultiYearHistoryWithFlatHeap() throws IOException {
+        int doseCount = 150;
+        LocalDate firstDay = LocalDate.of(2015, 1, 1);
+        long days = ChronoUnit.DAYS.between(firstDay, firstDay.plusYears(10));
+        
+        Map<Integer, DoseHistoryWriter.DoseInfo> doses = new HashMap<>();
+        IntStream.rangeClosed(1, doseCount).forEach(id -> doses.put(id,
+                new DoseHistoryWriter.DoseInfo(1 + id / 3, "Reminder " + id, id, LocalTime.of(8 + id % 12, 0))));
+        
+        for (ExportFormat format : ExportFormat.values()) {
+            Stream<DoseTakenEntry> entries = LongStream.range(0, days)
+                    .mapToObj(firstDay::plusDays)
+                    .flatMap(date -> IntStream.rangeClosed(1, doseCount).mapToObj(id -> new DoseTakenEntry(id, date)));
+            CountingOutputStream out = new CountingOutputStream();
+            
+            long lines = writer.write(entries, doses, format, out);
+            
+            assertThat(lines).isEqualTo(days * doseCount);
+            assertThat(out.count).isGreaterThan(lines * 20);
+        }
+    }
+    
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+        
+        @Override
+        public void write(int b) {
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.BulkMarkResultDTO;
+import com.zerobee.pillscheduler.dto.DoseMarkOperationDTO;
+import com.zerobee.pillscheduler.dto.ReminderDTO;
+import com.zerobee.pillscheduler.entity.ChangeLogEntry;
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.repository.ChangeLogRepository;
+import com.zerobee.pillscheduler.repository.DoseTakenRecordRepository;
+import com.zerobee.pillscheduler.support.IntegrationTestConfig;
+import com.zerobee.pillscheduler.support.StubIdTokenVerifier;
+import com.zerobee.pillscheduler.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Marks in write-behind mode: acknowledged without a write, visible to reads right away, coalesced
+ * and stored on flush
+ */
+@SpringBootTest(properties = {
+        "pillscheduler.write-behind.enabled=true",
+        "pillscheduler.write-behind.flush-interval=PT1H"
+})
+@ActiveProfiles("test")
+@Import(IntegrationTestConfig.class)
+class DoseMarkBufferTest {
+    
+    private static final String USER_ID = "write-behind-user";
+    private static final String TOKEN = StubIdTokenVerifier.bearer(USER_ID);
+    private static final String OTHER_USER_ID = "write-behind-other-user";
+    private static final LocalDate TODAY = LocalDate.now();
+    
+    @TempDir
+    static Path journalDirectory;
+    
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) {
+        registry.add("pillscheduler.write-behind.journal-directory", journalDirectory::toString);
+    }
+    
+    @Autowired
+    private ReminderService reminderService;
+    @Autowired
+    private DoseMarkBuffer doseMarkBuffer;
+    @Autowired
+    private TestData testData;
+    @Autowired
+    private DoseTakenRecordRepository doseTakenRecordRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    
+    private Reminder reminder;
+    private Dose dose;
+    
+    @BeforeEach
+    void seed() {
+        reminder = testData.reminder(testData.user(USER_ID), "Metformin", TODAY.minusDays(7).atTime(8, 0), LocalTime.of(8, 0));
+        dose = reminder.getDoses().get(0);
+    }
+    
+    @AfterEach
+    void cleanUp() {
+        doseMarkBuffer.flush();
+        testData.reset();
+    }
+    
+    @Test
+    void bufferedMarkIsReadBackAndStoredOnFlush() {
+        String etag = reminderService.etag(TOKEN, "fetch");
+        
+        reminderService.markDoseAsTakenForDate(TOKEN, reminder.getId(), dose.getId(), TODAY);
+        
+        assertThat(doseTakenRecordRepository.count()).isZero();
+        assertThat(takenToday()).isTrue();
+        assertThat(reminderService.getDailySummary(TOKEN, TODAY, true).getDosesTaken()).isEqualTo(1);
+        assertThat(reminderService.getDailySummary(TOKEN, TODAY, false).getDosesTaken()).isEqualTo(1);
+        assertThat(reminderService.etag(TOKEN, "fetch")).isNotEqualTo(etag);
+        
+        doseMarkBuffer.flush();
+        
+        assertThat(doseTakenRecordRepository.count()).isEqualTo(1);
+        assertThat(doseMarkBuffer.pending(USER_ID)).isEmpty();
+        assertThat(takenToday()).isTrue();
+    }
+    
+    @Test
+    void opposingMarksCoalesceToNoWrite() {
+        reminderService.markDoseAsTakenForDate(TOKEN, reminder.getId(), dose.getId(), TODAY);
+        reminderService.markDoseAsNotTakenForDate(TOKEN, reminder.getId(), dose.getId(), TODAY);
+        reminderService.markDoseAsTakenForDate(TOKEN, reminder.getId(), dose.getId(), TODAY.minusDays(1));
+        reminderService.markDoseAsTakenForDate(TOKEN, reminder.getId(), dose.getId(), TODAY.minusDays(1));
+        
+        assertThat(doseMarkBuffer.pending(USER_ID)).hasSize(2);
+        assertThat(takenToday()).isFalse();
+        
+        doseMarkBuffer.flush();
+        
+        assertThat(doseTakenRecordRepository.findAll()).singleElement()
+                .satisfies(record -> assertThat(record.getDate()).isEqualTo(TODAY.minusDays(1)));
+        // Only the mark that changed something reaches the change log
+        assertThat(changeLogRepository.findAll()).hasSize(1);
+    }
+    
+    @Test
+    void largeBuffersAreStoredInChunksOfOneBulkRequest() {
+        Reminder longRunning = testData.reminder(testData.user(OTHER_USER_ID), "Ibuprofen",
+                TODAY.minusYears(2).atTime(8, 0), LocalTime.of(12, 0));
+        int marks = ReminderService.MAX_BULK_OPERATIONS + 100;
+        for (int day = 0; day < marks; day++) {
+            reminderService.markDoseAsTakenForDate(StubIdTokenVerifier.bearer(OTHER_USER_ID), longRunning.getId(),
+                    longRunning.getDoses().get(0).getId(), TODAY.minusDays(day));
+        }
+        
+        doseMarkBuffer.flush();
+        
+        // One data version per chunk, none with more changes than a bulk request
+        Map<Long, Long> changesByVersion = changeLogRepository.findAll().stream()
+                .collect(Collectors.groupingBy(ChangeLogEntry::getVersion, Collectors.counting()));
+        assertThat(changesByVersion.values())
+                .containsExactlyInAnyOrder((long) ReminderService.MAX_BULK_OPERATIONS, 100L);
+        assertThat(doseTakenRecordRepository.count()).isEqualTo(marks);
+    }
+    
+    @Test
+    void bulkMarkStoresOnlyItsUsersBufferedMarksFirst() {
+        Reminder otherReminder = testData.reminder(testData.user(OTHER_USER_ID), "Ibuprofen",
+                TODAY.minusDays(7).atTime(8, 0), LocalTime.of(12, 0));
+        reminderService.markDoseAsTakenForDate(StubIdTokenVerifier.bearer(OTHER_USER_ID), otherReminder.getId(),
+                otherReminder.getDoses().get(0).getId(), TODAY);
+        reminderService.markDoseAsTakenForDate(TOKEN, reminder.getId(), dose.getId(), TODAY);
+        
+        BulkMarkResultDTO result = reminderService.markDosesInBulk(TOKEN, List.of(DoseMarkOperationDTO.builder()
+                .reminderId(reminder.getId())
+                .doseId(dose.getId())
+                .date(TODAY)
+                .taken(false)
+                .build()));
+        
+        // The buffered mark was stored before the batch, which then undid it
+        assertThat(result.getUnmarked()).isEqualTo(1);
+        assertThat(doseMarkBuffer.pending(USER_ID)).isEmpty();
+        assertThat(doseMarkBuffer.pending(OTHER_USER_ID)).hasSize(1);
+        assertThat(doseTakenRecordRepository.count()).isZero();
+    }
+    
+    private boolean takenToday() {
+        ReminderDTO fetched = reminderService.fetchReminderById(TOKEN, reminder.getId());
+        return fetched.getDoses().get(0).getTaken();
+    }
+}
@@ -0,0 +1,86 @@
+package com.zerobee.pillscheduler.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DoseMarkJournalTest {
+    
+    private static final LocalDate DATE = LocalDate.of(2024, 6, 1);
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void marksSurviveAReopenUntilTheirSegmentIsDeleted() throws IOException {
+        DoseMarkJournal.Line first = new DoseMarkJournal.Line("user-1", 1, 10, DATE, true);
+        DoseMarkJournal.Line second = new DoseMarkJournal.Line("user-1", 1, 10, DATE, false);
+        DoseMarkJournal.Line third = new DoseMarkJournal.Line("user-2", 2, 20, DATE.plusDays(1), true);
+        
+        try (DoseMarkJournal journal = new DoseMarkJournal(directory, true)) {
+            journal.replay(line -> {
+            });
+            journal.append(first);
+            long sealed = journal.rotate();
+            journal.append(second);
+            journal.append(third);
+            assertThat(replay()).containsExactly(first, second, third);
+            
+            journal.deleteUpTo(sealed);
+        }
+        
+        assertThat(replay()).containsExactly(second, third);
+    }
+    
+    @Test
+    void tornLastLineIsDropped() throws IOException {
+        DoseMarkJournal.Line mark = new DoseMarkJournal.Line("user-1", 1, 10, DATE, true);
+        try (DoseMarkJournal journal = new DoseMarkJournal(directory, false)) {
+            journal.replay(line -> {
+            });
+            journal.append(mark);
+        }
+        try (var files = Files.list(directory)) {
+            Path segment = files.findFirst().orElseThrow();
+            Files.writeString(segment, "user-1\t1\t11\t2024-06-01\t", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+        
+        assertThat(replay()).containsExactly(mark);
+    }
+    
+    @Test
+    void storedLinesAreReplayedInOrder() throws IOException {
+        DoseMarkJournal.Line mark = new DoseMarkJournal.Line("user-1", 1, 10, DATE, true);
+        DoseMarkJournal.Line later = new DoseMarkJournal.Line("user-1", 1, 10, DATE, false);
+        try (DoseMarkJournal journal = new DoseMarkJournal(directory, true)) {
+            journal.replay(line -> {
+            });
+            journal.append(mark);
+            journal.append(DoseMarkJournal.Line.stored("user-1"));
+            journal.sync(journal.append(later));
+        }
+        
+        List<DoseMarkJournal.Line> lines = replay();
+        
+        assertThat(lines).containsExactly(mark, DoseMarkJournal.Line.stored("user-1"), later);
+        assertThat(lines.get(1).isStored()).isTrue();
+    }
+    
+    private List<DoseMarkJournal.Line> replay() throws IOException {
+        List<DoseMarkJournal.Line> lines = new ArrayList<>();
+        try (DoseMarkJournal journal = new DoseMarkJournal(directory, false)) {
+            journal.replay(lines::add);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,53 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.entity.User;
+import com.zerobee.pillscheduler.support.RecordingDoseNotificationSender;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class DoseNotificationDispatcherTest {
+    
+    @Test
+    void sendsDueDosesAndSkipsDosesTakenBeforehand() throws InterruptedException {
+        Instant now = Instant.now();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        UpcomingDoseLoader loader = mock(UpcomingDoseLoader.class);
+        doAnswer(invocation -> {
+            Consumer<DoseNotification> consumer = invocation.getArgument(3);
+            consumer.accept(new DoseNotification("user-1", 10, "Metformin", 1, today, LocalTime.NOON, now.plusMillis(100)));
+            consumer.accept(new DoseNotification("user-1", 10, "Metformin", 2, today, LocalTime.NOON, now.plusMillis(150)));
+            return 2;
+        }).when(loader).load(any(), any(), any(), any());
+        
+        RecordingDoseNotificationSender sender = new RecordingDoseNotificationSender();
+        DoseNotificationDispatcher dispatcher = new DoseNotificationDispatcher(loader, sender, true,
+                Duration.ofMillis(10), Duration.ofHours(1), 2, 500, 1, ZoneOffset.UTC, Clock.systemUTC());
+        dispatcher.start();
+        try {
+            Reminder reminder = Reminder.builder().id(10).user(User.builder().id("user-1").build()).build();
+            // Outside a transaction the change applies right away
+            dispatcher.doseTaken(reminder, Dose.builder().id(2).build(), today);
+            
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (dispatcher.getDispatchedCount() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            
+            assertThat(sender.getSent()).extracting(DoseNotification::doseId).containsExactly(1);
+            assertThat(dispatcher.getPendingCount()).isZero();
+            assertThat(dispatcher.getFailedBatchCount()).isZero();
+        } finally {
+            dispatcher.stop();
+        }
+    }
+}
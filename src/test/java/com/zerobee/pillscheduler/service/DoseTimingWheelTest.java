@@ -0,0 +1,59 @@
+package com.zerobee.pillscheduler.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DoseTimingWheelTest {
+    
+    private static final long START = 1_700_000_000_000L;
+    
+    @Test
+    void firesEachNotificationOnceOnTheFirstTickAtOrAfterItsDueTime() {
+        DoseTimingWheel wheel = new DoseTimingWheel(Duration.ofSeconds(1), Duration.ofMinutes(10), START);
+        DoseNotification early = notification(1, LocalDate.of(2024, 1, 1), START + 1_500);
+        DoseNotification late = notification(2, LocalDate.of(2024, 1, 1), START + 4_000);
+        assertThat(wheel.schedule(early)).isTrue();
+        assertThat(wheel.schedule(late)).isTrue();
+        assertThat(wheel.schedule(notification(1, LocalDate.of(2024, 1, 1), START + 1_500))).isFalse();
+        
+        assertThat(wheel.advance(START + 1_999)).isEmpty();
+        assertThat(wheel.advance(START + 2_000)).containsExactly(early);
+        assertThat(wheel.advance(START + 3_999)).isEmpty();
+        assertThat(wheel.advance(START + 60_000)).containsExactly(late);
+        assertThat(wheel.size()).isZero();
+    }
+    
+    @Test
+    void cancelledNotificationsNeverFire() {
+        DoseTimingWheel wheel = new DoseTimingWheel(Duration.ofSeconds(1), Duration.ofMinutes(10), START);
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        wheel.schedule(notification(1, date, START + 5_000));
+        wheel.schedule(notification(1, date.plusDays(1), START + 6_000));
+        wheel.schedule(notification(2, date, START + 5_000));
+        
+        assertThat(wheel.cancel(1, date)).isEqualTo(1);
+        assertThat(wheel.cancel(2, null)).isEqualTo(1);
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(START + 10_000)).extracting(DoseNotification::date).containsExactly(date.plusDays(1));
+    }
+    
+    @Test
+    void rejectsNotificationsBeyondTheSpanAndFiresOverdueOnesOnTheNextTick() {
+        DoseTimingWheel wheel = new DoseTimingWheel(Duration.ofSeconds(1), Duration.ofMinutes(1), START);
+        
+        assertThat(wheel.schedule(notification(1, LocalDate.of(2024, 1, 1), START + 3_600_000))).isFalse();
+        assertThat(wheel.schedule(notification(2, LocalDate.of(2024, 1, 1), START - 30_000))).isTrue();
+        assertThat(wheel.advance(START + 1_000)).hasSize(1);
+    }
+    
+    private static DoseNotification notification(int doseId, LocalDate date, long dueAtMillis) {
+        return new DoseNotification("user-1", 10, "Metformin", doseId, date, LocalTime.of(8, 0),
+                Instant.ofEpochMilli(dueAtMillis));
+    }
+}
@@ -0,0 +1,137 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.exception.InvalidToken;
+import com.zerobee.pillscheduler.support.SignedIdTokens;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OfflineIdTokenVerifierTest {
+    
+    private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+    private static final Instant ISSUED_AT = NOW.minus(Duration.ofMinutes(10));
+    private static final Duration VALIDITY = Duration.ofHours(1);
+    
+    private final SignedIdTokens tokens = new SignedIdTokens();
+    private final List<String> fallbackTokens = new ArrayList<>();
+    private final IdTokenVerifier fallback = idToken -> {
+        fallbackTokens.add(idToken);
+        return new VerifiedIdToken("from-fallback", null);
+    };
+    
+    @Test
+    void validTokenIsVerifiedLocally() {
+        OfflineIdTokenVerifier verifier = verifierWithKeys();
+        
+        VerifiedIdToken verified = verifier.verify(tokens.issue("user-1", ISSUED_AT, VALIDITY));
+        
+        assertThat(verified.uid()).isEqualTo("user-1");
+        assertThat(verified.expiresAt()).isEqualTo(ISSUED_AT.plus(VALIDITY));
+        assertThat(fallbackTokens).isEmpty();
+    }
+    
+    @Test
+    void tokensFailingAClaimCheckAreRejected() {
+        OfflineIdTokenVerifier verifier = verifierWithKeys();
+        
+        assertRejected(verifier, withClaim("aud", "another-project"));
+        assertRejected(verifier, withClaim("iss", "https://securetoken.google.com/another-project"));
+        assertRejected(verifier, withClaim("sub", ""));
+        assertRejected(verifier, withClaim("auth_time", NOW.plus(Duration.ofMinutes(5)).getEpochSecond()));
+        assertRejected(verifier, withoutClaim("auth_time"));
+        assertRejected(verifier, tokens.issue("user-1", NOW.minus(Duration.ofHours(2)), VALIDITY));
+        assertRejected(verifier, tokens.issue("user-1", NOW.plus(Duration.ofMinutes(5)), VALIDITY));
+        assertThat(fallbackTokens).isEmpty();
+    }
+    
+    @Test
+    void forgedTokensAreRejected() {
+        OfflineIdTokenVerifier verifier = verifierWithKeys();
+        String token = tokens.issue("user-1", ISSUED_AT, VALIDITY);
+        String[] parts = token.split("\\.");
+        String otherPayload = tokens.issue("user-2", ISSUED_AT, VALIDITY).split("\\.")[1];
+        
+        // Payload swapped under the original signature
+        assertRejected(verifier, parts[0] + "." + otherPayload + "." + parts[2]);
+        // Same key id, different key
+        assertRejected(verifier, new SignedIdTokens().issue("user-1", ISSUED_AT, VALIDITY));
+        // Unsigned
+        Map<String, Object> header = SignedIdTokens.header();
+        header.put("alg", "none");
+        assertRejected(verifier, tokens.sign(header, SignedIdTokens.claims("user-1", ISSUED_AT, VALIDITY)));
+        assertRejected(verifier, "not-a-token");
+        assertThat(fallbackTokens).isEmpty();
+    }
+    
+    @Test
+    void unknownKeyIdGoesToTheFallback() {
+        OfflineIdTokenVerifier verifier = verifierWithKeys();
+        Map<String, Object> header = SignedIdTokens.header();
+        header.put("kid", "rotated-in-later");
+        String token = tokens.sign(header, SignedIdTokens.claims("user-1", ISSUED_AT, VALIDITY));
+        
+        assertThat(verifier.verify(token).uid()).isEqualTo("from-fallback");
+        assertThat(fallbackTokens).containsExactly(token);
+    }
+    
+    @Test
+    void withoutCurrentKeysEveryTokenGoesToTheFallback() {
+        OfflineIdTokenVerifier failing = verifier(() -> {
+            throw new IOException("unreachable");
+        });
+        assertThat(failing.refresh()).isEqualTo(Duration.ofMinutes(1));
+        assertThat(failing.verify(tokens.issue("user-1", ISSUED_AT, VALIDITY)).uid()).isEqualTo("from-fallback");
+        
+        OfflineIdTokenVerifier expired = verifier(() -> tokens.signingKeys(NOW));
+        expired.refresh();
+        assertThat(expired.verify(tokens.issue("user-1", ISSUED_AT, VALIDITY)).uid()).isEqualTo("from-fallback");
+        assertThat(fallbackTokens).hasSize(2);
+    }
+    
+    @Test
+    void keysAreRefreshedShortlyBeforeTheyExpire() {
+        OfflineIdTokenVerifier verifier = verifier(() -> tokens.signingKeys(NOW.plus(Duration.ofHours(6))));
+        
+        assertThat(verifier.refresh()).isEqualTo(Duration.ofHours(6).minusMinutes(5));
+        assertThat(GoogleSigningKeySource.maxAge("public, max-age=22638, must-revalidate, no-transform"))
+                .isEqualTo(Duration.ofSeconds(22638));
+        assertThat(GoogleSigningKeySource.maxAge(null)).isEqualTo(Duration.ofHours(1));
+    }
+    
+    private OfflineIdTokenVerifier verifierWithKeys() {
+        OfflineIdTokenVerifier verifier = verifier(() -> tokens.signingKeys(NOW.plus(Duration.ofHours(6))));
+        verifier.refresh();
+        return verifier;
+    }
+    
+    private OfflineIdTokenVerifier verifier(SigningKeySource keySource) {
+        return new OfflineIdTokenVerifier(SignedIdTokens.PROJECT_ID, keySource, fallback, Duration.ofMinutes(1), CLOCK);
+    }
+    
+    private String withClaim(String name, Object value) {
+        Map<String, Object> claims = SignedIdTokens.claims("user-1", ISSUED_AT, VALIDITY);
+        claims.put(name, value);
+        return tokens.sign(SignedIdTokens.header(), claims);
+    }
+    
+    private String withoutClaim(String name) {
+        Map<String, Object> claims = SignedIdTokens.claims("user-1", ISSUED_AT, VALIDITY);
+        claims.remove(name);
+        return tokens.sign(SignedIdTokens.header(), claims);
+    }
+    
+    private static void assertRejected(OfflineIdTokenVerifier verifier, String token) {
+        assertThatThrownBy(() -> verifier.verify(token)).isInstanceOf(InvalidToken.class);
+    }
+}
@@ -0,0 +1,80 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.DailyReminderSummaryDTO;
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.enums.Flag;
+import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.repository.DoseTakenEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelHistoryAssemblerTest {
+    
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    
+    private final ParallelHistoryAssembler assembler = new ParallelHistoryAssembler(60, 7, 4);
+    
+    @AfterEach
+    void stop() {
+        assembler.stop();
+    }
+    
+    @Test
+    void parallelHistoryEqualsTheSequentialOne() {
+        List<Reminder> reminders = List.of(
+                reminder(1, Frequency.DAILY, null, 10, LocalTime.of(8, 0), LocalTime.of(20, 0)),
+                reminder(2, Frequency.ALTERNATE_DAYS, null, 20, LocalTime.of(12, 0)),
+                reminder(3, Frequency.CUSTOM, "MONDAY, FRIDAY", 30, LocalTime.of(9, 30)));
+        List<DoseTakenEntry> taken = new ArrayList<>();
+        for (LocalDate date = START; date.getYear() == 2024; date = date.plusDays(1)) {
+            if (date.getDayOfMonth() % 3 != 0) {
+                taken.add(new DoseTakenEntry(10, date));
+                taken.add(new DoseTakenEntry(30, date));
+            }
+        }
+        ReminderHistoryEngine engine = new ReminderHistoryEngine(reminders, taken);
+        LocalDate endDate = LocalDate.of(2024, 12, 31);
+        
+        List<DailyReminderSummaryDTO> history = assembler.summarize(engine, START, endDate);
+        
+        assertThat(history).hasSize(366);
+        assertThat(history).extracting(DailyReminderSummaryDTO::getDate).isSorted().doesNotHaveDuplicates();
+        assertThat(history).usingRecursiveComparison().isEqualTo(engine.summarize(START, endDate));
+    }
+    
+    @Test
+    void rangesBelowTheThresholdStayOnTheCallingThread() {
+        ReminderHistoryEngine engine = new ReminderHistoryEngine(
+                List.of(reminder(1, Frequency.DAILY, null, 10, LocalTime.of(8, 0))), List.of());
+        
+        List<DailyReminderSummaryDTO> history = assembler.summarize(engine, START, START.plusDays(58));
+        
+        assertThat(history).hasSize(59);
+        assertThat(history.get(58).getDate()).isEqualTo(START.plusDays(58));
+    }
+    
+    private static Reminder reminder(int id, Frequency frequency, String days, int firstDoseId, LocalTime... doseTimes) {
+        Reminder reminder = Reminder.builder()
+                .id(id)
+                .r_name("Reminder " + id)
+                .frequency(frequency)
+                .days(days)
+                .start_date_time(START.atTime(7, 0))
+                .flag(Flag.ACTIVE)
+                .build();
+        List<Dose> doses = new ArrayList<>();
+        for (int i = 0; i < doseTimes.length; i++) {
+            doses.add(Dose.builder().id(firstDoseId + i).doseTime(doseTimes[i]).reminder(reminder).build());
+        }
+        reminder.setDoses(doses);
+        return reminder;
+    }
+}
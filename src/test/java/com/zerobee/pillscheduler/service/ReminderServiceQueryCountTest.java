@@ -0,0 +1,250 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.DoseDTO;
+import com.zerobee.pillscheduler.dto.DoseMarkOperationDTO;
+import com.zerobee.pillscheduler.dto.ReminderDTO;
+import com.zerobee.pillscheduler.dto.ReminderPageDTO;
+import com.zerobee.pillscheduler.entity.ChangeLogEntry;
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.DoseTakenRecord;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.entity.User;
+import com.zerobee.pillscheduler.entity.UserDataVersion;
+import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.repository.*;
+import com.zerobee.pillscheduler.support.IntegrationTestConfig;
+import com.zerobee.pillscheduler.support.RecordingStatementInspector;
+import com.zerobee.pillscheduler.support.StubIdTokenVerifier;
+import com.zerobee.pillscheduler.support.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pins the number of SQL statements every public {@link ReminderService} method issues, so a lazy
+ * association touched outside the fetch plan (an N+1) fails the build. The counts include the user
+ * lookup of the token check, the token cache is disabled to keep it deterministic. Inserts of the
+ * same statement are JDBC batched and count once. Statements sent with JdbcTemplate bypass Hibernate
+ * and are not counted.
+ */
+@SpringBootTest(properties = {
+        "pillscheduler.token-cache.max-size=0",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.zerobee.pillscheduler.support.RecordingStatementInspector"
+})
+@ActiveProfiles("test")
+@Import(IntegrationTestConfig.class)
+class ReminderServiceQueryCountTest {
+    
+    private static final String USER_ID = "query-count-user";
+    private static final String TOKEN = StubIdTokenVerifier.bearer(USER_ID);
+    private static final LocalDate TODAY = LocalDate.now();
+    
+    @Autowired
+    private ReminderService reminderService;
+    @Autowired
+    private TestData testData;
+    @Autowired
+    private ReminderRepository reminderRepository;
+    @Autowired
+    private DoseTakenRecordRepository doseTakenRecordRepository;
+    @Autowired
+    private UserDataVersionRepository userDataVersionRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Reminder metformin;
+    private Reminder vitaminD;
+    private Dose morningDose;
+    private Dose eveningDose;
+    private Dose vitaminDose;
+    
+    @BeforeEach
+    void seed() {
+        User user = testData.user(USER_ID);
+        LocalDateTime start = TODAY.minusDays(30).atTime(6, 0);
+        metformin = testData.reminder(user, "Metformin", start, LocalTime.of(8, 0), LocalTime.of(20, 0));
+        vitaminD = testData.reminder(user, "Vitamin D", start, LocalTime.of(9, 0));
+        morningDose = metformin.getDoses().get(0);
+        eveningDose = metformin.getDoses().get(1);
+        vitaminDose = vitaminD.getDoses().get(0);
+        doseTakenRecordRepository.save(DoseTakenRecord.builder().dose(morningDose).date(TODAY).build());
+        // Writes then raise the data version with a single update
+        userDataVersionRepository.save(UserDataVersion.builder().userId(USER_ID).version(1).build());
+        // and append to the change log, whose id block is allocated here as well
+        ChangeLogEntry created = ChangeLogEntry.reminderSaved(metformin);
+        created.setUserId(USER_ID);
+        created.setVersion(1);
+        changeLogRepository.save(created);
+    }
+    
+    @AfterEach
+    void cleanUp() {
+        testData.reset();
+    }
+    
+    @Test
+    void createReminder() {
+        ReminderDTO request = ReminderDTO.builder()
+                .r_name("Ibuprofen")
+                .frequency(Frequency.DAILY)
+                .start_date_time(TODAY.atTime(7, 0))
+                .doses(List.of(
+                        DoseDTO.builder().doseTime(LocalTime.of(7, 0)).build(),
+                        DoseDTO.builder().doseTime(LocalTime.of(19, 0)).build()))
+                .build();
+        
+        // user, reminder insert, two dose inserts, rollup lock and invalidation, data version update and
+        // read, change log insert, dose statuses
+        ReminderDTO created = assertStatements(10, () -> reminderService.createReminder(TOKEN, request));
+        assertThat(created.getDoses()).hasSize(2);
+    }
+    
+    @Test
+    void fetchRemindersForUser() {
+        // user, reminders with doses, dose statuses
+        List<ReminderDTO> reminders = assertStatements(3, () -> reminderService.fetchRemindersForUser(TOKEN));
+        assertThat(reminders).hasSize(2);
+    }
+    
+    @Test
+    void fetchReminderPage() {
+        // user, page, doses of the page, dose statuses
+        ReminderPageDTO first = assertStatements(4, () -> reminderService.fetchReminderPage(TOKEN, null, 1, null));
+        ReminderPageDTO second = assertStatements(4,
+                () -> reminderService.fetchReminderPage(TOKEN, first.getNextCursor(), 1, "active"));
+        
+        assertThat(first.getReminders()).extracting(ReminderDTO::getId).containsExactly(metformin.getId());
+        assertThat(second.getReminders()).extracting(ReminderDTO::getId).containsExactly(vitaminD.getId());
+        assertThat(second.getNextCursor()).isNull();
+    }
+    
+    @Test
+    void fetchReminderById() {
+        // user, reminder with doses, dose statuses
+        ReminderDTO reminder = assertStatements(3, () -> reminderService.fetchReminderById(TOKEN, metformin.getId()));
+        assertThat(reminder.getDoses()).hasSize(2);
+    }
+    
+    @Test
+    void fetchActiveRemindersByFrequency() {
+        // user, reminders with doses, dose statuses
+        List<ReminderDTO> reminders = assertStatements(3,
+                () -> reminderService.fetchActiveRemindersByFrequency(TOKEN, "active", "not_taken", Frequency.DAILY));
+        assertThat(reminders).hasSize(2);
+    }
+    
+    @Test
+    void fetchRemindersForDate() {
+        // user, reminders with doses, dose statuses
+        List<ReminderDTO> reminders = assertStatements(3, () -> reminderService.fetchRemindersForDate(TOKEN, TODAY));
+        assertThat(reminders).hasSize(2);
+    }
+    
+    @Test
+    void deleteReminderById() {
+        // user, reminder with doses, dose delete, reminder delete, rollup lock and invalidation, data version
+        // update and read, change log insert
+        assertStatements(9, () -> {
+            reminderService.deleteReminderById(TOKEN, vitaminD.getId());
+            return null;
+        });
+        assertThat(reminderRepository.existsById(vitaminD.getId())).isFalse();
+    }
+    
+    @Test
+    void markDoseAsTakenForDate() {
+        // user, reminder, dose, record insert unless present, rollup lock and update, data version update
+        // and read, change log insert
+        assertStatements(9, () -> {
+            reminderService.markDoseAsTakenForDate(TOKEN, metformin.getId(), eveningDose.getId(), TODAY);
+            return null;
+        });
+    }
+    
+    @Test
+    void markDoseAsNotTakenForDate() {
+        // user, reminder, dose, record delete, rollup lock and update, data version update and read,
+        // change log insert
+        assertStatements(9, () -> {
+            reminderService.markDoseAsNotTakenForDate(TOKEN, metformin.getId(), morningDose.getId(), TODAY);
+            return null;
+        });
+    }
+    
+    @Test
+    void markDosesInBulk() {
+        List<DoseMarkOperationDTO> operations = List.of(
+                operation(metformin, morningDose, false),
+                operation(metformin, eveningDose, true),
+                operation(vitaminD, vitaminDose, true));
+        
+        // user, owned doses, rollup lock and one update for the day, data version update and read, batched
+        // change log inserts; the record inserts and deletes are JDBC batches, not counted here
+        assertStatements(7, () -> reminderService.markDosesInBulk(TOKEN, operations));
+    }
+    
+    @Test
+    void fetchReminderHistoryWithStatuses() {
+        // user, reminders with doses, taken records of the range
+        assertStatements(3, () -> reminderService.fetchReminderHistory(TOKEN, TODAY.minusDays(6), TODAY, true));
+    }
+    
+    @Test
+    void fetchReminderHistoryFromRollup() {
+        // user, rollup rows, rollup lock, rollup rows again under it, reminders with doses, taken records,
+        // one insert per missing day
+        assertStatements(9, () -> reminderService.fetchReminderHistory(TOKEN, TODAY.minusDays(2), TODAY, false));
+        // user, rollup rows
+        assertStatements(2, () -> reminderService.fetchReminderHistory(TOKEN, TODAY.minusDays(2), TODAY, false));
+    }
+    
+    @Test
+    void getDailySummary() {
+        // user, reminders with doses, taken records of the day
+        assertStatements(3, () -> reminderService.getDailySummary(TOKEN, TODAY, true));
+        // user, rollup row, rollup lock, rollup row again under it, reminders with doses, taken records,
+        // rollup insert
+        assertStatements(7, () -> reminderService.getDailySummary(TOKEN, TODAY, false));
+    }
+    
+    private <T> T assertStatements(int expected, Supplier<T> call) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        RecordingStatementInspector.clear();
+        
+        T result = call.get();
+        
+        assertThat(statistics.getPrepareStatementCount())
+                .as("SQL statements, executed: %s", RecordingStatementInspector.statements())
+                .isEqualTo(expected);
+        return result;
+    }
+    
+    private static DoseMarkOperationDTO operation(Reminder reminder, Dose dose, boolean taken) {
+        return DoseMarkOperationDTO.builder()
+                .reminderId(reminder.getId())
+                .doseId(dose.getId())
+                .date(TODAY)
+                .taken(taken)
+                .build();
+    }
+}
@@ -0,0 +1,157 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.DoseDTO;
+import com.zerobee.pillscheduler.dto.DoseTakenChangeDTO;
+import com.zerobee.pillscheduler.dto.ReminderDTO;
+import com.zerobee.pillscheduler.dto.ReminderSyncDTO;
+import com.zerobee.pillscheduler.entity.ChangeLogEntry;
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.exception.InvalidCursorException;
+import com.zerobee.pillscheduler.support.IntegrationTestConfig;
+import com.zerobee.pillscheduler.support.StubIdTokenVerifier;
+import com.zerobee.pillscheduler.support.TestData;
+import com.zerobee.pillscheduler.utils.PageCursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(IntegrationTestConfig.class)
+class ReminderSyncServiceTest {
+    
+    private static final String USER_ID = "sync-user";
+    private static final String TOKEN = StubIdTokenVerifier.bearer(USER_ID);
+    private static final LocalDate TODAY = LocalDate.now();
+    
+    @Autowired
+    private ReminderSyncService reminderSyncService;
+    @Autowired
+    private ReminderService reminderService;
+    @Autowired
+    private ChangeLogService changeLogService;
+    @Autowired
+    private TestData testData;
+    
+    @BeforeEach
+    void seed() {
+        testData.user(USER_ID);
+    }
+    
+    @AfterEach
+    void cleanUp() {
+        testData.reset();
+    }
+    
+    @Test
+    void snapshotCarriesRemindersAndTakenDoses() {
+        ReminderDTO metformin = create("Metformin");
+        Integer doseId = metformin.getDoses().get(0).getId();
+        reminderService.markDoseAsTakenForDate(TOKEN, metformin.getId(), doseId, TODAY);
+        
+        ReminderSyncDTO snapshot = reminderSyncService.sync(TOKEN, null);
+        
+        assertThat(snapshot.isSnapshot()).isTrue();
+        assertThat(snapshot.getReminders()).extracting(ReminderDTO::getId).containsExactly(metformin.getId());
+        assertThat(snapshot.getDoseChanges()).singleElement().satisfies(change -> {
+            assertThat(change.getDoseId()).isEqualTo(doseId);
+            assertThat(change.getDate()).isEqualTo(TODAY);
+            assertThat(change.isTaken()).isTrue();
+        });
+        
+        ReminderSyncDTO unchanged = reminderSyncService.sync(TOKEN, snapshot.getNextCursor());
+        assertThat(unchanged.isSnapshot()).isFalse();
+        assertThat(unchanged.getReminders()).isEmpty();
+        assertThat(unchanged.getDoseChanges()).isEmpty();
+        assertThat(unchanged.getNextCursor()).isEqualTo(snapshot.getNextCursor());
+    }
+    
+    @Test
+    void changesSinceTheCursorAreCoalesced() {
+        ReminderDTO metformin = create("Metformin");
+        Integer metforminDose = metformin.getDoses().get(0).getId();
+        reminderService.markDoseAsTakenForDate(TOKEN, metformin.getId(), metforminDose, TODAY);
+        String cursor = reminderSyncService.sync(TOKEN, null).getNextCursor();
+        
+        ReminderDTO vitaminD = create("Vitamin D");
+        Integer vitaminDose = vitaminD.getDoses().get(0).getId();
+        reminderService.markDoseAsTakenForDate(TOKEN, vitaminD.getId(), vitaminDose, TODAY);
+        reminderService.markDoseAsNotTakenForDate(TOKEN, metformin.getId(), metforminDose, TODAY);
+        reminderService.markDoseAsTakenForDate(TOKEN, metformin.getId(), metforminDose, TODAY.minusDays(1));
+        reminderService.markDoseAsNotTakenForDate(TOKEN, vitaminD.getId(), vitaminDose, TODAY);
+        reminderService.deleteReminderById(TOKEN, vitaminD.getId());
+        ReminderDTO ibuprofen = create("Ibuprofen");
+        
+        ReminderSyncDTO changes = reminderSyncService.sync(TOKEN, cursor);
+        
+        assertThat(changes.getReminders()).extracting(ReminderDTO::getId).containsExactly(ibuprofen.getId());
+        assertThat(changes.getReminders().get(0).getDoses()).hasSize(1);
+        assertThat(changes.getDeletedReminderIds()).containsExactly(vitaminD.getId());
+        // The marks of the deleted reminder are dropped with it
+        assertThat(changes.getDoseChanges())
+                .extracting(DoseTakenChangeDTO::getDoseId, DoseTakenChangeDTO::getDate, DoseTakenChangeDTO::isTaken)
+                .containsExactly(
+                        tuple(metforminDose, TODAY, false),
+                        tuple(metforminDose, TODAY.minusDays(1), true));
+        assertThat(changes.isHasMore()).isFalse();
+        
+        ReminderSyncDTO caughtUp = reminderSyncService.sync(TOKEN, changes.getNextCursor());
+        assertThat(caughtUp.getReminders()).isEmpty();
+        assertThat(caughtUp.getDeletedReminderIds()).isEmpty();
+        assertThat(caughtUp.getDoseChanges()).isEmpty();
+    }
+    
+    @Test
+    void writeLargerThanTheLimitIsSentWhole() {
+        ReminderDTO metformin = create("Metformin");
+        Integer doseId = metformin.getDoses().get(0).getId();
+        String cursor = reminderSyncService.sync(TOKEN, null).getNextCursor();
+        Dose dose = Dose.builder().id(doseId).reminder(Reminder.builder().id(metformin.getId()).build()).build();
+        List<ChangeLogEntry> marks = new ArrayList<>();
+        for (int day = 0; day <= ReminderSyncService.MAX_CHANGES; day++) {
+            marks.add(ChangeLogEntry.doseMarked(dose, TODAY.minusDays(day + 1), true));
+        }
+        changeLogService.record(USER_ID, marks);
+        reminderService.markDoseAsTakenForDate(TOKEN, metformin.getId(), doseId, TODAY);
+        
+        ReminderSyncDTO changes = reminderSyncService.sync(TOKEN, cursor);
+        
+        assertThat(changes.getDoseChanges()).hasSize(ReminderSyncService.MAX_CHANGES + 1);
+        assertThat(changes.isHasMore()).isTrue();
+        assertThat(changes.getNextCursor()).isNotEqualTo(cursor);
+        
+        ReminderSyncDTO rest = reminderSyncService.sync(TOKEN, changes.getNextCursor());
+        assertThat(rest.getDoseChanges()).extracting(DoseTakenChangeDTO::getDate).containsExactly(TODAY);
+        assertThat(rest.isHasMore()).isFalse();
+    }
+    
+    @Test
+    void cursorOfAnotherListingIsRejected() {
+        assertThatThrownBy(() -> reminderSyncService.sync(TOKEN, PageCursor.encode("reminders", 1)))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+    
+    private ReminderDTO create(String name) {
+        return reminderService.createReminder(TOKEN, ReminderDTO.builder()
+                .r_name(name)
+                .frequency(Frequency.DAILY)
+                .start_date_time(TODAY.minusDays(7).atTime(8, 0))
+                .doses(List.of(DoseDTO.builder().doseTime(LocalTime.of(8, 0)).build()))
+                .build());
+    }
+}
@@ -0,0 +1,155 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.DailyReminderSummaryDTO;
+import com.zerobee.pillscheduler.dto.DoseDTO;
+import com.zerobee.pillscheduler.dto.ReminderDTO;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.entity.ScheduledOccurrence;
+import com.zerobee.pillscheduler.entity.ScheduledOccurrenceHorizon;
+import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.repository.DoseTakenStore;
+import com.zerobee.pillscheduler.repository.ReminderRepository;
+import com.zerobee.pillscheduler.repository.ScheduledOccurrenceHorizonRepository;
+import com.zerobee.pillscheduler.repository.ScheduledOccurrenceRepository;
+import com.zerobee.pillscheduler.support.IntegrationTestConfig;
+import com.zerobee.pillscheduler.support.StubIdTokenVerifier;
+import com.zerobee.pillscheduler.support.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "pillscheduler.occurrences.enabled=true",
+        "pillscheduler.occurrences.past-days=10",
+        "pillscheduler.occurrences.future-days=5"
+})
+@ActiveProfiles("test")
+@Import(IntegrationTestConfig.class)
+class ScheduledOccurrenceServiceTest {
+    
+    private static final String USER_ID = "occurrence-user";
+    private static final String TOKEN = StubIdTokenVerifier.bearer(USER_ID);
+    private static final LocalDate TODAY = LocalDate.now();
+    
+    @Autowired
+    private ScheduledOccurrenceService scheduledOccurrenceService;
+    @Autowired
+    private ReminderService reminderService;
+    @Autowired
+    private ScheduledOccurrenceRepository scheduledOccurrenceRepository;
+    @Autowired
+    private ScheduledOccurrenceHorizonRepository horizonRepository;
+    @Autowired
+    private DoseTakenStore doseTakenStore;
+    @Autowired
+    private ReminderRepository reminderRepository;
+    @Autowired
+    private TestData testData;
+    
+    @BeforeEach
+    void seed() {
+        testData.user(USER_ID);
+        scheduledOccurrenceService.extendHorizon();
+    }
+    
+    @AfterEach
+    void cleanUp() {
+        testData.reset();
+    }
+    
+    @Test
+    void historyFromOccurrencesMatchesTheRules() {
+        ReminderDTO metformin = create("Metformin", Frequency.DAILY, null, LocalTime.of(8, 0), LocalTime.of(20, 0));
+        ReminderDTO vitaminD = create("Vitamin D", Frequency.CUSTOM, "MONDAY, THURSDAY", LocalTime.of(9, 0));
+        // Without doses, so without occurrences: both paths still count it on the days it applies
+        ReminderDTO checkup = create("Blood pressure check", Frequency.ALTERNATE_DAYS, null);
+        LocalDate startDate = TODAY.minusDays(6);
+        reminderService.markDoseAsTakenForDate(TOKEN, metformin.getId(), metformin.getDoses().get(1).getId(), TODAY);
+        // Marks on days the reminder is not scheduled on count for neither
+        for (LocalDate date = startDate; !date.isAfter(TODAY); date = date.plusDays(1)) {
+            reminderService.markDoseAsTakenForDate(TOKEN, vitaminD.getId(), vitaminD.getDoses().get(0).getId(), date);
+        }
+        assertThat(scheduledOccurrenceService.covers(startDate, TODAY)).isTrue();
+        
+        List<DailyReminderSummaryDTO> fromOccurrences = reminderService.fetchReminderHistory(TOKEN, startDate, TODAY, true);
+        
+        List<Reminder> reminders = reminderRepository.findWithDosesByUserId(USER_ID).stream()
+                .sorted(Comparator.comparing(Reminder::getId))
+                .toList();
+        List<DailyReminderSummaryDTO> fromRules = new ReminderHistoryEngine(reminders,
+                doseTakenStore.findTakenEntriesByUserIdAndDateBetween(USER_ID, startDate, TODAY))
+                .summarize(startDate, TODAY);
+        assertThat(fromOccurrences).usingRecursiveComparison().isEqualTo(fromRules);
+        assertThat(reminderService.fetchRemindersForDate(TOKEN, TODAY))
+                .extracting(ReminderDTO::getId)
+                .contains(metformin.getId(), checkup.getId());
+        assertThat(reminderService.fetchRemindersForDate(TOKEN, TODAY.minusDays(1)))
+                .extracting(ReminderDTO::getId)
+                .doesNotContain(checkup.getId());
+    }
+    
+    @Test
+    void savingAndDeletingAReminderRegeneratesOnlyItsRows() {
+        ReminderDTO metformin = create("Metformin", Frequency.DAILY, null, LocalTime.of(8, 0), LocalTime.of(20, 0));
+        ReminderDTO ibuprofen = create("Ibuprofen", Frequency.ALTERNATE_DAYS, null, LocalTime.of(12, 0));
+        
+        // Ten days back from the reminders' start to five days ahead, both inclusive
+        assertThat(occurrencesOf(metformin)).hasSize(2 * 16);
+        assertThat(occurrencesOf(ibuprofen)).hasSize(8);
+        assertThat(reminderService.fetchRemindersForDate(TOKEN, TODAY.plusDays(1)))
+                .extracting(ReminderDTO::getId)
+                .containsExactly(metformin.getId());
+        
+        reminderService.deleteReminderById(TOKEN, ibuprofen.getId());
+        
+        assertThat(occurrencesOf(ibuprofen)).isEmpty();
+        assertThat(occurrencesOf(metformin)).hasSize(2 * 16);
+    }
+    
+    @Test
+    void remindersSavedWhileTheHorizonMovesCoverTheNextHorizonToo() {
+        ScheduledOccurrenceHorizon horizon = horizonRepository.findById(1).orElseThrow();
+        horizon.setNextStartDate(horizon.getStartDate().plusDays(2));
+        horizon.setNextEndDate(horizon.getEndDate().plusDays(3));
+        horizonRepository.save(horizon);
+        
+        ReminderDTO metformin = create("Metformin", Frequency.DAILY, null, LocalTime.of(8, 0));
+        
+        // Both horizons together, ten days back to eight days ahead
+        assertThat(occurrencesOf(metformin)).hasSize(19);
+        
+        scheduledOccurrenceService.extendHorizon();
+        
+        assertThat(horizonRepository.findById(1)).get()
+                .extracting(ScheduledOccurrenceHorizon::getNextStartDate, ScheduledOccurrenceHorizon::getNextEndDate)
+                .containsOnlyNulls();
+    }
+    
+    private ReminderDTO create(String name, Frequency frequency, String days, LocalTime... doseTimes) {
+        return reminderService.createReminder(TOKEN, ReminderDTO.builder()
+                .r_name(name)
+                .frequency(frequency)
+                .days(days)
+                .start_date_time(TODAY.minusDays(10).atTime(6, 0))
+                .doses(Arrays.stream(doseTimes).map(time -> DoseDTO.builder().doseTime(time).build()).toList())
+                .build());
+    }
+    
+    private List<ScheduledOccurrence> occurrencesOf(ReminderDTO reminder) {
+        return scheduledOccurrenceRepository.findAll().stream()
+                .filter(occurrence -> occurrence.getReminderId().equals(reminder.getId()))
+                .toList();
+    }
+}
@@ -0,0 +1,115 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.DoseDTO;
+import com.zerobee.pillscheduler.dto.ReminderDTO;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.repository.DoseRepository;
+import com.zerobee.pillscheduler.repository.ReminderRepository;
+import com.zerobee.pillscheduler.support.IntegrationTestConfig;
+import com.zerobee.pillscheduler.support.RecordingStatementInspector;
+import com.zerobee.pillscheduler.support.StubIdTokenVerifier;
+import com.zerobee.pillscheduler.support.TestData;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Repeated reads are served from the second-level cache, and writes through ReminderService
+ * evict what they change so the next read sees them
+ */
+@SpringBootTest(properties = {
+        "pillscheduler.token-cache.max-size=0",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.zerobee.pillscheduler.support.RecordingStatementInspector"
+})
+@ActiveProfiles("test")
+@Import(IntegrationTestConfig.class)
+class SecondLevelCacheTest {
+    
+    private static final String USER_ID = "cache-user";
+    private static final String TOKEN = StubIdTokenVerifier.bearer(USER_ID);
+    
+    @Autowired
+    private ReminderService reminderService;
+    @Autowired
+    private TestData testData;
+    @Autowired
+    private ReminderRepository reminderRepository;
+    @Autowired
+    private DoseRepository doseRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Reminder reminder;
+    
+    @BeforeEach
+    void seed() {
+        reminder = testData.reminder(testData.user(USER_ID), "Metformin", LocalDate.now().atTime(8, 0), LocalTime.of(8, 0));
+    }
+    
+    @AfterEach
+    void cleanUp() {
+        testData.reset();
+    }
+    
+    @Test
+    void repeatedFetchReadsNoUserOrReminderRows() {
+        reminderService.fetchRemindersForUser(TOKEN);
+        
+        RecordingStatementInspector.clear();
+        List<ReminderDTO> reminders = reminderService.fetchRemindersForUser(TOKEN);
+        
+        assertThat(reminders).extracting(ReminderDTO::getR_name).containsExactly("Metformin");
+        assertThat(reminders.get(0).getDoses()).hasSize(1);
+        assertThat(RecordingStatementInspector.statements())
+                .as("statements of the cached fetch")
+                .noneMatch(sql -> sql.contains(" from users") || sql.contains(" from reminders")
+                        || sql.contains(" from doses"));
+        assertThat(meterRegistry.find("hibernate.second.level.cache.requests")
+                .tag("region", "reminders").tag("result", "hit").functionCounter())
+                .isNotNull()
+                .satisfies(counter -> assertThat(counter.count()).isPositive());
+    }
+    
+    @Test
+    void createdReminderShowsUpInCachedFetch() {
+        reminderService.fetchRemindersForUser(TOKEN);
+        
+        reminderService.createReminder(TOKEN, ReminderDTO.builder()
+                .r_name("Vitamin D")
+                .frequency(Frequency.DAILY)
+                .start_date_time(LocalDate.now().atTime(9, 0))
+                .doses(List.of(DoseDTO.builder().doseTime(LocalTime.of(9, 0)).build()))
+                .build());
+        
+        assertThat(reminderService.fetchRemindersForUser(TOKEN))
+                .extracting(ReminderDTO::getR_name)
+                .containsExactlyInAnyOrder("Metformin", "Vitamin D");
+    }
+    
+    @Test
+    void deletedReminderLeavesTheCache() {
+        reminderService.fetchRemindersForUser(TOKEN);
+        reminderService.fetchReminderById(TOKEN, reminder.getId());
+        
+        reminderService.deleteReminderById(TOKEN, reminder.getId());
+        
+        assertThat(reminderService.fetchRemindersForUser(TOKEN)).isEmpty();
+        assertThat(reminderRepository.findById(reminder.getId())).isEmpty();
+        assertThat(doseRepository.findByReminder(reminder)).isEmpty();
+    }
+}
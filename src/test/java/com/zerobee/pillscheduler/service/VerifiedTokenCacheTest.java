@@ -0,0 +1,147 @@
+package com.zerobee.pillscheduler.service;
+
+import com.zerobee.pillscheduler.dto.UserDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+    
+    private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+    private static final Duration MAX_TTL = Duration.ofMinutes(10);
+    
+    private final MutableClock clock = new MutableClock(NOW);
+    
+    @Test
+    void entriesExpireAtTheTokenExpiryWhenItComesFirst() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, MAX_TTL, clock);
+        cache.put("token-1", user("user-1"), NOW.plus(Duration.ofMinutes(2)));
+        
+        clock.advance(Duration.ofMinutes(2).minusSeconds(1));
+        assertThat(cache.get("token-1")).extracting(UserDTO::getId).isEqualTo("user-1");
+        
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(cache.get("token-1")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+    
+    @Test
+    void entriesExpireAfterTheMaxTtlWhenItComesFirst() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, MAX_TTL, clock);
+        cache.put("token-1", user("user-1"), NOW.plus(Duration.ofHours(1)));
+        
+        clock.advance(MAX_TTL.minusSeconds(1));
+        assertThat(cache.get("token-1")).isNotNull();
+        
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(cache.get("token-1")).isNull();
+    }
+    
+    @Test
+    void expiredTokensAreNotCached() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, MAX_TTL, clock);
+        
+        cache.put("token-1", user("user-1"), NOW);
+        
+        assertThat(cache.size()).isZero();
+    }
+    
+    @Test
+    void leastRecentlyUsedEntryIsEvictedAtTheSizeBound() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2, MAX_TTL, clock);
+        cache.put("token-1", user("user-1"), null);
+        cache.put("token-2", user("user-2"), null);
+        // Reading token-1 makes token-2 the least recently used
+        cache.get("token-1");
+        
+        cache.put("token-3", user("user-3"), null);
+        
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("token-2")).isNull();
+        assertThat(cache.get("token-1")).isNotNull();
+        assertThat(cache.get("token-3")).isNotNull();
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void invalidateUserDropsEveryTokenOfTheUserOnly() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, MAX_TTL, clock);
+        cache.put("token-1", user("user-1"), null);
+        cache.put("token-2", user("user-1"), null);
+        cache.put("token-3", user("user-2"), null);
+        
+        cache.invalidateUser("user-1");
+        
+        assertThat(cache.get("token-1")).isNull();
+        assertThat(cache.get("token-2")).isNull();
+        assertThat(cache.get("token-3")).isNotNull();
+        assertThat(cache.getEvictionCount()).isEqualTo(2);
+    }
+    
+    @Test
+    void countersTrackHitsMissesAndEvictions() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, MAX_TTL, clock);
+        cache.get("token-1");
+        cache.put("token-1", user("user-1"), NOW.plus(Duration.ofMinutes(1)));
+        cache.get("token-1");
+        cache.get("token-1");
+        
+        clock.advance(Duration.ofMinutes(1));
+        cache.get("token-1");
+        
+        // The expired entry counts as a miss and an eviction
+        assertThat(cache.getHitCount()).isEqualTo(2);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void cachedUsersAreCopies() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, MAX_TTL, clock);
+        UserDTO user = user("user-1");
+        cache.put("token-1", user, null);
+        
+        user.setName("changed");
+        cache.get("token-1").setName("changed again");
+        
+        assertThat(cache.get("token-1").getName()).isEqualTo("user-1");
+    }
+    
+    private static UserDTO user(String id) {
+        return UserDTO.builder().id(id).name(id).email(id + "@example.com").build();
+    }
+    
+    private static final class MutableClock extends Clock {
+        
+        private Instant instant;
+        
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+        
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.zerobee.pillscheduler.support;
+
+import com.zerobee.pillscheduler.repository.ReminderRepository;
+import com.zerobee.pillscheduler.repository.UserRepository;
+import com.zerobee.pillscheduler.service.IdTokenVerifier;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Fixture of the tests that boot the application, import it next to {@code @ActiveProfiles("test")}:
+ * one embedded PostgreSQL for the whole test run, which the test profile migrates with Flyway and
+ * validates the entities against, {@link StubIdTokenVerifier} in place of Firebase and
+ * {@link TestData} to seed and reset the tables. Every cached application context gets its own
+ * connection pool to the same database, hence the raised connection limit.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class IntegrationTestConfig {
+    
+    private static EmbeddedPostgres postgres;
+    
+    static synchronized EmbeddedPostgres postgres() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.builder()
+                        .setServerConfig("max_connections", "300")
+                        .start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    postgres.close();
+                } catch (IOException ignored) {
+                    // The test run is over either way
+                }
+            }));
+        }
+        return postgres;
+    }
+    
+    @Bean
+    DataSource dataSource() {
+        return DataSourceBuilder.create()
+                .url(postgres().getJdbcUrl("postgres", "postgres"))
+                .username("postgres")
+                .password("")
+                .build();
+    }
+    
+    @Bean
+    @Primary
+    IdTokenVerifier stubIdTokenVerifier() {
+        return new StubIdTokenVerifier();
+    }
+    
+    @Bean
+    TestData testData(UserRepository userRepository, ReminderRepository reminderRepository, DataSource dataSource,
+                      EntityManagerFactory entityManagerFactory) {
+        return new TestData(userRepository, reminderRepository, dataSource, entityManagerFactory);
+    }
+}
@@ -0,0 +1,24 @@
+package com.zerobee.pillscheduler.support;
+
+import com.zerobee.pillscheduler.service.DoseNotification;
+import com.zerobee.pillscheduler.service.DoseNotificationSender;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps every dose notification it is asked to send, in place of FCM
+ */
+public class RecordingDoseNotificationSender implements DoseNotificationSender {
+    
+    private final List<DoseNotification> sent = new CopyOnWriteArrayList<>();
+    
+    @Override
+    public void send(List<DoseNotification> batch) {
+        sent.addAll(batch);
+    }
+    
+    public List<DoseNotification> getSent() {
+        return List.copyOf(sent);
+    }
+}
@@ -0,0 +1,35 @@
+package com.zerobee.pillscheduler.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remembers the SQL Hibernate prepares, so query count assertions can show what actually ran.
+ * Register it with spring.jpa.properties.hibernate.session_factory.statement_inspector.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+    
+    private static final List<String> STATEMENTS = new ArrayList<>();
+    
+    @Override
+    public String inspect(String sql) {
+        synchronized (STATEMENTS) {
+            STATEMENTS.add(sql);
+        }
+        return sql;
+    }
+    
+    public static void clear() {
+        synchronized (STATEMENTS) {
+            STATEMENTS.clear();
+        }
+    }
+    
+    public static List<String> statements() {
+        synchronized (STATEMENTS) {
+            return List.copyOf(STATEMENTS);
+        }
+    }
+}
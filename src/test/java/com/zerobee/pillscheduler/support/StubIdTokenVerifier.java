@@ -0,0 +1,47 @@
+package com.zerobee.pillscheduler.support;
+
+import com.zerobee.pillscheduler.exception.InvalidToken;
+import com.zerobee.pillscheduler.service.IdTokenVerifier;
+import com.zerobee.pillscheduler.service.VerifiedIdToken;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Stands in for Firebase in tests: accepts tokens of the form "stub:&lt;uid&gt;" and can add a fixed
+ * delay to every verification to mimic the remote call.
+ */
+public class StubIdTokenVerifier implements IdTokenVerifier {
+    
+    public static final String TOKEN_PREFIX = "stub:";
+    
+    private final Duration latency;
+    
+    public StubIdTokenVerifier() {
+        this(Duration.ZERO);
+    }
+    
+    public StubIdTokenVerifier(Duration latency) {
+        this.latency = latency;
+    }
+    
+    public static String bearer(String uid) {
+        return "Bearer " + TOKEN_PREFIX + uid;
+    }
+    
+    @Override
+    public VerifiedIdToken verify(String idToken) {
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InvalidToken();
+            }
+        }
+        if (idToken == null || !idToken.startsWith(TOKEN_PREFIX)) {
+            throw new InvalidToken();
+        }
+        return new VerifiedIdToken(idToken.substring(TOKEN_PREFIX.length()), Instant.now().plusSeconds(3600));
+    }
+}
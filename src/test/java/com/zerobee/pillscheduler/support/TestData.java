@@ -0,0 +1,79 @@
+package com.zerobee.pillscheduler.support;
+
+import com.zerobee.pillscheduler.entity.Dose;
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.entity.User;
+import com.zerobee.pillscheduler.enums.Flag;
+import com.zerobee.pillscheduler.enums.Frequency;
+import com.zerobee.pillscheduler.enums.Status;
+import com.zerobee.pillscheduler.repository.ReminderRepository;
+import com.zerobee.pillscheduler.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seeds users and reminders through the repositories and empties every table between tests,
+ * see {@link IntegrationTestConfig}
+ */
+public class TestData {
+    
+    private final UserRepository userRepository;
+    private final ReminderRepository reminderRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    
+    TestData(UserRepository userRepository, ReminderRepository reminderRepository, DataSource dataSource,
+             EntityManagerFactory entityManagerFactory) {
+        this.userRepository = userRepository;
+        this.reminderRepository = reminderRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.entityManagerFactory = entityManagerFactory;
+    }
+    
+    public User user(String id) {
+        return userRepository.save(User.builder().id(id).name(id).email(id + "@example.com").build());
+    }
+    
+    /**
+     * A daily, active reminder with one dose per dose time
+     */
+    public Reminder reminder(User user, String name, LocalDateTime startDateTime, LocalTime... doseTimes) {
+        Reminder reminder = Reminder.builder()
+                .r_name(name)
+                .frequency(Frequency.DAILY)
+                .flag(Flag.ACTIVE)
+                .status(Status.NOT_TAKEN)
+                .start_date_time(startDateTime)
+                .remaining_doses(doseTimes.length)
+                .user(user)
+                .build();
+        List<Dose> doses = new ArrayList<>();
+        for (LocalTime doseTime : doseTimes) {
+            doses.add(Dose.builder().doseTime(doseTime).taken(false).reminder(reminder).build());
+        }
+        reminder.setDoses(doses);
+        return reminderRepository.save(reminder);
+    }
+    
+    /**
+     * Empties every table but Flyway's and puts back the horizon row of the occurrences, then drops
+     * the second-level cache, which the truncation bypasses. Sequences and identities keep counting,
+     * so ids are never reused across tests.
+     */
+    public void reset() {
+        List<String> tables = jdbcTemplate.queryForList("SELECT c.relname FROM pg_class c "
+                + "JOIN pg_namespace n ON n.oid = c.relnamespace "
+                + "WHERE n.nspname = current_schema() AND c.relkind IN ('r', 'p') AND NOT c.relispartition "
+                + "AND c.relname <> 'flyway_schema_history'", String.class);
+        jdbcTemplate.execute("TRUNCATE " + String.join(", ", tables) + " CASCADE");
+        jdbcTemplate.update("INSERT INTO scheduled_occurrence_horizon (id) VALUES (1)");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+}
@@ -0,0 +1,77 @@
+package com.zerobee.pillscheduler.utils;
+
+import com.zerobee.pillscheduler.entity.Reminder;
+import com.zerobee.pillscheduler.enums.Frequency;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecurrenceRuleTest {
+    
+    @Test
+    void alternateDaysKeepsParityAcrossMonthBoundaries() {
+        LocalDate start = LocalDate.of(2024, 1, 30);
+        RecurrenceRule rule = RecurrenceRule.of(reminder(Frequency.ALTERNATE_DAYS, null, start, null));
+        
+        for (LocalDate date = start; date.isBefore(start.plusDays(120)); date = date.plusDays(1)) {
+            boolean expected = ChronoUnit.DAYS.between(start, date) % 2 == 0;
+            assertThat(rule.appliesOn(date)).as(date.toString()).isEqualTo(expected);
+        }
+    }
+    
+    @Test
+    void customDaysMatchesListedWeekdaysOnly() {
+        RecurrenceRule rule = RecurrenceRule.of(
+                reminder(Frequency.CUSTOM, "monday, FRIDAY,bogus", LocalDate.of(2024, 1, 1), null));
+        
+        assertThat(rule.appliesOn(LocalDate.of(2024, 1, 1))).isTrue();   // Monday
+        assertThat(rule.appliesOn(LocalDate.of(2024, 1, 3))).isFalse();  // Wednesday
+        assertThat(rule.appliesOn(LocalDate.of(2024, 1, 5))).isTrue();   // Friday
+        assertThat(rule.appliesOn(LocalDate.of(2023, 12, 29))).isFalse(); // before start
+    }
+    
+    @Test
+    void nextOccurrenceRespectsStepWeekdaysAndBounds() {
+        RecurrenceRule alternate = RecurrenceRule.of(
+                reminder(Frequency.ALTERNATE_DAYS, null, LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 4)));
+        
+        assertThat(alternate.nextOccurrence(LocalDate.of(2024, 1, 1))).contains(LocalDate.of(2024, 1, 31));
+        assertThat(alternate.nextOccurrence(LocalDate.of(2024, 1, 31))).contains(LocalDate.of(2024, 2, 2));
+        assertThat(alternate.nextOccurrence(LocalDate.of(2024, 2, 4))).isEqualTo(Optional.empty());
+        
+        RecurrenceRule sundays = RecurrenceRule.of(
+                reminder(Frequency.CUSTOM, "SUNDAY", LocalDate.of(2024, 1, 1), null));
+        assertThat(sundays.nextOccurrence(LocalDate.of(2024, 1, 7))).contains(LocalDate.of(2024, 1, 14));
+    }
+    
+    @Test
+    void occurrencesIteratesOnlyApplicableDatesInRange() {
+        RecurrenceRule rule = RecurrenceRule.of(
+                reminder(Frequency.CUSTOM, "TUESDAY,THURSDAY", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 18)));
+        
+        List<LocalDate> dates = new ArrayList<>();
+        rule.occurrences(LocalDate.of(2024, 1, 4), LocalDate.of(2024, 2, 1)).forEach(dates::add);
+        
+        assertThat(dates).containsExactly(
+                LocalDate.of(2024, 1, 4),
+                LocalDate.of(2024, 1, 9),
+                LocalDate.of(2024, 1, 11),
+                LocalDate.of(2024, 1, 16),
+                LocalDate.of(2024, 1, 18));
+    }
+    
+    private static Reminder reminder(Frequency frequency, String days, LocalDate start, LocalDate end) {
+        return Reminder.builder()
+                .frequency(frequency)
+                .days(days)
+                .start_date_time(start.atTime(9, 0))
+                .end_date_time(end != null ? end.atTime(21, 0) : null)
+                .build();
+    }
+}